@@ -0,0 +1,233 @@
+package info.iconmaster.typhon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class generates synthetic Typhon programs, for seeing how the compiler scales.
+ * <p>
+ * Each package is generated as its own file. Every package contains:
+ * <ul>
+ * <li><tt>classes</tt> classes, in inheritance chains <tt>depth</tt> classes long, each with <tt>templateArity</tt> template parameters.</li>
+ * <li>A function with <tt>overloads</tt> overloads.</li>
+ * <li><tt>fanOut</tt> subpackages, each of which is imported by the package.</li>
+ * <li>A function that uses all of the above, calling functions nested <tt>callDepth</tt> deep.</li>
+ * </ul>
+ * The subpackages are there because input files can't import each other's packages.
+ * 
+ * @author iconmaster
+ *
+ */
+public class ProgramGenerator {
+	/**
+	 * The types the overloads of a function differ by.
+	 * Only the first can be cast to from an <tt>int</tt>, so calls are never ambiguous.
+	 */
+	private static final String[] OVERLOAD_TYPES = {"int", "string", "bool"};
+	
+	/**
+	 * The number of packages (and thus files) to generate.
+	 */
+	public int packages = 8;
+	
+	/**
+	 * The number of classes in each package.
+	 */
+	public int classes = 16;
+	
+	/**
+	 * The length of the inheritance chains of classes.
+	 */
+	public int depth = 4;
+	
+	/**
+	 * The number of overloads each function has.
+	 */
+	public int overloads = 4;
+	
+	/**
+	 * How deeply calls are nested in each package.
+	 */
+	public int callDepth = 8;
+	
+	/**
+	 * The number of template parameters each class has.
+	 */
+	public int templateArity = 2;
+	
+	/**
+	 * The number of packages each package imports.
+	 */
+	public int fanOut = 2;
+	
+	/**
+	 * Generates a program into a directory.
+	 * 
+	 * @param dir
+	 * @return The files that were generated.
+	 * @throws IOException
+	 */
+	public List<File> generate(File dir) throws IOException {
+		dir.mkdirs();
+		
+		List<File> result = new ArrayList<>();
+		for (int i = 0; i < packages; i++) {
+			File file = new File(dir, "p"+i+".tn");
+			Files.write(file.toPath(), generatePackage(i).getBytes(StandardCharsets.UTF_8));
+			result.add(file);
+		}
+		return result;
+	}
+	
+	/**
+	 * @param i
+	 * @return The source code of the package with the given index.
+	 */
+	public String generatePackage(int i) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("package p"+i+";\n\n");
+		
+		// the imported packages
+		for (int k = 0; k < fanOut; k++) {
+			sb.append("package q"+k+" {\n");
+			sb.append("\tclass E"+k+templateParams()+" {\n");
+			sb.append("\t\tint e(int x) => x\n");
+			sb.append("\t}\n\n");
+			appendOverloads(sb, "\t", "h"+k);
+			sb.append("}\n\n");
+		}
+		
+		for (int k = 0; k < fanOut; k++) {
+			sb.append("import q"+k+";\n");
+		}
+		sb.append("\n");
+		
+		// the classes
+		for (int j = 0; j < classes; j++) {
+			sb.append("class C"+j+templateParams());
+			if (j % depth != 0) {
+				sb.append(" : C"+(j-1)+templateParams());
+			}
+			sb.append(" {\n");
+			
+			if (templateArity > 0) {
+				sb.append("\tT0 v"+j+";\n");
+			}
+			if (j % depth != 0) {
+				sb.append("\tint m"+j+"(int x) => this.m"+(j-1)+"(x)\n");
+			} else {
+				sb.append("\tint m"+j+"(int x) => x\n");
+			}
+			sb.append("}\n\n");
+		}
+		
+		// the overloaded function
+		appendOverloads(sb, "", "g");
+		sb.append("\n");
+		
+		// the function that uses everything
+		sb.append("void use() {\n");
+		
+		String call = "1";
+		for (int d = 0; d < callDepth; d++) {
+			int k = d % (fanOut+1);
+			call = (k == 0 ? "g" : "h"+(k-1))+"("+call+")";
+		}
+		sb.append("\tint y = "+call+";\n");
+		
+		for (int j = 0; j < classes; j++) {
+			sb.append("\tvar c"+j+" = new C"+j+templateArgs()+"();\n");
+			sb.append("\tint z"+j+" = c"+j+".m"+(j - j % depth)+"(c"+j+".m"+j+"(1));\n");
+		}
+		
+		for (int k = 0; k < fanOut; k++) {
+			sb.append("\tint e"+k+" = new E"+k+templateArgs()+"().e(1);\n");
+		}
+		
+		sb.append("}\n");
+		return sb.toString();
+	}
+	
+	/**
+	 * Adds all the overloads of a function.
+	 * 
+	 * @param sb
+	 * @param indent
+	 * @param name
+	 */
+	private void appendOverloads(StringBuilder sb, String indent, String name) {
+		for (int o = 0; o < overloads; o++) {
+			String type = OVERLOAD_TYPES[o % OVERLOAD_TYPES.length];
+			int arity = 1 + o / OVERLOAD_TYPES.length;
+			
+			sb.append(indent+"int "+name+"(");
+			for (int a = 0; a < arity; a++) {
+				if (a > 0) {
+					sb.append(", ");
+				}
+				sb.append(type+" a"+a);
+			}
+			sb.append(") => "+(o == 0 ? "a0" : "1")+"\n");
+		}
+	}
+	
+	/**
+	 * @return The template parameters of a class, such as <tt>&lt;T0, T1&gt;</tt>.
+	 */
+	private String templateParams() {
+		return templateList("T", true);
+	}
+	
+	/**
+	 * @return The template arguments for a class, such as <tt>&lt;int, int&gt;</tt>.
+	 */
+	private String templateArgs() {
+		return templateList("int", false);
+	}
+	
+	private String templateList(String item, boolean numbered) {
+		if (templateArity == 0) {
+			return "";
+		}
+		
+		StringBuilder sb = new StringBuilder("<");
+		for (int t = 0; t < templateArity; t++) {
+			if (t > 0) {
+				sb.append(", ");
+			}
+			sb.append(numbered ? item+t : item);
+		}
+		return sb.append(">").toString();
+	}
+	
+	/**
+	 * Generates a program from the command line.
+	 * The first argument is the directory to generate into; the rest are settings, such as <tt>packages=16</tt>.
+	 * 
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("usage: ProgramGenerator DIR [packages=N] [classes=N] [depth=N] [overloads=N] [callDepth=N] [templateArity=N] [fanOut=N]");
+			System.exit(1);
+		}
+		
+		ProgramGenerator gen = new ProgramGenerator();
+		for (int i = 1; i < args.length; i++) {
+			String[] setting = args[i].split("=", 2);
+			try {
+				ProgramGenerator.class.getField(setting[0]).setInt(gen, Integer.parseInt(setting[1]));
+			} catch (NoSuchFieldException | IllegalAccessException | ArrayIndexOutOfBoundsException | NumberFormatException e) {
+				System.err.println("error: invalid setting '"+args[i]+"'");
+				System.exit(1);
+			}
+		}
+		
+		System.out.println("generated "+gen.generate(new File(args[0])).size()+" files");
+	}
+}
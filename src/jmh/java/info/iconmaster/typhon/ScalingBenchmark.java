@@ -0,0 +1,469 @@
+package info.iconmaster.typhon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+import info.iconmaster.typhon.plugins.PluginLoader;
+
+/**
+ * This benchmark runs the whole compiler on programs made by {@link ProgramGenerator},
+ * growing them along one dimension at a time, and reports how the time and memory each phase takes grows with them.
+ * <p>
+ * For every phase, the growth is fitted to <tt>n^x</tt>. If <tt>x</tt> is more than the threshold for any phase,
+ * the benchmark fails.
+ * 
+ * @author iconmaster
+ *
+ */
+public class ScalingBenchmark {
+	private ScalingBenchmark() {}
+	
+	/**
+	 * Phases that take less time than this, in milliseconds, are too noisy to fit.
+	 */
+	private static final double MIN_FIT_TIME = 10;
+	
+	/**
+	 * The width of the plots, in characters.
+	 */
+	private static final int PLOT_WIDTH = 50;
+	
+	/**
+	 * The settings for one run of the compiler.
+	 */
+	private static class Config {
+		ProgramGenerator gen = new ProgramGenerator();
+		int jobs = 1;
+		
+		/**
+		 * Whether to report the time of each phase. When packages are worked on in parallel, their phases overlap,
+		 * so only the total time means anything.
+		 */
+		boolean phases = true;
+	}
+	
+	/**
+	 * A setting that gets varied, and the values it takes.
+	 */
+	private static class Dimension {
+		String name;
+		ObjIntConsumer<Config> set;
+		boolean daemon;
+		int[] values;
+		
+		Dimension(String name, ObjIntConsumer<Config> set, boolean daemon, int... values) {
+			this.name = name;
+			this.set = set;
+			this.daemon = daemon;
+			this.values = values;
+		}
+	}
+	
+	/**
+	 * The time and memory taken at one value of a dimension.
+	 */
+	private static class Point {
+		int value;
+		
+		/**
+		 * The time each phase took, in milliseconds.
+		 */
+		Map<String, Double> times = new LinkedHashMap<>();
+		
+		/**
+		 * The bytes allocated, and the bytes still in use at the end. Both are -1 if not measured.
+		 */
+		long allocated = -1, retained = -1;
+	}
+	
+	private static final List<Dimension> DIMENSIONS = Arrays.asList(
+		new Dimension("packages", (c, v)->c.gen.packages = v, false, 4, 8, 16, 32),
+		new Dimension("classes", (c, v)->c.gen.classes = v, false, 8, 16, 32, 64),
+		new Dimension("depth", (c, v)->{c.gen.classes = 32; c.gen.depth = v;}, false, 2, 4, 8, 16, 32),
+		new Dimension("overloads", (c, v)->c.gen.overloads = v, false, 2, 4, 8, 16),
+		new Dimension("callDepth", (c, v)->c.gen.callDepth = v, false, 4, 8, 16, 32),
+		new Dimension("templateArity", (c, v)->c.gen.templateArity = v, false, 1, 2, 4, 8),
+		new Dimension("fanOut", (c, v)->c.gen.fanOut = v, false, 1, 2, 4, 8),
+		new Dimension("jobs", (c, v)->{c.gen.packages = 32; c.jobs = v; c.phases = false;}, false, 1, 2, 4, 8),
+		new Dimension("daemon", (c, v)->c.gen.packages = v, true, 4, 8, 16, 32)
+	);
+	
+	/**
+	 * Runs the benchmark.
+	 * <p>
+	 * Arguments: <tt>[--runs N] [--threshold X] [--csv FILE] [DIMENSION...]</tt>.
+	 * By default, every dimension is run, each point is the best of 3 runs, and the threshold is 1.5.
+	 * 
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		int runs = 3;
+		double threshold = 1.5;
+		File csv = null;
+		List<Dimension> dimensions = new ArrayList<>();
+		
+		for (int i = 0; i < args.length; i++) {
+			try {
+				if (args[i].equals("--runs")) {
+					runs = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--threshold")) {
+					threshold = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("--csv")) {
+					csv = new File(args[++i]);
+				} else {
+					String name = args[i];
+					Dimension dimension = DIMENSIONS.stream().filter(d->d.name.equals(name)).findFirst().orElse(null);
+					if (dimension == null) {
+						System.err.println("error: unknown dimension '"+name+"'");
+						System.exit(1);
+					}
+					dimensions.add(dimension);
+				}
+			} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+				System.err.println("error: invalid argument to "+args[i-1]);
+				System.exit(1);
+			}
+		}
+		
+		if (dimensions.isEmpty()) {
+			dimensions.addAll(DIMENSIONS);
+		}
+		
+		PluginLoader.loadPlugins();
+		
+		// warm up the JIT, so the first points measured aren't slower than the rest
+		measurePipeline(new Config(), 0, runs);
+		
+		List<String> failures = new ArrayList<>();
+		PrintWriter csvOut = null;
+		if (csv != null) {
+			if (csv.getParentFile() != null) {
+				csv.getParentFile().mkdirs();
+			}
+			csvOut = new PrintWriter(new FileWriter(csv));
+			csvOut.println("dimension,value,metric,amount");
+		}
+		
+		for (Dimension dimension : dimensions) {
+			List<Point> points = new ArrayList<>();
+			for (int value : dimension.values) {
+				Config config = new Config();
+				dimension.set.accept(config, value);
+				
+				Point point = dimension.daemon ? measureDaemon(config, value, runs) : measurePipeline(config, value, runs);
+				points.add(point);
+				
+				if (csvOut != null) {
+					for (Map.Entry<String, Double> entry : point.times.entrySet()) {
+						csvOut.println(dimension.name+","+value+","+entry.getKey()+"_ms,"+entry.getValue());
+					}
+					if (point.allocated >= 0) {
+						csvOut.println(dimension.name+","+value+",allocated_bytes,"+point.allocated);
+						csvOut.println(dimension.name+","+value+",retained_bytes,"+point.retained);
+					}
+					csvOut.flush();
+				}
+			}
+			
+			failures.addAll(report(System.out, dimension, points, threshold));
+		}
+		
+		if (csvOut != null) {
+			csvOut.close();
+		}
+		
+		if (failures.isEmpty()) {
+			System.out.println("All phases scale within n^"+threshold+".");
+		} else {
+			System.out.println("Superlinear scaling found:");
+			for (String failure : failures) {
+				System.out.println("\t"+failure);
+			}
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Measures checking a generated program, as if from the command line.
+	 */
+	private static Point measurePipeline(Config config, int value, int runs) throws IOException {
+		File dir = Files.createTempDirectory("typhon").toFile();
+		try {
+			config.gen.generate(dir);
+			String[] args = {"check", "--profile", "--jobs", Integer.toString(config.jobs), dir.getPath()};
+			
+			Point best = null;
+			PrintStream out = System.out, err = System.err;
+			PrintStream nowhere = new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {}
+			});
+			
+			// the first run is a warmup
+			for (int run = 0; run <= runs; run++) {
+				Point point = new Point();
+				point.value = value;
+				
+				System.gc();
+				long heapBefore = getUsedHeap();
+				
+				System.setOut(nowhere);
+				System.setErr(nowhere);
+				long start = System.nanoTime();
+				TyphonInput tni;
+				try {
+					tni = Typhon.run(args, null, null);
+				} finally {
+					System.setOut(out);
+					System.setErr(err);
+				}
+				long time = System.nanoTime()-start;
+				
+				if (!tni.errors.isEmpty()) {
+					throw new IllegalStateException("generated program has errors, such as: "+tni.errors.get(0).getMessage());
+				}
+				
+				point.times.put("total", time/1e6);
+				point.allocated = 0;
+				for (TyphonProfiler.Measurement m : tni.profiler.getPhases()) {
+					if (config.phases) {
+						point.times.put(m.phase, m.wallTime/1e6);
+					}
+					point.allocated += m.allocatedBytes;
+				}
+				
+				System.gc();
+				point.retained = Math.max(0, getUsedHeap()-heapBefore);
+				
+				if (run > 0 && (best == null || point.times.get("total") < best.times.get("total"))) {
+					best = point;
+				}
+			}
+			
+			return best;
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	/**
+	 * Measures checking a generated program with a daemon: first when it's cold,
+	 * then when nothing's changed, then when one file has changed.
+	 */
+	private static Point measureDaemon(Config config, int value, int runs) throws IOException {
+		File dir = Files.createTempDirectory("typhon").toFile();
+		try {
+			List<File> files = config.gen.generate(dir);
+			String[] args = {"check", "."};
+			
+			Point best = new Point();
+			best.value = value;
+			
+			// the first run is a warmup
+			for (int run = 0; run <= runs; run++) {
+				TyphonDaemon daemon = new TyphonDaemon(0);
+				Thread thread = new Thread(daemon::serve);
+				thread.start();
+				
+				try {
+					double cold = request(daemon, dir, args);
+					double warm = request(daemon, dir, args);
+					
+					File touched = files.get(0);
+					touched.setLastModified(touched.lastModified()+2000);
+					double changed = request(daemon, dir, args);
+					
+					if (run > 0) {
+						best.times.merge("cold", cold, Math::min);
+						best.times.merge("warm", warm, Math::min);
+						best.times.merge("changed", changed, Math::min);
+					}
+				} finally {
+					daemon.close();
+					try {
+						thread.join();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+			
+			return best;
+		} finally {
+			delete(dir);
+		}
+	}
+	
+	/**
+	 * Sends a request to a daemon.
+	 * 
+	 * @return The time taken, in milliseconds.
+	 */
+	private static double request(TyphonDaemon daemon, File dir, String[] args) throws IOException {
+		OutputStream nowhere = new OutputStream() {
+			@Override
+			public void write(int b) {}
+		};
+		
+		long start = System.nanoTime();
+		TyphonDaemon.runClient(daemon.getPort(), dir, args, nowhere, nowhere);
+		return (System.nanoTime()-start)/1e6;
+	}
+	
+	/**
+	 * Prints the results for one dimension.
+	 * 
+	 * @return A description of each phase that grew faster than the threshold allows.
+	 */
+	private static List<String> report(PrintStream out, Dimension dimension, List<Point> points, double threshold) {
+		List<String> failures = new ArrayList<>();
+		List<String> names = new ArrayList<>(points.get(0).times.keySet());
+		boolean memory = points.get(0).allocated >= 0;
+		
+		out.println("== "+dimension.name);
+		
+		// the table
+		out.printf("%10s", dimension.name);
+		for (String name : names) {
+			out.printf(" %10s", name+" ms");
+		}
+		if (memory) {
+			out.printf(" %12s %12s", "alloc MB", "retained MB");
+		}
+		out.println();
+		
+		for (Point point : points) {
+			out.printf("%10d", point.value);
+			for (String name : names) {
+				out.printf(" %10.1f", point.times.get(name));
+			}
+			if (memory) {
+				out.printf(" %12.1f %12.1f", point.allocated/1e6, point.retained/1e6);
+			}
+			out.println();
+		}
+		
+		// the fitted exponents
+		out.printf("%10s", "n^x");
+		for (String name : names) {
+			double[] xs = new double[points.size()], ys = new double[points.size()];
+			for (int i = 0; i < points.size(); i++) {
+				xs[i] = points.get(i).value;
+				ys[i] = points.get(i).times.get(name);
+			}
+			
+			Double x = fitExponent(xs, ys, MIN_FIT_TIME);
+			if (x == null) {
+				out.printf(" %10s", "-");
+			} else {
+				out.printf(" %10.2f", x);
+				if (x > threshold) {
+					failures.add(dimension.name+": "+name+" grows as n^"+String.format("%.2f", x));
+				}
+			}
+		}
+		if (memory) {
+			double[] xs = new double[points.size()], allocs = new double[points.size()];
+			for (int i = 0; i < points.size(); i++) {
+				xs[i] = points.get(i).value;
+				allocs[i] = points.get(i).allocated;
+			}
+			
+			Double x = fitExponent(xs, allocs, 0);
+			out.printf(" %12s", x == null ? "-" : String.format("%.2f", x));
+			if (x != null && x > threshold) {
+				failures.add(dimension.name+": allocation grows as n^"+String.format("%.2f", x));
+			}
+		}
+		out.println();
+		out.println();
+		
+		// the plots
+		String plotted = names.get(0);
+		plot(out, dimension, points, plotted+" ms", points.stream().mapToDouble(p->p.times.get(plotted)).toArray());
+		if (memory) {
+			plot(out, dimension, points, "alloc MB", points.stream().mapToDouble(p->p.allocated/1e6).toArray());
+		}
+		
+		return failures;
+	}
+	
+	/**
+	 * Prints a bar chart.
+	 */
+	private static void plot(PrintStream out, Dimension dimension, List<Point> points, String label, double[] amounts) {
+		double max = Arrays.stream(amounts).max().orElse(0);
+		
+		out.println(label+" by "+dimension.name+":");
+		for (int i = 0; i < points.size(); i++) {
+			int width = max == 0 ? 0 : (int) Math.round(amounts[i]/max*PLOT_WIDTH);
+			StringBuilder bar = new StringBuilder();
+			for (int j = 0; j < width; j++) {
+				bar.append('#');
+			}
+			out.printf("%10d |%s %.1f%n", points.get(i).value, bar, amounts[i]);
+		}
+		out.println();
+	}
+	
+	/**
+	 * Fits <tt>y = c * x^e</tt> by least squares on a log-log scale.
+	 * 
+	 * @param xs
+	 * @param ys
+	 * @param min Points where <tt>y</tt> is less than this are too small to measure reliably, and are left out.
+	 * @return The exponent <tt>e</tt>, or null if there weren't enough points to fit.
+	 */
+	private static Double fitExponent(double[] xs, double[] ys, double min) {
+		List<double[]> logs = new ArrayList<>();
+		for (int i = 0; i < xs.length; i++) {
+			if (xs[i] > 0 && ys[i] > 0 && ys[i] >= min) {
+				logs.add(new double[] {Math.log(xs[i]), Math.log(ys[i])});
+			}
+		}
+		
+		if (logs.size() < 2) {
+			return null;
+		}
+		
+		double meanX = logs.stream().mapToDouble(l->l[0]).average().getAsDouble();
+		double meanY = logs.stream().mapToDouble(l->l[1]).average().getAsDouble();
+		double num = 0, den = 0;
+		for (double[] l : logs) {
+			num += (l[0]-meanX)*(l[1]-meanY);
+			den += (l[0]-meanX)*(l[0]-meanX);
+		}
+		
+		return den == 0 ? null : num/den;
+	}
+	
+	/**
+	 * @return The bytes of heap in use.
+	 */
+	private static long getUsedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+	
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,72 @@
+package info.iconmaster.typhon.compiler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+import info.iconmaster.typhon.types.TyphonAnnotChecker;
+import info.iconmaster.typhon.types.TyphonTypeResolver;
+
+/**
+ * Benchmarks <tt>{@link TyphonCompiler}.compile</tt> on calls to an overloaded function, nested <tt>depth</tt> deep.
+ * The time taken should grow linearly with the depth.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedCallBenchmark {
+	@Param({"1", "8", "32"})
+	public int depth;
+	
+	private String source;
+	
+	private Package p;
+	
+	@Setup
+	public void setup() {
+		String expr = "1";
+		for (int i = 0; i < depth; i++) {
+			expr = "g("+expr+")";
+		}
+		source = "int g(int x) {return x;} int g(float x) {return 1;} int g(string x) {return 1;} void f() {int y = "+expr+";}";
+	}
+	
+	/**
+	 * Compiling a package changes it, so make a new one each time.
+	 */
+	@Setup(Level.Invocation)
+	public void setupPackage() {
+		TyphonInput tni = new TyphonInput();
+		p = TyphonModelReader.parseString(tni, source);
+		TyphonLinker.link(p);
+		TyphonTypeResolver.resolve(p);
+		TyphonAnnotChecker.check(p);
+	}
+	
+	@Benchmark
+	public Package compile() {
+		TyphonCompiler.compile(p);
+		return p;
+	}
+}
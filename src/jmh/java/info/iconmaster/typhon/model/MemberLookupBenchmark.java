@@ -0,0 +1,94 @@
+package info.iconmaster.typhon.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.types.TemplateType;
+import info.iconmaster.typhon.types.TypeRef;
+import info.iconmaster.typhon.types.TyphonAnnotChecker;
+import info.iconmaster.typhon.types.TyphonTypeResolver;
+
+/**
+ * Benchmarks <tt>{@link MemberAccess}.getMembers(name, map)</tt> on packages and classes with many members,
+ * and finding the operator handlers of such a class.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberLookupBenchmark {
+	@Param({"100", "1000", "5000"})
+	public int members;
+	
+	private Package p;
+	
+	private TypeRef type;
+	
+	private AnnotationDefinition op;
+	
+	private Map<TemplateType, TypeRef> map = new HashMap<>();
+	
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < members; i++) {
+			sb.append("int f"+i+"; ");
+			sb.append("int g"+i+"() => "+i+" ");
+		}
+		
+		TyphonInput tni = new TyphonInput();
+		p = TyphonModelReader.parseString(tni, sb+" class C {"+sb+"}");
+		TyphonLinker.link(p);
+		TyphonTypeResolver.resolve(p);
+		TyphonAnnotChecker.check(p);
+		
+		type = new TypeRef(p.getType("C"));
+		op = tni.corePackage.LIB_OPS.ANNOT_ADD;
+	}
+	
+	@Benchmark
+	public List<MemberAccess> packageHit() {
+		return p.getMembers("g0", map);
+	}
+	
+	@Benchmark
+	public List<MemberAccess> packageMiss() {
+		return p.getMembers("missing", map);
+	}
+	
+	@Benchmark
+	public List<MemberAccess> classHit() {
+		return type.getMembers("g0", map);
+	}
+	
+	@Benchmark
+	public List<MemberAccess> classMiss() {
+		return type.getMembers("missing", map);
+	}
+	
+	@Benchmark
+	public List<Function> classOperator() {
+		return type.getType().getOperatorHandlers(op);
+	}
+}
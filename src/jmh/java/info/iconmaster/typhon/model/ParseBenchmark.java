@@ -0,0 +1,65 @@
+package info.iconmaster.typhon.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+
+/**
+ * Benchmarks <tt>{@link TyphonModelReader}.parseString</tt> on sources with <tt>functions</tt> functions in them.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	@Param({"10", "100", "1000"})
+	public int functions;
+	
+	private String source;
+	
+	private TyphonInput tni;
+	
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < functions; i++) {
+			sb.append("int f"+i+"(int x, int y) {\n");
+			sb.append("\tint z = x + y * "+i+";\n");
+			sb.append("\tif z > 10 {return z;}\n");
+			sb.append("\treturn f"+i+"(z, y - 1);\n");
+			sb.append("}\n");
+		}
+		source = sb.toString();
+	}
+	
+	/**
+	 * Every parse adds a package to the input, so make a new one each time.
+	 */
+	@Setup(Level.Invocation)
+	public void setupInput() {
+		tni = new TyphonInput();
+	}
+	
+	@Benchmark
+	public Package parseString() {
+		return TyphonModelReader.parseString(tni, source);
+	}
+}
@@ -0,0 +1,78 @@
+package info.iconmaster.typhon.types;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+
+/**
+ * Benchmarks <tt>{@link TypeRef}.canCastTo</tt> on deep class hierarchies.
+ * <p>
+ * The hierarchy is two chains of <tt>depth</tt> classes each, both deriving from the same root class.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CastingBenchmark {
+	@Param({"4", "16", "64"})
+	public int depth;
+	
+	private TypeRef root, leaf, otherLeaf;
+	
+	@Setup
+	public void setup() {
+		TyphonInput tni = new TyphonInput();
+		
+		UserType rootType = new UserType(tni, "root");
+		rootType.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+		
+		root = new TypeRef(rootType);
+		leaf = new TypeRef(makeChain(tni, rootType, "a", depth));
+		otherLeaf = new TypeRef(makeChain(tni, rootType, "b", depth));
+	}
+	
+	/**
+	 * @return The last class in a chain of classes, each deriving from the one before it.
+	 */
+	static UserType makeChain(TyphonInput tni, UserType base, String prefix, int depth) {
+		UserType type = base;
+		for (int i = 0; i < depth; i++) {
+			UserType next = new UserType(tni, prefix+i);
+			next.getParentTypes().add(new TypeRef(type));
+			type = next;
+		}
+		return type;
+	}
+	
+	@Benchmark
+	public boolean canCastToRoot() {
+		return leaf.canCastTo(root);
+	}
+	
+	@Benchmark
+	public boolean canCastToUnrelated() {
+		return leaf.canCastTo(otherLeaf);
+	}
+	
+	@Benchmark
+	public boolean canCastFromRoot() {
+		return root.canCastTo(leaf);
+	}
+}
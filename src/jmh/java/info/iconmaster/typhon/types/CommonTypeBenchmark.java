@@ -0,0 +1,61 @@
+package info.iconmaster.typhon.types;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+
+/**
+ * Benchmarks <tt>{@link TypeRef}.commonType</tt> on class hierarchies.
+ * <p>
+ * The hierarchy is the same as in {@link CastingBenchmark}.
+ * It's kept shallower here, as finding the common type of two sibling classes currently takes time exponential in their depth.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonTypeBenchmark {
+	@Param({"2", "4", "8"})
+	public int depth;
+	
+	private TypeRef root, leaf, otherLeaf;
+	
+	@Setup
+	public void setup() {
+		TyphonInput tni = new TyphonInput();
+		
+		UserType rootType = new UserType(tni, "root");
+		rootType.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+		
+		root = new TypeRef(rootType);
+		leaf = new TypeRef(CastingBenchmark.makeChain(tni, rootType, "a", depth));
+		otherLeaf = new TypeRef(CastingBenchmark.makeChain(tni, rootType, "b", depth));
+	}
+	
+	@Benchmark
+	public TypeRef commonTypeOfSiblings() {
+		return leaf.commonType(otherLeaf);
+	}
+	
+	@Benchmark
+	public TypeRef commonTypeWithRoot() {
+		return leaf.commonType(root);
+	}
+}
@@ -0,0 +1,82 @@
+package info.iconmaster.typhon.types;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TemplateArgument;
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Benchmarks <tt>{@link TypeRef}.canCastTo</tt> on deep hierarchies of templated classes.
+ * <p>
+ * The hierarchy is a chain of <tt>depth</tt> classes, each taking a template and passing it on to the class before it.
+ * The types checked are instantiated with nested templates, like <tt>c<sub>depth</sub>&lt;List&lt;List&lt;int&gt;&gt;&gt;</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateCastingBenchmark {
+	@Param({"4", "16", "64"})
+	public int depth;
+	
+	private TypeRef leaf, root, wrongRoot;
+	
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder("class c0<T> {}");
+		for (int i = 1; i <= depth; i++) {
+			sb.append(" class c").append(i).append("<T> : c").append(i-1).append("<T> {}");
+		}
+		
+		TyphonInput tni = new TyphonInput();
+		Package p = TyphonModelReader.parseString(tni, sb.toString());
+		TyphonLinker.link(p);
+		TyphonTypeResolver.resolve(p);
+		
+		leaf = new TypeRef(p.getType("c"+depth), new TemplateArgument(nestedList(tni, tni.corePackage.TYPE_INT)));
+		root = new TypeRef(p.getType("c0"), new TemplateArgument(nestedList(tni, tni.corePackage.TYPE_INT)));
+		wrongRoot = new TypeRef(p.getType("c0"), new TemplateArgument(nestedList(tni, tni.corePackage.TYPE_STRING)));
+	}
+	
+	/**
+	 * @return <tt>List&lt;List&lt;type&gt;&gt;</tt>.
+	 */
+	private static TypeRef nestedList(TyphonInput tni, Type type) {
+		return new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(type))));
+	}
+	
+	@Benchmark
+	public boolean canCastToRoot() {
+		return leaf.canCastTo(root);
+	}
+	
+	@Benchmark
+	public boolean canCastToWrongRoot() {
+		return leaf.canCastTo(wrongRoot);
+	}
+	
+	@Benchmark
+	public boolean canCastFromRoot() {
+		return root.canCastTo(leaf);
+	}
+}
@@ -0,0 +1,90 @@
+package info.iconmaster.typhon.types;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Benchmarks finding the overrides and virtual bases of methods.
+ * <p>
+ * The hierarchy is a chain of <tt>depth</tt> classes, each overriding all <tt>methods</tt> methods of the root class.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VirtualDispatchBenchmark {
+	@Param({"8", "32"})
+	public int depth;
+	
+	@Param({"10", "100"})
+	public int methods;
+	
+	private Type leaf;
+	
+	private Function virtual, override;
+	
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder("class c0 {");
+		for (int j = 0; j < methods; j++) {
+			sb.append("void m"+j+"() {} ");
+		}
+		sb.append("} ");
+		
+		for (int i = 1; i <= depth; i++) {
+			sb.append("class c"+i+" : c"+(i-1)+" {");
+			for (int j = 0; j < methods; j++) {
+				sb.append("@override void m"+j+"() {} ");
+			}
+			sb.append("} ");
+		}
+		
+		TyphonInput tni = new TyphonInput();
+		Package p = TyphonModelReader.parseString(tni, sb.toString());
+		TyphonLinker.link(p);
+		TyphonTypeResolver.resolve(p);
+		TyphonAnnotChecker.check(p);
+		
+		leaf = p.getType("c"+depth);
+		virtual = p.getType("c0").getTypePackage().getFunctionsWithName("m0").get(0);
+		override = leaf.getTypePackage().getFunctionsWithName("m0").get(0);
+	}
+	
+	@Benchmark
+	public Function virtualOverride() {
+		return virtual.getVirtualOverride(leaf);
+	}
+	
+	@Benchmark
+	public Function virtualBase() {
+		return override.getVirtualBase(leaf);
+	}
+	
+	@Benchmark
+	public Set<Function> allMethods() {
+		return leaf.getAllMethods(false);
+	}
+}
@@ -0,0 +1,104 @@
+package info.iconmaster.typhon.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.compiler.CodeBlock;
+import info.iconmaster.typhon.compiler.Scope;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+import info.iconmaster.typhon.types.TypeRef;
+import info.iconmaster.typhon.types.TyphonTypeResolver;
+import info.iconmaster.typhon.util.LookupUtils.LookupElement;
+import info.iconmaster.typhon.util.LookupUtils.LookupElement.AccessType;
+import info.iconmaster.typhon.util.LookupUtils.LookupPath;
+
+/**
+ * Benchmarks <tt>{@link LookupUtils}.findPaths</tt> with long chains of scopes.
+ * <p>
+ * The innermost scope is <tt>depth</tt> scopes deep. The outermost scope has a local variable,
+ * and the package the scopes are in has a field and a function.
+ * The field's type links back to itself, so it can be used to look up chains of members.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+	@Param({"1", "16", "64"})
+	public int depth;
+	
+	private Scope scope;
+	
+	private List<LookupElement> local, field, function, missing, chain;
+	
+	@Setup
+	public void setup() {
+		TyphonInput tni = new TyphonInput();
+		Package p = TyphonModelReader.parseString(tni, "class node {node next; int value; int f() => 0} node field; int function(int x) => x");
+		TyphonLinker.link(p);
+		TyphonTypeResolver.resolve(p);
+		
+		scope = new Scope(new CodeBlock(tni, p));
+		scope.addVar("local", new TypeRef(tni.corePackage.TYPE_INT), null);
+		for (int i = 1; i < depth; i++) {
+			scope = new Scope(scope.getCodeBlock(), scope);
+			scope.addVar("x"+i, new TypeRef(tni.corePackage.TYPE_INT), null);
+		}
+		
+		local = Arrays.asList(new LookupElement("local", null, null));
+		field = Arrays.asList(new LookupElement("field", null, null));
+		function = Arrays.asList(new LookupElement("function", null, null));
+		missing = Arrays.asList(new LookupElement("missing", null, null));
+		chain = Arrays.asList(new LookupElement("field", null, null), new LookupElement("next", null, AccessType.DOT), new LookupElement("next", null, AccessType.DOT), new LookupElement("next", null, AccessType.DOT), new LookupElement("value", null, AccessType.DOT));
+	}
+	
+	@Benchmark
+	public List<LookupPath> findLocal() {
+		return LookupUtils.findPaths(scope, scope, local);
+	}
+	
+	@Benchmark
+	public List<LookupPath> findField() {
+		return LookupUtils.findPaths(scope, scope, field);
+	}
+	
+	@Benchmark
+	public List<LookupPath> findFunction() {
+		return LookupUtils.findPaths(scope, scope, function);
+	}
+	
+	@Benchmark
+	public List<LookupPath> findMissing() {
+		return LookupUtils.findPaths(scope, scope, missing);
+	}
+	
+	@Benchmark
+	public List<LookupPath> findChain() {
+		return LookupUtils.findPaths(scope, scope, chain);
+	}
+	
+	@Benchmark
+	public LookupPath findFirstLocal() {
+		return LookupUtils.findFirstPath(scope, scope, local, path->true);
+	}
+}
@@ -0,0 +1,122 @@
+package info.iconmaster.typhon.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.antlr.TyphonLexer;
+import info.iconmaster.typhon.antlr.TyphonParser;
+import info.iconmaster.typhon.antlr.TyphonParser.ExprContext;
+import info.iconmaster.typhon.antlr.TyphonParser.FuncCallExprContext;
+import info.iconmaster.typhon.compiler.CodeBlock;
+import info.iconmaster.typhon.compiler.Scope;
+import info.iconmaster.typhon.compiler.Variable;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Argument;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+import info.iconmaster.typhon.types.TypeRef;
+import info.iconmaster.typhon.types.TyphonAnnotChecker;
+import info.iconmaster.typhon.types.TyphonTypeResolver;
+import info.iconmaster.typhon.util.LookupUtils.LookupArgument;
+import info.iconmaster.typhon.util.OverloadResolver.Candidate;
+
+/**
+ * Benchmarks picking one of <tt>overloads</tt> overloads with an <tt>{@link OverloadResolver}</tt>.
+ * Half of the overloads take a different number of arguments, and each one expects different types.
+ * The package and the call are made once, so only resolving the call is timed.
+ * <p>
+ * The arguments are long expressions, but they should only get typed once per call,
+ * so the time taken should grow with the number of overloads, not with the overloads times the size of the arguments.
+ *
+ * @author iconmaster
+ *
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverloadBenchmark {
+	@Param({"10", "50", "200"})
+	public int overloads;
+	
+	private Package p;
+	
+	private TypeRef argType;
+	
+	private List<Argument> callArgs;
+	
+	private List<Function> functions;
+	
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < overloads/2; i++) {
+			sb.append("class c"+i+" {int h() {return 1;}} ");
+			sb.append("int g(c"+i+" x) {return 0;} ");
+			sb.append("int g(c"+i+" x, c"+i+" y, int z) {return 0;} ");
+		}
+		
+		TyphonInput tni = new TyphonInput();
+		p = TyphonModelReader.parseString(tni, sb.toString());
+		TyphonLinker.link(p);
+		TyphonTypeResolver.resolve(p);
+		TyphonAnnotChecker.check(p);
+		
+		argType = new TypeRef(p.getType("c"+(overloads/2-1)));
+		functions = p.getFunctionsWithName("g");
+		
+		String expr = "1";
+		for (int i = 0; i < 16; i++) {
+			expr = "("+expr+"+v.h()*"+i+")";
+		}
+		
+		TyphonParser parser = new TyphonParser(new CommonTokenStream(new TyphonLexer(new ANTLRInputStream("g(v, v, "+expr+")"))));
+		callArgs = TyphonModelReader.readArgs(tni, ((FuncCallExprContext) parser.expr()).tnArgs.tnArgs);
+	}
+	
+	@Benchmark
+	public Function resolve() {
+		// a new code block each time, so argument types aren't remembered from the last call
+		Scope scope = new Scope(new CodeBlock(p.tni, p));
+		scope.addVar("v", argType, null);
+		
+		List<LookupArgument> args = new ArrayList<>();
+		Map<Variable, ExprContext> argMap = new HashMap<>();
+		for (Argument arg : callArgs) {
+			LookupArgument lookupArg = new LookupArgument(scope.addTempVar(TypeRef.var(p.tni), null), arg.getLabel());
+			args.add(lookupArg);
+			argMap.put(lookupArg.var, arg.getRawValue());
+		}
+		
+		OverloadResolver resolver = new OverloadResolver(scope, args, argMap);
+		List<Candidate> candidates = new ArrayList<>();
+		for (Function f : functions) {
+			Candidate c = resolver.getCandidate(f, new HashMap<>());
+			if (c != null) {
+				candidates.add(c);
+			}
+		}
+		
+		return resolver.choose(candidates, null).function;
+	}
+}
@@ -0,0 +1,116 @@
+package info.iconmaster.typhon.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.model.TemplateArgument;
+import info.iconmaster.typhon.model.libs.CorePackage;
+import info.iconmaster.typhon.types.FunctionType;
+import info.iconmaster.typhon.types.TemplateType;
+import info.iconmaster.typhon.types.Type;
+import info.iconmaster.typhon.types.TypeRef;
+
+/**
+ * Benchmarks <tt>{@link TemplateUtils}.replaceTemplates</tt> and <tt>{@link TemplateUtils}.inferTemplatesFromArguments</tt>
+ * on template types nested <tt>depth</tt> deep, such as <tt>List&lt;List&lt;T&gt;&gt;</tt>.
+ * Replacing templates is also measured on the same nesting of a type with no templates in it,
+ * and on a function type taking and returning the nested template type.
+ * Matching template arguments and comparing two equal nested types are measured as well.
+ * 
+ * @author iconmaster
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+	@Param({"1", "4", "16"})
+	public int depth;
+	
+	private TyphonInput tni;
+	
+	private TypeRef param, arg, otherArg, func;
+	
+	private Map<TemplateType, TypeRef> replacements = new HashMap<>(), defaults = new HashMap<>();
+	
+	@Setup
+	public void setup() {
+		tni = new TyphonInput();
+		CorePackage core = tni.corePackage;
+		TemplateType t = new TemplateType("T", core.TYPE_ANY, null);
+		
+		param = makeNested(core, t);
+		arg = makeNested(core, core.TYPE_INT);
+		otherArg = makeNested(core, core.TYPE_INT);
+		
+		FunctionType funcType = new FunctionType(tni);
+		funcType.getArgTypes().add(param);
+		funcType.getRetTypes().add(param);
+		func = new TypeRef(funcType);
+		
+		replacements.put(t, new TypeRef(core.TYPE_INT));
+		defaults.put(t, new TypeRef(core.TYPE_ANY));
+	}
+	
+	/**
+	 * @return The type <tt>List&lt;List&lt;...&lt;inner&gt;...&gt;&gt;</tt>, with <tt>depth</tt> lists.
+	 */
+	private TypeRef makeNested(CorePackage core, Type inner) {
+		TypeRef result = new TypeRef(inner);
+		for (int i = 0; i < depth; i++) {
+			result = new TypeRef(core.TYPE_LIST, new TemplateArgument(result));
+		}
+		return result;
+	}
+	
+	@Benchmark
+	public TypeRef replaceTemplates() {
+		return TemplateUtils.replaceTemplates(param, replacements);
+	}
+	
+	@Benchmark
+	public TypeRef replaceTemplatesInGroundType() {
+		return TemplateUtils.replaceTemplates(arg, replacements);
+	}
+	
+	@Benchmark
+	public TypeRef replaceTemplatesInFunctionType() {
+		return TemplateUtils.replaceTemplates(func, replacements);
+	}
+	
+	@Benchmark
+	public Map<TemplateType, TypeRef> matchAllTemplateArgs() {
+		return TemplateUtils.matchAllTemplateArgs(arg);
+	}
+	
+	@Benchmark
+	public boolean equalNestedTypes() {
+		return arg.equals(otherArg);
+	}
+	
+	@Benchmark
+	public Map<TemplateType, TypeRef> inferTemplatesFromArguments() {
+		List<TypeRef> params = Arrays.asList(param, param);
+		List<TypeRef> args = Arrays.asList(arg, arg);
+		return TemplateUtils.inferTemplatesFromArguments(tni, params, args, defaults);
+	}
+}
@@ -2,23 +2,32 @@ package info.iconmaster.typhon;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import info.iconmaster.typhon.compiler.TyphonCompiler;
 import info.iconmaster.typhon.errors.TyphonError;
-import info.iconmaster.typhon.linker.TyphonLinker;
 import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.ParseCache;
 import info.iconmaster.typhon.model.TyphonModelReader;
+import info.iconmaster.typhon.model.TyphonModelReader.ParsedFile;
 import info.iconmaster.typhon.plugins.PluginLoader;
 import info.iconmaster.typhon.plugins.TyphonPlugin;
-import info.iconmaster.typhon.types.TyphonAnnotChecker;
-import info.iconmaster.typhon.types.TyphonTypeResolver;
 import info.iconmaster.typhon.util.CommandLineHelper;
 import info.iconmaster.typhon.util.CommandLineHelper.Command;
 import info.iconmaster.typhon.util.CommandLineHelper.Result;
 import info.iconmaster.typhon.util.CommandLineHelper.UnknownCommandException;
 import info.iconmaster.typhon.util.CommandLineHelper.UnknownOptionException;
 import info.iconmaster.typhon.util.FileUtils;
+import info.iconmaster.typhon.util.LineIndex;
+import info.iconmaster.typhon.util.SourceInfo;
 
 /**
  * Contains basic constants and the main command line routine.
@@ -39,34 +48,108 @@ public class Typhon {
 	 * @param args
 	 */
 	public static void main(String[] args) {
+		// the client doesn't need any plugins, so don't make it wait for them to load
+		try {
+			Result options = TyphonCommandLine.getCommandLineHelper().parseCommandLine(args);
+			if (options.commands.contains(TyphonCommandLine.COMMAND_CLIENT) && !options.optionalArguments.containsKey(TyphonCommandLine.OPTION_HELP)) {
+				run(args, null, null);
+				return;
+			}
+		} catch (UnknownOptionException | UnknownCommandException e) {
+			// a plugin might know what this argument is
+		}
+		
 		PluginLoader.loadPlugins();
+		run(args, null, null);
+	}
+	
+	/**
+	 * Runs the compiler as if from the command line.
+	 * 
+	 * @param args The command-line arguments.
+	 * @param workingDir The directory relative file names are relative to. If null, this is the current directory, and the daemon and client commands are allowed.
+	 * @param parseCache If not null, the cache to keep parse trees in between runs.
+	 * @return The input that was compiled, or null if nothing was compiled.
+	 */
+	public static TyphonInput run(String[] args, File workingDir, ParseCache parseCache) {
 		CommandLineHelper claHelper = TyphonCommandLine.getCommandLineHelper();
 		
 		try {
-			Result options = TyphonCommandLine.getCommandLineHelper().parseCommandLine(args);
+			Result options = claHelper.parseCommandLine(args);
 			
 			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_HELP)) {
 				claHelper.printUsage(System.out);
-				return;
+				return null;
 			}
 			
 			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_VERSION)) {
 				System.out.println(VERSION);
-				return;
+				return null;
 			}
 			
 			if (options.commands.size() == 0) {
 				System.err.println("error: no commands specified");
 				System.err.println();
 				claHelper.printUsage(System.err);
-				return;
+				return null;
+			}
+			
+			if (options.commands.contains(TyphonCommandLine.COMMAND_DAEMON) || options.commands.contains(TyphonCommandLine.COMMAND_CLIENT)) {
+				Command command = options.commands.contains(TyphonCommandLine.COMMAND_DAEMON) ? TyphonCommandLine.COMMAND_DAEMON : TyphonCommandLine.COMMAND_CLIENT;
+				
+				if (options.commands.size() > 1) {
+					System.err.println("error: command '"+command.longName+"' cannot be combined with other commands");
+					return null;
+				}
+				
+				if (workingDir != null) {
+					System.err.println("error: command '"+command.longName+"' cannot be sent to a daemon");
+					return null;
+				}
+				
+				int port = TyphonDaemon.DEFAULT_PORT;
+				if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_PORT)) {
+					String portArg = options.optionalArguments.get(TyphonCommandLine.OPTION_PORT).get(0);
+					try {
+						port = Integer.parseInt(portArg);
+					} catch (NumberFormatException e) {
+						port = -1;
+					}
+					
+					if (port < 0 || port > 65535) {
+						System.err.println("error: invalid port '"+portArg+"'");
+						return null;
+					}
+				}
+				
+				if (command == TyphonCommandLine.COMMAND_DAEMON) {
+					try {
+						TyphonDaemon daemon = new TyphonDaemon(port);
+						System.out.println("daemon listening on port "+daemon.getPort());
+						daemon.serve();
+					} catch (IOException e) {
+						System.err.println("error: cannot start daemon on port "+port+": "+e.getMessage());
+					}
+				} else {
+					// send everything but the client command itself
+					List<String> forwarded = new ArrayList<>(Arrays.asList(args));
+					forwarded.remove(options.commandsIndex);
+					
+					try {
+						TyphonDaemon.runClient(port, new File(System.getProperty("user.dir")), forwarded.toArray(new String[forwarded.size()]), System.out, System.err);
+					} catch (IOException e) {
+						System.err.println("error: cannot reach daemon on port "+port+": "+e.getMessage());
+					}
+				}
+				
+				return null;
 			}
 			
 			if (options.positionalArguments.size() == 0) {
 				System.err.println("error: no input files specified");
 				System.err.println();
 				claHelper.printUsage(System.err);
-				return;
+				return null;
 			}
 			
 			PluginLoader.runHook(TyphonPlugin.OnCompilationBegun.class, claHelper, options);
@@ -74,22 +157,29 @@ public class Typhon {
 			// build the TyphonInput
 			
 			TyphonInput tni = new TyphonInput();
+			tni.parseCache = parseCache;
+			
+			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_PROFILE) || options.optionalArguments.containsKey(TyphonCommandLine.OPTION_PROFILE_JSON)) {
+				tni.profiler = new TyphonProfiler();
+			}
+			
+			tni.compileReachableOnly = options.optionalArguments.containsKey(TyphonCommandLine.OPTION_REACHABLE);
 			
 			for (String fileName : options.positionalArguments) {
-				File file = new File(fileName);
+				File file = getFile(fileName, workingDir);
 				if (!file.exists()) {
 					System.err.println("error: file or folder '"+fileName+"' does not exist");
-					return;
+					return null;
 				}
 				tni.inputFiles.addAll(FileUtils.getAllFiles(file, FileUtils.FILTER_TYPHON_FILES));
 			}
 			
 			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_LIBS)) {
 				for (String fileName : options.optionalArguments.get(TyphonCommandLine.OPTION_LIBS)) {
-					File file = new File(fileName);
+					File file = getFile(fileName, workingDir);
 					if (!file.exists()) {
 						System.err.println("error: file or folder '"+fileName+"' does not exist");
-						return;
+						return null;
 					}
 					tni.libraryFiles.addAll(FileUtils.getAllFiles(file, FileUtils.FILTER_TYPHON_FILES));
 				}
@@ -97,104 +187,131 @@ public class Typhon {
 			
 			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_PATH)) {
 				for (String fileName : options.optionalArguments.get(TyphonCommandLine.OPTION_PATH)) {
-					tni.rawImportLookupPaths.add(new File(fileName));
+					tni.rawImportLookupPaths.add(getFile(fileName, workingDir));
 				}
 			} else {
-				tni.rawImportLookupPaths.add(new File("."));
+				tni.rawImportLookupPaths.add(workingDir == null ? new File(".") : workingDir);
 			}
 			
-			// parse the input files
-			
-			for (File file : tni.inputFiles) {
-				Package p;
+			int jobs = 1;
+			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_JOBS)) {
+				String jobsArg = options.optionalArguments.get(TyphonCommandLine.OPTION_JOBS).get(0);
 				try {
-					p = TyphonModelReader.parseFile(tni, file);
-					tni.inputPackages.add(p);
-				} catch (IOException e) {
-					System.err.println("error: cannot read input file '"+file.getName()+"': "+e.getMessage());
-					return;
+					jobs = Integer.parseInt(jobsArg);
+				} catch (NumberFormatException e) {
+					jobs = 0;
+				}
+				
+				if (jobs < 1) {
+					System.err.println("error: invalid number of jobs '"+jobsArg+"'");
+					return null;
 				}
 			}
 			
-			// parse the libraries
+			// look up the input files in the cache
 			
-			for (File file : tni.libraryFiles) {
-				Package p;
+			TyphonCache cache = null;
+			List<File> inputFiles = new ArrayList<>(tni.inputFiles);
+			Map<File, List<TyphonError>> cachedErrors = new HashMap<>();
+			Map<Package, List<TyphonError>> errorsByPackage = null;
+			
+			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_CACHE)) {
+				String cacheArg = options.optionalArguments.get(TyphonCommandLine.OPTION_CACHE).get(0);
 				try {
-					p = TyphonModelReader.parseFile(tni, file);
-					p.markAsLibrary();
-					tni.libraryPackages.add(p);
+					cache = new TyphonCache(getFile(cacheArg, workingDir), tni);
 				} catch (IOException e) {
-					System.err.println("error: cannot read library file '"+file.getName()+"': "+e.getMessage());
-					return;
+					System.err.println("error: cannot use cache directory '"+cacheArg+"': "+e.getMessage());
+					return null;
 				}
+				
+				// only checking can get by without the packages, but other commands can still fill the cache
+				// when only reachable code is compiled, what gets compiled in one file depends on the others, so the files can't be cached one by one
+				if (!tni.compileReachableOnly && options.commands.stream().allMatch((c)->c == TyphonCommandLine.COMMAND_CHECK)) {
+					for (File file : inputFiles) {
+						List<TyphonError> errors = cache.load(file);
+						if (errors != null) {
+							cachedErrors.put(file, errors);
+						}
+					}
+					tni.inputFiles.removeAll(cachedErrors.keySet());
+				}
+				
+				errorsByPackage = new IdentityHashMap<>();
 			}
 			
-			// link the packages
-			for (Package p : tni.libraryPackages) {
-				TyphonLinker.link(p);
-			}
-			for (Package p : tni.inputPackages) {
-				TyphonLinker.link(p);
-			}
+			// parse the input files and the libraries
 			
-			// resolve types
-			for (Package p : tni.libraryPackages) {
-				TyphonTypeResolver.resolve(p);
-			}
-			for (Package p : tni.inputPackages) {
-				TyphonTypeResolver.resolve(p);
-			}
+			int errorsBefore = tni.errors.size();
 			
-			// check annots
-			for (Package p : tni.libraryPackages) {
-				TyphonAnnotChecker.check(p);
+			if (!parseFiles(tni, jobs, errorsByPackage)) {
+				return null;
 			}
-			for (Package p : tni.inputPackages) {
-				TyphonAnnotChecker.check(p);
+			
+			// link, resolve, check, and compile the packages
+			
+			TyphonScheduler.run(tni, jobs, errorsByPackage);
+			
+			// fill the cache, and report the errors file by file, so they come out in the same order whether they were cached or not
+			
+			if (cache != null) {
+				tni.errors.subList(errorsBefore, tni.errors.size()).clear();
+				
+				int nextPackage = 0;
+				for (File file : inputFiles) {
+					if (cachedErrors.containsKey(file)) {
+						tni.errors.addAll(cachedErrors.get(file));
+					} else {
+						Package p = tni.inputPackages.get(nextPackage++);
+						if (!tni.compileReachableOnly) {
+							cache.store(file, p, errorsByPackage.get(p));
+						}
+						tni.errors.addAll(errorsByPackage.get(p));
+					}
+				}
+				
+				for (Package p : tni.libraryPackages) {
+					tni.errors.addAll(errorsByPackage.get(p));
+				}
+				
+				System.out.println("cache: "+cache.getHits()+" hits, "+cache.getMisses()+" misses");
 			}
 			
-			// compile
-			for (Package p : tni.libraryPackages) {
-				TyphonCompiler.compile(p);
+			// report how long everything took
+			
+			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_PROFILE)) {
+				tni.profiler.printReport(System.out);
+				System.out.println("lookup cache: "+tni.lookupCache.getHits()+" hits, "+tni.lookupCache.getMisses()+" misses");
+				System.out.println("cast cache: "+tni.castCache.getHits()+" hits, "+tni.castCache.getMisses()+" misses");
 			}
-			for (Package p : tni.inputPackages) {
-				TyphonCompiler.compile(p);
+			
+			if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_PROFILE_JSON)) {
+				String jsonArg = options.optionalArguments.get(TyphonCommandLine.OPTION_PROFILE_JSON).get(0);
+				try {
+					tni.profiler.writeJson(getFile(jsonArg, workingDir));
+				} catch (IOException e) {
+					System.err.println("error: cannot write profile to '"+jsonArg+"': "+e.getMessage());
+				}
 			}
 			
 			// check for errors
 			
 			if (!tni.errors.isEmpty()) {
+				Map<String, LineIndex> indices = new HashMap<>();
+				
 				for (TyphonError error : tni.errors) {
 					System.err.println(error);
 					
-					File file = new File(error.source.file);
-					if (error.source.file != null && file.exists()) {
-						try {
-							Scanner scanner = new Scanner(file);
-							scanner.useDelimiter("[\r\n]");
-							int offset = 0;
-							
-							while (scanner.hasNext()) {
-								String line = scanner.next();
-								offset += line.length() + 1;
-								
-								if (offset > error.source.begin) {
-									System.err.println("\t"+line.replace('\t', ' '));
-									
-									int curPos = offset-error.source.begin;
-									System.err.print('\t');
-									for (int i = 0; i < curPos; i++) {
-										System.err.print(' ');
-									}
-									System.err.println('^');
-									
-									break;
-								}
-							}
-						} catch (IOException e) {
-							// ignore; we don't need location information THAT badly
+					LineIndex lines = getLineIndex(error.source, indices);
+					if (lines != null && error.source.begin >= 0 && error.source.begin <= lines.getLength()) {
+						int line = lines.getLine(error.source.begin);
+						System.err.println("\t"+lines.getLineText(line).replace('\t', ' '));
+						
+						int column = lines.getColumn(error.source.begin);
+						System.err.print('\t');
+						for (int i = 1; i < column; i++) {
+							System.err.print(' ');
 						}
+						System.err.println('^');
 					}
 				}
 			}
@@ -206,12 +323,154 @@ public class Typhon {
 			for (Command c : options.commands) {
 				c.onRun.onRun(tni, claHelper, options);
 			}
+			
+			return tni;
 		} catch (UnknownOptionException | UnknownCommandException e) {
 			System.err.println("error: "+e.getMessage());
 			System.err.println();
 			claHelper.printUsage(System.err);
-			return;
+			return null;
+		}
+	}
+	
+	/**
+	 * Finds the line index of the file some source info refers to.
+	 * Source info made while parsing already knows this; otherwise, the file is read, but only once per file.
+	 * 
+	 * @param source May be null.
+	 * @param indices The line indices of the files read so far, by path.
+	 * @return The line index, or null if the file cannot be read.
+	 */
+	private static LineIndex getLineIndex(SourceInfo source, Map<String, LineIndex> indices) {
+		if (source == null) {
+			return null;
+		}
+		if (source.lines != null) {
+			return source.lines;
+		}
+		if (source.file == null || !new File(source.file).isFile()) {
+			return null;
+		}
+		
+		return indices.computeIfAbsent(source.file, (path)->{
+			try {
+				return LineIndex.read(new File(path));
+			} catch (IOException e) {
+				// ignore; we don't need location information THAT badly
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Finds the file a command-line argument refers to.
+	 * 
+	 * @param fileName
+	 * @param workingDir The directory relative file names are relative to. If null, this is the current directory.
+	 * @return The file.
+	 */
+	public static File getFile(String fileName, File workingDir) {
+		File file = new File(fileName);
+		if (workingDir == null || file.isAbsolute()) {
+			return file;
+		}
+		return new File(workingDir, fileName);
+	}
+	
+	/**
+	 * Parses all the input files and library files of a {@link TyphonInput}.
+	 * Files are lexed and parsed in parallel, but are translated into packages one at a time, in the order they were given.
+	 * 
+	 * @param tni
+	 * @param jobs The maximum number of files to parse at once.
+	 * @return True if all the files could be read. If not, an error message is printed.
+	 */
+	public static boolean parseFiles(TyphonInput tni, int jobs) {
+		return parseFiles(tni, jobs, null);
+	}
+	
+	/**
+	 * Parses all the input files and library files of a {@link TyphonInput}.
+	 * Files are lexed and parsed in parallel, but are translated into packages one at a time, in the order they were given.
+	 * 
+	 * @param tni
+	 * @param jobs The maximum number of files to parse at once.
+	 * @param errorsByPackage If not null, the errors each file caused are also added to this map, under the file's package.
+	 * @return True if all the files could be read. If not, an error message is printed.
+	 */
+	public static boolean parseFiles(TyphonInput tni, int jobs, Map<Package, List<TyphonError>> errorsByPackage) {
+		List<File> files = new ArrayList<>(tni.inputFiles);
+		files.addAll(tni.libraryFiles);
+		
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(jobs, files.size())));
+		List<Future<ParsedFile>> parses = new ArrayList<>();
+		for (File file : files) {
+			parses.add(pool.submit(()->{
+				TyphonProfiler.Timer timer = tni.profiler == null ? null : TyphonProfiler.start();
+				ParsedFile parsed = tni.parseCache == null ? TyphonModelReader.parseTree(file) : tni.parseCache.parse(file);
+				if (timer != null) {
+					tni.profiler.stop(timer, TyphonProfiler.PHASE_PARSE, file.getPath());
+				}
+				return parsed;
+			}));
 		}
+		pool.shutdown();
+		
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				boolean isLibrary = i >= tni.inputFiles.size();
+				
+				ParsedFile parsed;
+				try {
+					parsed = parses.get(i).get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						System.err.println("error: cannot read "+(isLibrary ? "library" : "input")+" file '"+files.get(i).getName()+"': "+e.getCause().getMessage());
+						pool.shutdownNow();
+						return false;
+					} else if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					} else {
+						throw new RuntimeException(e.getCause());
+					}
+				}
+				
+				TyphonProfiler.Timer timer = tni.profiler == null ? null : TyphonProfiler.start();
+				
+				Package p;
+				if (errorsByPackage == null) {
+					p = TyphonModelReader.readFile(tni, parsed);
+				} else {
+					List<TyphonError> errors = new ArrayList<>();
+					tni.errors.divertTo(errors);
+					try {
+						p = TyphonModelReader.readFile(tni, parsed);
+					} finally {
+						tni.errors.stopDiverting();
+					}
+					
+					tni.errors.addAll(errors);
+					errorsByPackage.computeIfAbsent(p, (k)->new ArrayList<>()).addAll(errors);
+				}
+				
+				if (timer != null) {
+					tni.profiler.stop(timer, TyphonProfiler.PHASE_READ, files.get(i).getPath());
+				}
+				
+				if (isLibrary) {
+					p.markAsLibrary();
+					tni.libraryPackages.add(p);
+				} else {
+					tni.inputPackages.add(p);
+				}
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		
+		return true;
 	}
 	
 	public static final Command.OnRun onRunCheck = (tni, claHelper, result) -> {
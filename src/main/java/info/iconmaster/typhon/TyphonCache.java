@@ -0,0 +1,282 @@
+package info.iconmaster.typhon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import info.iconmaster.typhon.errors.CachedError;
+import info.iconmaster.typhon.errors.TyphonError;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.plugins.PluginLoader;
+import info.iconmaster.typhon.util.SourceInfo;
+
+/**
+ * A directory that remembers the results of compiling input files, so that unchanged files don't have to be compiled again.
+ * <p>
+ * Each input file gets its own entry, named after a hash of the file's name and contents,
+ * the compiler version, the loaded plugins, the raw import lookup paths, and the names and contents of all the library files.
+ * An entry also lists the files the input's raw imports could have resolved to, and what they contained;
+ * if any of those changed, the entry is not used. An entry that cannot be read is treated as if it didn't exist.
+ * <p>
+ * Only errors are remembered, not the packages themselves. This is enough for checking for errors, but not for anything else.
+ * Nor is it enough when only reachable code is compiled, since then the errors in one file depend on the entry points in the others.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TyphonCache {
+	/**
+	 * The version of the format of cache entries. Change this whenever the format changes.
+	 */
+	public static final int FORMAT = 1;
+	
+	/**
+	 * The directory the entries are in.
+	 */
+	private File dir;
+	
+	/**
+	 * The hash of everything that every input file depends on.
+	 */
+	private String inputHash;
+	
+	/**
+	 * The hash each input file had when it was looked up.
+	 */
+	private Map<File, String> fileHashes = new HashMap<>();
+	
+	/**
+	 * The number of files whose results were found in the cache.
+	 */
+	private int hits;
+	
+	/**
+	 * The number of files whose results were not found in the cache.
+	 */
+	private int misses;
+	
+	/**
+	 * Opens a cache directory, making it if it doesn't exist.
+	 * 
+	 * @param dir
+	 * @param tni The input to cache the results of. Its library files and raw import lookup paths must already be set.
+	 * @throws IOException If the directory cannot be made, or a library file cannot be read.
+	 */
+	public TyphonCache(File dir, TyphonInput tni) throws IOException {
+		this.dir = dir;
+		Files.createDirectories(dir.toPath());
+		
+		List<String> parts = new ArrayList<>();
+		parts.add(Typhon.VERSION);
+		parts.add(Integer.toString(FORMAT));
+		
+		TreeSet<String> plugins = new TreeSet<>();
+		for (Class<?> plugin : PluginLoader.plugins) {
+			plugins.add(plugin.getName());
+		}
+		parts.addAll(plugins);
+		
+		for (File path : tni.rawImportLookupPaths) {
+			parts.add(path.getPath());
+		}
+		
+		for (File file : tni.libraryFiles) {
+			parts.add(file.getPath());
+			parts.add(hash(file));
+		}
+		
+		inputHash = hash(parts);
+	}
+	
+	/**
+	 * Looks up the results of an earlier compilation of an input file.
+	 * 
+	 * @param file
+	 * @return The errors compiling the file caused, or null if the file needs to be compiled.
+	 */
+	public List<TyphonError> load(File file) {
+		try {
+			String fileHash = hash(file);
+			fileHashes.put(file, fileHash);
+			
+			File entry = getEntry(file, fileHash);
+			if (!entry.exists()) {
+				misses++;
+				return null;
+			}
+			
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+				if (in.readInt() != FORMAT || !in.readUTF().equals(file.getPath())) {
+					misses++;
+					return null;
+				}
+				
+				// make sure nothing this file imported has changed
+				int deps = in.readInt();
+				for (int i = 0; i < deps; i++) {
+					File dep = new File(in.readUTF());
+					if (!in.readUTF().equals(hash(dep))) {
+						misses++;
+						return null;
+					}
+				}
+				
+				List<TyphonError> errors = new ArrayList<>();
+				int n = in.readInt();
+				for (int i = 0; i < n; i++) {
+					SourceInfo source = null;
+					if (in.readBoolean()) {
+						String sourceFile = in.readBoolean() ? in.readUTF() : null;
+						source = new SourceInfo(sourceFile, in.readInt(), in.readInt());
+					}
+					errors.add(new CachedError(source, in.readUTF()));
+				}
+				
+				hits++;
+				return errors;
+			}
+		} catch (IOException e) {
+			// a broken entry is as good as no entry
+			misses++;
+			return null;
+		}
+	}
+	
+	/**
+	 * Remembers the results of compiling an input file.
+	 * Nothing is remembered if the file changed since it was looked up, or if the entry cannot be written.
+	 * 
+	 * @param file
+	 * @param p The package the file was read into.
+	 * @param errors The errors compiling the file caused.
+	 */
+	public void store(File file, Package p, List<TyphonError> errors) {
+		try {
+			String fileHash = hash(file);
+			if (!fileHash.equals(fileHashes.get(file))) {
+				return;
+			}
+			
+			File entry = getEntry(file, fileHash);
+			File temp = File.createTempFile("entry", ".tmp", dir);
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+					out.writeInt(FORMAT);
+					out.writeUTF(file.getPath());
+					
+					List<File> deps = TyphonLinker.getRawImportFiles(p);
+					out.writeInt(deps.size());
+					for (File dep : deps) {
+						out.writeUTF(dep.getPath());
+						out.writeUTF(hash(dep));
+					}
+					
+					out.writeInt(errors.size());
+					for (TyphonError error : errors) {
+						out.writeBoolean(error.source != null);
+						if (error.source != null) {
+							out.writeBoolean(error.source.file != null);
+							if (error.source.file != null) {
+								out.writeUTF(error.source.file);
+							}
+							out.writeInt(error.source.begin);
+							out.writeInt(error.source.end);
+						}
+						out.writeUTF(error.getMessage());
+					}
+				}
+				
+				Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// the cache is only an optimization; the results are still correct without it
+		}
+	}
+	
+	/**
+	 * @return The number of files whose results were found in the cache.
+	 */
+	public int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * @return The number of files whose results were not found in the cache.
+	 */
+	public int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * @param file
+	 * @param fileHash
+	 * @return Where the entry for this file is kept.
+	 */
+	private File getEntry(File file, String fileHash) {
+		List<String> parts = new ArrayList<>();
+		parts.add(inputHash);
+		parts.add(file.getPath());
+		parts.add(fileHash);
+		return new File(dir, hash(parts)+".tnc");
+	}
+	
+	/**
+	 * @param file
+	 * @return The hash of the file's contents, or the empty string if the file doesn't exist.
+	 * @throws IOException If the file exists, but cannot be read.
+	 */
+	private static String hash(File file) throws IOException {
+		if (!file.isFile()) {
+			return "";
+		}
+		return toHex(getDigest().digest(Files.readAllBytes(file.toPath())));
+	}
+	
+	/**
+	 * @param parts
+	 * @return The hash of a list of strings.
+	 */
+	private static String hash(List<String> parts) {
+		MessageDigest digest = getDigest();
+		for (String part : parts) {
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		return toHex(digest.digest());
+	}
+	
+	private static MessageDigest getDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+}
@@ -26,8 +26,16 @@ public class TyphonCommandLine {
 	public static Option OPTION_VERSION;
 	public static Option OPTION_PATH;
 	public static Option OPTION_LIBS;
+	public static Option OPTION_JOBS;
+	public static Option OPTION_PORT;
+	public static Option OPTION_CACHE;
+	public static Option OPTION_PROFILE;
+	public static Option OPTION_PROFILE_JSON;
+	public static Option OPTION_REACHABLE;
 	
 	public static Command COMMAND_CHECK;
+	public static Command COMMAND_DAEMON;
+	public static Command COMMAND_CLIENT;
 	
 	/**
 	 * The command line parser Typhon uses.
@@ -37,16 +45,32 @@ public class TyphonCommandLine {
 		OPTION_VERSION = new Option(new String[] {"version"}, new String[] {"v"}, false, "Prints the version and exits.");
 		OPTION_PATH = new Option(new String[] {"path"}, new String[] {"p"}, true, "Specifies a location where raw file imports look. Defaults to the CWD.");
 		OPTION_LIBS = new Option(new String[] {"include"}, new String[] {"i"}, true, "Specifies a file or directory of Typhon libraries.");
+		OPTION_JOBS = new Option(new String[] {"jobs"}, new String[] {"j"}, true, "Specifies how many threads the compiler may use. Defaults to 1.");
+		OPTION_CACHE = new Option(new String[] {"cache"}, new String[] {}, true, "Specifies a directory to remember compilation results in, so unchanged files can skip compilation. Not used with --reachable.");
+		OPTION_PROFILE = new Option(new String[] {"profile"}, new String[] {}, false, "Prints how long each phase, file, and function took to compile.");
+		OPTION_PROFILE_JSON = new Option(new String[] {"profile-json"}, new String[] {}, true, "Writes how long each phase, file, and function took to compile to a JSON file.");
+		OPTION_REACHABLE = new Option(new String[] {"reachable"}, new String[] {}, false, "Only compiles the code reachable from @main functions, fields, and static initializers.");
+		OPTION_PORT = new Option(new String[] {"port"}, new String[] {}, true, "Specifies the port the daemon listens on. Defaults to "+TyphonDaemon.DEFAULT_PORT+".");
 		
 		COMMAND_CHECK = new Command("check", new String[] {"ch"}, "Checks the provided files for compilation errors.", Typhon.onRunCheck);
+		COMMAND_DAEMON = new Command("daemon", new String[] {}, "Starts a daemon that compiles for the client command, keeping what it can between runs.", null);
+		COMMAND_CLIENT = new Command("client", new String[] {}, "Sends the rest of the command line to a running daemon.", null);
 		
 		List<Object> options = new ArrayList<Object>() {{
 			add(COMMAND_CHECK);
+			add(COMMAND_DAEMON);
+			add(COMMAND_CLIENT);
 			
 			add(OPTION_HELP);
 			add(OPTION_VERSION);
 			add(OPTION_PATH);
 			add(OPTION_LIBS);
+			add(OPTION_JOBS);
+			add(OPTION_CACHE);
+			add(OPTION_PROFILE);
+			add(OPTION_PROFILE_JSON);
+			add(OPTION_REACHABLE);
+			add(OPTION_PORT);
 		}};
 		
 		Map<Class<?>, Object> additionalOptions = PluginLoader.runHook(TyphonPlugin.AddCommandLineOptions.class);
@@ -0,0 +1,488 @@
+package info.iconmaster.typhon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.ParseCache;
+import info.iconmaster.typhon.util.CommandLineHelper.Result;
+import info.iconmaster.typhon.util.CommandLineHelper.UnknownCommandException;
+import info.iconmaster.typhon.util.CommandLineHelper.UnknownOptionException;
+import info.iconmaster.typhon.util.FileUtils;
+
+/**
+ * A long-running compiler process, so that repeated compilations don't have to pay for starting up each time.
+ * <p>
+ * The daemon listens on a local port. The client sends its working directory and its command-line arguments,
+ * and the daemon sends back whatever the compiler printed.
+ * <p>
+ * Any local user can connect to the port, so the daemon only answers clients that can prove they're the same user.
+ * On startup, it writes a random token to a file only its owner can read, and the client has to send that token first. Between requests, the daemon keeps the plugins loaded
+ * and remembers the parse trees of the files it has seen recently. On top of that, if a <tt>check</tt> is asked for again
+ * and none of the files it read have changed, the old output is sent back without compiling anything.
+ * <p>
+ * Requests are handled one at a time, as the compiler's output is captured by replacing <tt>System.out</tt> and <tt>System.err</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TyphonDaemon {
+	/**
+	 * The port the daemon listens on if none is given.
+	 */
+	public static final int DEFAULT_PORT = 7836;
+	
+	/**
+	 * The directory token files go in if none is given.
+	 */
+	public static final File DEFAULT_TOKEN_DIR = new File(System.getProperty("user.home"), ".typhon");
+	
+	/**
+	 * The most <tt>check</tt> results to remember at once.
+	 */
+	public static final int MAX_SNAPSHOTS = 64;
+	
+	/**
+	 * How long a client has to send its request, in milliseconds.
+	 * Requests are handled one at a time, so a client that never finishes would hold up everyone else.
+	 */
+	private static final int REQUEST_TIMEOUT = 10000;
+	
+	/**
+	 * Frame types in the daemon's response.
+	 */
+	private static final int FRAME_OUT = 'o', FRAME_ERR = 'e', FRAME_END = 'x';
+	
+	/**
+	 * Something the compiler printed.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Output {
+		boolean isErr;
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		
+		public Output(boolean isErr) {
+			this.isErr = isErr;
+		}
+	}
+	
+	/**
+	 * The result of an earlier <tt>check</tt>, along with what it depended on.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Snapshot {
+		List<List<Object>> files;
+		List<File> rawImportFiles;
+		List<List<Object>> rawImportStamps;
+		List<Output> output;
+		
+		public Snapshot(List<List<Object>> files, List<File> rawImportFiles, List<Output> output) {
+			this.files = files;
+			this.rawImportFiles = rawImportFiles;
+			this.rawImportStamps = stamp(rawImportFiles);
+			this.output = output;
+		}
+	}
+	
+	/**
+	 * The socket we're listening on.
+	 */
+	private ServerSocket server;
+	
+	/**
+	 * The file holding the token clients have to send.
+	 */
+	private File tokenFile;
+	
+	/**
+	 * The token clients have to send.
+	 */
+	private byte[] token;
+	
+	/**
+	 * The parse trees of the files we've seen recently.
+	 */
+	private ParseCache parseCache = new ParseCache();
+	
+	/**
+	 * The results of recent <tt>check</tt>s, by working directory and arguments. The least recently used comes first.
+	 */
+	private Map<List<String>, Snapshot> snapshots = new LinkedHashMap<List<String>, Snapshot>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, Snapshot> eldest) {
+			return size() > MAX_SNAPSHOTS;
+		}
+	};
+	
+	/**
+	 * The number of requests answered with old output.
+	 */
+	private int hits;
+	
+	/**
+	 * The number of requests that needed compiling.
+	 */
+	private int misses;
+	
+	/**
+	 * Makes a new daemon, with its token file in {@link #DEFAULT_TOKEN_DIR}. Call {@link #serve()} to start answering requests.
+	 * 
+	 * @param port The port to listen on. If 0, any free port is picked.
+	 * @throws IOException If the port cannot be listened on, or the token file cannot be written.
+	 */
+	public TyphonDaemon(int port) throws IOException {
+		this(port, DEFAULT_TOKEN_DIR);
+	}
+	
+	/**
+	 * Makes a new daemon. Call {@link #serve()} to start answering requests.
+	 * 
+	 * @param port The port to listen on. If 0, any free port is picked.
+	 * @param tokenDir The directory to write the token file to. It's made readable only by its owner.
+	 * @throws IOException If the port cannot be listened on, or the token file cannot be written.
+	 */
+	public TyphonDaemon(int port, File tokenDir) throws IOException {
+		server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		
+		byte[] random = new byte[32];
+		new SecureRandom().nextBytes(random);
+		token = FileUtils.hash(random).getBytes(StandardCharsets.UTF_8);
+		
+		tokenFile = getTokenFile(tokenDir, getPort());
+		try {
+			writeOwnerOnly(tokenFile, token);
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return The port this daemon is listening on.
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+	
+	/**
+	 * @return The file holding the token clients have to send.
+	 */
+	public File getTokenFile() {
+		return tokenFile;
+	}
+	
+	/**
+	 * @param tokenDir
+	 * @param port
+	 * @return The token file of the daemon listening on the given port.
+	 */
+	public static File getTokenFile(File tokenDir, int port) {
+		return new File(tokenDir, "daemon-"+port+".token");
+	}
+	
+	/**
+	 * Writes a file that only its owner can read, in a directory that only its owner can read.
+	 * 
+	 * @param file
+	 * @param data
+	 * @throws IOException
+	 */
+	private static void writeOwnerOnly(File file, byte[] data) throws IOException {
+		Path dir = file.getAbsoluteFile().getParentFile().toPath();
+		Path path = file.toPath();
+		Files.createDirectories(dir);
+		Files.deleteIfExists(path);
+		
+		if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} else {
+			Files.createFile(path);
+			File created = path.toFile();
+			created.setReadable(false, false);
+			created.setReadable(true, true);
+			created.setWritable(false, false);
+			created.setWritable(true, true);
+		}
+		
+		Files.write(path, data);
+	}
+	
+	/**
+	 * @return The number of requests answered with old output.
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * @return The number of requests that needed compiling.
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * @return The cache of parse trees this daemon keeps between requests.
+	 */
+	public ParseCache getParseCache() {
+		return parseCache;
+	}
+	
+	/**
+	 * Answers requests until {@link #close()} is called.
+	 */
+	public void serve() {
+		while (!server.isClosed()) {
+			try (Socket socket = server.accept()) {
+				socket.setSoTimeout(REQUEST_TIMEOUT);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				
+				// hang up on clients without the token
+				if (!MessageDigest.isEqual(token, in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+					continue;
+				}
+				
+				File workingDir = new File(in.readUTF());
+				String[] args = new String[in.readInt()];
+				for (int i = 0; i < args.length; i++) {
+					args[i] = in.readUTF();
+				}
+				
+				for (Output output : respond(workingDir, args)) {
+					out.writeByte(output.isErr ? FRAME_ERR : FRAME_OUT);
+					out.writeInt(output.data.size());
+					output.data.writeTo(out);
+				}
+				out.writeByte(FRAME_END);
+				out.flush();
+			} catch (IOException e) {
+				// either we've been closed, or the client went away; either way, move on
+			}
+		}
+	}
+	
+	/**
+	 * Stops listening for requests, and deletes the token file.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		server.close();
+		Files.deleteIfExists(tokenFile.toPath());
+	}
+	
+	/**
+	 * Runs the compiler on behalf of a client.
+	 * 
+	 * @param workingDir The client's working directory.
+	 * @param args The client's command-line arguments.
+	 * @return Everything the compiler printed, in order.
+	 */
+	private synchronized List<Output> respond(File workingDir, String[] args) {
+		List<String> key = new ArrayList<>();
+		key.add(workingDir.getAbsolutePath());
+		key.addAll(Arrays.asList(args));
+		
+		// see if this is a check we've done before
+		List<List<Object>> files = getCheckedFiles(workingDir, args);
+		Snapshot snapshot = snapshots.remove(key);
+		if (files != null && snapshot != null && files.equals(snapshot.files) && stamp(snapshot.rawImportFiles).equals(snapshot.rawImportStamps)) {
+			hits++;
+			snapshots.put(key, snapshot);
+			return snapshot.output;
+		}
+		misses++;
+		
+		// compile, capturing the output
+		List<Output> output = new ArrayList<>();
+		PrintStream oldOut = System.out, oldErr = System.err;
+		System.setOut(new PrintStream(capture(output, false), true));
+		System.setErr(new PrintStream(capture(output, true), true));
+		
+		try {
+			TyphonInput tni = Typhon.run(args, workingDir, parseCache);
+			
+			if (files != null && tni != null) {
+				snapshots.put(key, new Snapshot(files, getRawImportFiles(tni), output));
+			}
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		} finally {
+			System.out.flush();
+			System.err.flush();
+			System.setOut(oldOut);
+			System.setErr(oldErr);
+		}
+		
+		return output;
+	}
+	
+	/**
+	 * If the arguments ask for nothing but a <tt>check</tt>, finds the files the check will read.
+	 * 
+	 * @param workingDir
+	 * @param args
+	 * @return The files, as given by {@link #stamp(File)}, or null if the arguments ask for something else.
+	 */
+	private static List<List<Object>> getCheckedFiles(File workingDir, String[] args) {
+		Result options;
+		try {
+			options = TyphonCommandLine.getCommandLineHelper().parseCommandLine(args);
+		} catch (UnknownOptionException | UnknownCommandException e) {
+			return null;
+		}
+		
+		if (options.commands.size() != 1 || options.commands.get(0) != TyphonCommandLine.COMMAND_CHECK || options.optionalArguments.containsKey(TyphonCommandLine.OPTION_HELP) || options.optionalArguments.containsKey(TyphonCommandLine.OPTION_VERSION)) {
+			return null;
+		}
+		
+		List<String> fileNames = new ArrayList<>(options.positionalArguments);
+		if (options.optionalArguments.containsKey(TyphonCommandLine.OPTION_LIBS)) {
+			fileNames.addAll(options.optionalArguments.get(TyphonCommandLine.OPTION_LIBS));
+		}
+		
+		List<File> files = new ArrayList<>();
+		for (String fileName : fileNames) {
+			File file = Typhon.getFile(fileName, workingDir);
+			if (!file.exists()) {
+				return null;
+			}
+			files.addAll(FileUtils.getAllFiles(file, FileUtils.FILTER_TYPHON_FILES));
+		}
+		
+		return stamp(files);
+	}
+	
+	/**
+	 * Finds every file the raw imports of an input could have resolved to, whether or not it exists.
+	 * 
+	 * @param tni
+	 * @return The files.
+	 */
+	private static List<File> getRawImportFiles(TyphonInput tni) {
+		List<File> result = new ArrayList<>();
+		for (Package p : tni.corePackage.getCoreSubpackages()) {
+			result.addAll(TyphonLinker.getRawImportFiles(p));
+		}
+		return result;
+	}
+	
+	/**
+	 * The contents are hashed, as a file can be changed without changing its size or modification time.
+	 * 
+	 * @param file
+	 * @return Something that changes whenever the file is changed, created, or deleted.
+	 */
+	private static List<Object> stamp(File file) {
+		return Arrays.asList(file.getPath(), file.exists(), file.length(), FileUtils.hash(file));
+	}
+	
+	private static List<List<Object>> stamp(List<File> files) {
+		List<List<Object>> result = new ArrayList<>();
+		for (File file : files) {
+			result.add(stamp(file));
+		}
+		return result;
+	}
+	
+	/**
+	 * @param output The list to add what's printed to.
+	 * @param isErr True if this is standard error, false if standard output.
+	 * @return A stream that adds what's printed to <tt>output</tt>.
+	 */
+	private static OutputStream capture(List<Output> output, boolean isErr) {
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+				write(new byte[] {(byte) b}, 0, 1);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) {
+				if (output.isEmpty() || output.get(output.size()-1).isErr != isErr) {
+					output.add(new Output(isErr));
+				}
+				output.get(output.size()-1).data.write(b, off, len);
+			}
+		};
+	}
+	
+	/**
+	 * Sends a request to a daemon with its token file in {@link #DEFAULT_TOKEN_DIR}, and prints what it sends back.
+	 * 
+	 * @param port The port the daemon is listening on.
+	 * @param workingDir The directory relative file names are relative to.
+	 * @param args The command-line arguments to send.
+	 * @param out Where to print the compiler's standard output.
+	 * @param err Where to print the compiler's standard error.
+	 * @throws IOException If the daemon cannot be reached.
+	 */
+	public static void runClient(int port, File workingDir, String[] args, OutputStream out, OutputStream err) throws IOException {
+		runClient(port, getTokenFile(DEFAULT_TOKEN_DIR, port), workingDir, args, out, err);
+	}
+	
+	/**
+	 * Sends a request to a daemon, and prints what it sends back.
+	 * 
+	 * @param port The port the daemon is listening on.
+	 * @param tokenFile The daemon's token file.
+	 * @param workingDir The directory relative file names are relative to.
+	 * @param args The command-line arguments to send.
+	 * @param out Where to print the compiler's standard output.
+	 * @param err Where to print the compiler's standard error.
+	 * @throws IOException If the daemon cannot be reached, or the token file cannot be read.
+	 */
+	public static void runClient(int port, File tokenFile, File workingDir, String[] args, OutputStream out, OutputStream err) throws IOException {
+		String token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8);
+		
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			request.writeUTF(token);
+			request.writeUTF(workingDir.getAbsolutePath());
+			request.writeInt(args.length);
+			for (String arg : args) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+			
+			DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			int frame;
+			while ((frame = response.readByte()) != FRAME_END) {
+				byte[] data = new byte[response.readInt()];
+				response.readFully(data);
+				(frame == FRAME_ERR ? err : out).write(data);
+			}
+			
+			out.flush();
+			err.flush();
+		}
+	}
+}
@@ -3,12 +3,17 @@ package info.iconmaster.typhon;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import info.iconmaster.typhon.errors.TyphonError;
+import info.iconmaster.typhon.errors.ErrorList;
+import info.iconmaster.typhon.model.LookupCache;
 import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.ParseCache;
 import info.iconmaster.typhon.model.libs.CorePackage;
 import info.iconmaster.typhon.plugins.PluginLoader;
 import info.iconmaster.typhon.plugins.TyphonPlugin;
+import info.iconmaster.typhon.types.CastCache;
+import info.iconmaster.typhon.types.TypeRefTable;
 
 /**
  * This contains general data about the compilation currently in progress.
@@ -32,14 +37,15 @@ public class TyphonInput {
 	
 	/**
 	 * The core package. This package is the parent of all generated packages.
+	 * It's a copy of the shared core package, so the built-in types are the same for every input.
 	 */
-	public CorePackage corePackage = new CorePackage(this);
+	public CorePackage corePackage;
 	
 	/**
 	 * A list of errors the compiler has reported.
 	 * If this list isn't empty, the compilation was not successful.
 	 */
-	public List<TyphonError> errors = new ArrayList<>();
+	public ErrorList errors = new ErrorList();
 	
 	/**
 	 * A list of libraries Typhon was given as input.
@@ -58,7 +64,92 @@ public class TyphonInput {
 	 */
 	public List<File> rawImportLookupPaths = new ArrayList<>();
 	
+	/**
+	 * If not null, this holds the parse trees of files parsed by earlier compilations.
+	 * Files that haven't changed since then won't be parsed again.
+	 */
+	public ParseCache parseCache;
+	
+	/**
+	 * This remembers the results of looking up names in packages.
+	 */
+	public LookupCache lookupCache = new LookupCache();
+	
+	/**
+	 * This remembers which types can be cast to which.
+	 */
+	public CastCache castCache = new CastCache();
+	
+	/**
+	 * The interned type references belonging to this input.
+	 */
+	public TypeRefTable typeRefs = new TypeRefTable(this);
+	
+	/**
+	 * The next ID to give out to a type belonging to this input.
+	 */
+	private AtomicInteger nextTypeId = new AtomicInteger();
+	
+	/**
+	 * If not null, this measures how long each part of compilation takes.
+	 */
+	public TyphonProfiler profiler;
+	
+	/**
+	 * If true, only code reachable from the entry points of the program is compiled.
+	 * See <tt>{@link info.iconmaster.typhon.compiler.TyphonCompiler}.compileReachable</tt> for details.
+	 */
+	public boolean compileReachableOnly;
+	
+	/**
+	 * True if this input only exists to own the shared core package, so the built-in types belong to it.
+	 */
+	public final boolean ownsSharedCore;
+	
+	/**
+	 * The most results the shared core package's caches and interned type reference table hold. They're used by every input for as long as the program runs,
+	 * so they're emptied when they get this big.
+	 */
+	public static final int SHARED_CACHE_SIZE = 1 << 16;
+	
+	/**
+	 * The core package every input copies. It's built the first time it's needed, and is frozen after that.
+	 */
+	private static CorePackage sharedCore;
+	
+	/**
+	 * @return The core package every input copies.
+	 */
+	private static synchronized CorePackage getSharedCore() {
+		if (sharedCore == null) {
+			sharedCore = new TyphonInput(true).corePackage;
+			sharedCore.freeze();
+		}
+		
+		return sharedCore;
+	}
+	
+	/**
+	 * @return A new type ID, unique among the types of this input. See {@link info.iconmaster.typhon.types.Type#getTypeId}.
+	 */
+	public int newTypeId() {
+		return nextTypeId.getAndIncrement();
+	}
+	
 	public TyphonInput() {
+		ownsSharedCore = false;
+		corePackage = new CorePackage(this, getSharedCore());
 		PluginLoader.runHook(TyphonPlugin.OnNewTyphonInput.class, this);
 	}
+	
+	/**
+	 * Creates the input that owns the shared core package.
+	 * Plugins are not notified about this input.
+	 */
+	private TyphonInput(boolean sharedCore) {
+		ownsSharedCore = sharedCore;
+		castCache = new CastCache(SHARED_CACHE_SIZE);
+		typeRefs = new TypeRefTable(this, SHARED_CACHE_SIZE);
+		corePackage = new CorePackage(this);
+	}
 }
@@ -0,0 +1,290 @@
+package info.iconmaster.typhon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.util.SourceInfo;
+
+/**
+ * This class measures how long each part of compilation takes. It is enabled by the <tt>--profile</tt> option.
+ * <p>
+ * Every measurement records wall time, CPU time, and the number of bytes allocated by the thread that did the work.
+ * If the JVM can't measure CPU time or allocation, they are recorded as -1.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TyphonProfiler {
+	public static final String PHASE_PARSE = "parse";
+	public static final String PHASE_READ = "read";
+	public static final String PHASE_LINK = "link";
+	public static final String PHASE_RESOLVE = "resolve";
+	public static final String PHASE_CHECK = "check";
+	public static final String PHASE_COMPILE = "compile";
+	
+	/**
+	 * How many of the slowest files and functions are listed in the report.
+	 */
+	public static final int TOP = 10;
+	
+	/**
+	 * The amount of time and memory one piece of work took.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	public static class Measurement {
+		/**
+		 * The phase of compilation this work was part of.
+		 */
+		public String phase;
+		
+		/**
+		 * The file or function that was worked on.
+		 */
+		public String name;
+		
+		/**
+		 * Where the function that was worked on is. Null for files.
+		 */
+		public SourceInfo source;
+		
+		public long wallTime, cpuTime, allocatedBytes;
+		
+		public Measurement(String phase, String name, SourceInfo source) {
+			this.phase = phase;
+			this.name = name;
+			this.source = source;
+		}
+	}
+	
+	/**
+	 * A measurement that has been started, but not stopped.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	public static class Timer {
+		long wallTime = System.nanoTime(), cpuTime = getCpuTime(), allocatedBytes = getAllocatedBytes();
+	}
+	
+	/**
+	 * The measurements of each phase on each file.
+	 */
+	private List<Measurement> files = new ArrayList<>();
+	
+	/**
+	 * The measurements of compiling each function.
+	 */
+	private List<Measurement> functions = new ArrayList<>();
+	
+	/**
+	 * When this profiler was made.
+	 */
+	private long startTime = System.nanoTime();
+	
+	/**
+	 * Starts measuring some work. The work must be done on the current thread.
+	 * 
+	 * @return The timer to give to {@link #stop(Timer, String, String)} once the work is done.
+	 */
+	public static Timer start() {
+		return new Timer();
+	}
+	
+	/**
+	 * Stops measuring the work a phase did on a file.
+	 * 
+	 * @param timer
+	 * @param phase
+	 * @param file
+	 */
+	public void stop(Timer timer, String phase, String file) {
+		Measurement m = measure(timer, new Measurement(phase, file, null));
+		synchronized (this) {
+			files.add(m);
+		}
+	}
+	
+	/**
+	 * Stops measuring the compilation of a function.
+	 * 
+	 * @param timer
+	 * @param f
+	 */
+	public void stop(Timer timer, Function f) {
+		Measurement m = measure(timer, new Measurement(PHASE_COMPILE, f.prettyPrint(), f.source));
+		synchronized (this) {
+			functions.add(m);
+		}
+	}
+	
+	private static Measurement measure(Timer timer, Measurement m) {
+		m.wallTime = System.nanoTime() - timer.wallTime;
+		m.cpuTime = timer.cpuTime < 0 ? -1 : getCpuTime() - timer.cpuTime;
+		m.allocatedBytes = timer.allocatedBytes < 0 ? -1 : getAllocatedBytes() - timer.allocatedBytes;
+		return m;
+	}
+	
+	/**
+	 * @return The total time, CPU time, and allocation of each phase, in the order they first ran.
+	 */
+	public synchronized List<Measurement> getPhases() {
+		Map<String, Measurement> phases = new LinkedHashMap<>();
+		for (Measurement m : files) {
+			Measurement total = phases.computeIfAbsent(m.phase, (k)->new Measurement(k, k, null));
+			total.wallTime += m.wallTime;
+			total.cpuTime = total.cpuTime < 0 || m.cpuTime < 0 ? -1 : total.cpuTime + m.cpuTime;
+			total.allocatedBytes = total.allocatedBytes < 0 || m.allocatedBytes < 0 ? -1 : total.allocatedBytes + m.allocatedBytes;
+		}
+		return new ArrayList<>(phases.values());
+	}
+	
+	/**
+	 * @return The measurements of each phase on each file, slowest first.
+	 */
+	public synchronized List<Measurement> getFiles() {
+		return sorted(files);
+	}
+	
+	/**
+	 * @return The measurements of compiling each function, slowest first.
+	 */
+	public synchronized List<Measurement> getFunctions() {
+		return sorted(functions);
+	}
+	
+	private static List<Measurement> sorted(List<Measurement> measurements) {
+		List<Measurement> result = new ArrayList<>(measurements);
+		Collections.sort(result, Comparator.comparingLong((Measurement m)->m.wallTime).reversed());
+		return result;
+	}
+	
+	/**
+	 * Prints a human-readable report.
+	 * 
+	 * @param out
+	 */
+	public void printReport(PrintStream out) {
+		out.printf("profile: %.1f ms total%n", (System.nanoTime() - startTime) / 1e6);
+		
+		out.println("phases:");
+		List<Measurement> phases = getPhases();
+		Collections.sort(phases, Comparator.comparingLong((Measurement m)->m.wallTime).reversed());
+		printTable(out, phases, phases.size(), false);
+		
+		out.println("slowest files:");
+		printTable(out, getFiles(), TOP, true);
+		
+		out.println("slowest functions:");
+		printTable(out, getFunctions(), TOP, true);
+	}
+	
+	private static void printTable(PrintStream out, List<Measurement> measurements, int n, boolean showPhase) {
+		out.printf("\t%10s %10s %10s  %s%n", "wall ms", "cpu ms", "alloc KB", "name");
+		for (Measurement m : measurements.subList(0, Math.min(n, measurements.size()))) {
+			String name = m.name;
+			if (showPhase) {
+				name = m.phase+" "+name;
+			}
+			if (m.source != null) {
+				name += " ("+m.source+")";
+			}
+			
+			out.printf("\t%10.2f %10s %10s  %s%n", m.wallTime / 1e6, m.cpuTime < 0 ? "?" : String.format("%.2f", m.cpuTime / 1e6), m.allocatedBytes < 0 ? "?" : Long.toString(m.allocatedBytes / 1024), name);
+		}
+	}
+	
+	/**
+	 * Writes every measurement as JSON.
+	 * 
+	 * @param file
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void writeJson(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("{");
+			out.printf("\t\"totalTime\": %d,%n", System.nanoTime() - startTime);
+			writeJson(out, "phases", getPhases());
+			out.println(",");
+			writeJson(out, "files", getFiles());
+			out.println(",");
+			writeJson(out, "functions", getFunctions());
+			out.println();
+			out.println("}");
+		}
+	}
+	
+	private static void writeJson(PrintWriter out, String key, List<Measurement> measurements) {
+		out.print("\t\""+key+"\": [");
+		boolean first = true;
+		for (Measurement m : measurements) {
+			out.println(first ? "" : ",");
+			first = false;
+			
+			out.print("\t\t{\"phase\": "+quote(m.phase)+", \"name\": "+quote(m.name));
+			if (m.source != null) {
+				out.print(", \"file\": "+quote(m.source.file)+", \"begin\": "+m.source.begin+", \"end\": "+m.source.end);
+			}
+			out.print(", \"wallTime\": "+m.wallTime+", \"cpuTime\": "+m.cpuTime+", \"allocatedBytes\": "+m.allocatedBytes+"}");
+		}
+		out.print(first ? "]" : "\n\t]");
+	}
+	
+	/**
+	 * @param s
+	 * @return The string as a JSON string literal.
+	 */
+	private static String quote(String s) {
+		if (s == null) {
+			return "null";
+		}
+		
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : s.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\');
+				sb.append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+	
+	/**
+	 * @return The CPU time the current thread has used, in nanoseconds, or -1 if it cannot be measured.
+	 */
+	private static long getCpuTime() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		return bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : -1;
+	}
+	
+	/**
+	 * @return The number of bytes the current thread has allocated, or -1 if it cannot be measured.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,388 @@
+package info.iconmaster.typhon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import info.iconmaster.typhon.compiler.TyphonCompiler;
+import info.iconmaster.typhon.errors.TyphonError;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Import;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.libs.CorePackage;
+import info.iconmaster.typhon.types.TyphonAnnotChecker;
+import info.iconmaster.typhon.types.TyphonTypeResolver;
+import info.iconmaster.typhon.util.SourceInfo;
+
+/**
+ * This class runs the phases of compilation over the library and input packages of a {@link TyphonInput}.
+ * <p>
+ * Every package gets linked first, as that's what tells us which packages import which.
+ * After that, a package moves on to its next phase as soon as it and every package it imports are done with the current one,
+ * so packages that don't depend on each other can be worked on at the same time.
+ * <p>
+ * No matter how the work gets split up, errors are reported in the same order as if
+ * each phase ran over every package, one after the other.
+ * <p>
+ * If {@link TyphonInput#compileReachableOnly} is set, compiling isn't done package by package.
+ * Instead, once every package is checked, the reachable code in all of them is compiled at once.
+ *
+ * @author iconmaster
+ *
+ */
+public class TyphonScheduler {
+	private TyphonScheduler() {}
+	
+	/**
+	 * The phases that run after linking, in order.
+	 */
+	private static final List<Consumer<Package>> PHASES = Arrays.asList(TyphonTypeResolver::resolve, TyphonAnnotChecker::check, TyphonCompiler::compile);
+	
+	/**
+	 * The names of the phases that run after linking, as reported by {@link TyphonProfiler}.
+	 */
+	private static final List<String> PHASE_NAMES = Arrays.asList(TyphonProfiler.PHASE_RESOLVE, TyphonProfiler.PHASE_CHECK, TyphonProfiler.PHASE_COMPILE);
+	
+	/**
+	 * Links, resolves, checks, and compiles all the library and input packages of an input.
+	 *
+	 * @param tni
+	 * @param jobs The maximum number of packages to work on at once.
+	 */
+	public static void run(TyphonInput tni, int jobs) {
+		run(tni, jobs, null);
+	}
+	
+	/**
+	 * Links, resolves, checks, and compiles all the library and input packages of an input.
+	 *
+	 * @param tni
+	 * @param jobs The maximum number of packages to work on at once.
+	 * @param errorsByPackage If not null, the errors each package caused are also added to this map.
+	 */
+	public static void run(TyphonInput tni, int jobs, Map<Package, List<TyphonError>> errorsByPackage) {
+		List<Package> packages = new ArrayList<>(tni.libraryPackages);
+		packages.addAll(tni.inputPackages);
+		
+		// the errors for each phase and package
+		List<List<List<TyphonError>>> errors = new ArrayList<>();
+		
+		// link the packages
+		List<List<TyphonError>> linkErrors = new ArrayList<>();
+		errors.add(linkErrors);
+		for (Package p : packages) {
+			List<TyphonError> buffer = new ArrayList<>();
+			linkErrors.add(buffer);
+			runPhase(tni, TyphonProfiler.PHASE_LINK, TyphonLinker::link, p, buffer);
+		}
+		
+		// compiling only what's reachable can't be split up by package
+		int phases = tni.compileReachableOnly ? PHASES.size()-1 : PHASES.size();
+		
+		if (jobs <= 1) {
+			// just run everything in order
+			for (int phase = 0; phase < phases; phase++) {
+				List<List<TyphonError>> phaseErrors = new ArrayList<>();
+				errors.add(phaseErrors);
+				for (Package p : packages) {
+					List<TyphonError> buffer = new ArrayList<>();
+					phaseErrors.add(buffer);
+					runPhase(tni, PHASE_NAMES.get(phase), PHASES.get(phase), p, buffer);
+				}
+			}
+		} else {
+			runInParallel(tni, jobs, packages, errors, phases);
+		}
+		
+		if (tni.compileReachableOnly) {
+			errors.add(compileReachable(tni, packages));
+		}
+		
+		// report the errors in order
+		for (List<List<TyphonError>> phaseErrors : errors) {
+			for (List<TyphonError> packageErrors : phaseErrors) {
+				tni.errors.addAll(packageErrors);
+			}
+		}
+		
+		if (errorsByPackage != null) {
+			for (int i = 0; i < packages.size(); i++) {
+				List<TyphonError> packageErrors = errorsByPackage.computeIfAbsent(packages.get(i), (p)->new ArrayList<>());
+				for (List<List<TyphonError>> phaseErrors : errors) {
+					packageErrors.addAll(phaseErrors.get(i));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Runs a phase over a package, diverting the errors it reports.
+	 * 
+	 * @param tni
+	 * @param name The name of the phase.
+	 * @param phase
+	 * @param p
+	 * @param buffer Where the errors go.
+	 */
+	private static void runPhase(TyphonInput tni, String name, Consumer<Package> phase, Package p, List<TyphonError> buffer) {
+		TyphonProfiler.Timer timer = tni.profiler == null ? null : TyphonProfiler.start();
+		
+		tni.errors.divertTo(buffer);
+		try {
+			phase.accept(p);
+		} finally {
+			tni.errors.stopDiverting();
+		}
+		
+		if (timer != null) {
+			tni.profiler.stop(timer, name, p.source == null ? SourceInfo.UNKNOWN_FILE : p.source.file);
+		}
+	}
+	
+	/**
+	 * Compiles the reachable code in all the packages.
+	 * 
+	 * @param tni
+	 * @param packages
+	 * @return The errors, by the package whose file they're in. Any errors not in one of the packages come last.
+	 */
+	private static List<List<TyphonError>> compileReachable(TyphonInput tni, List<Package> packages) {
+		TyphonProfiler.Timer timer = tni.profiler == null ? null : TyphonProfiler.start();
+		
+		List<TyphonError> buffer = new ArrayList<>();
+		tni.errors.divertTo(buffer);
+		try {
+			TyphonCompiler.compileReachable(tni, packages);
+		} finally {
+			tni.errors.stopDiverting();
+		}
+		
+		if (timer != null) {
+			tni.profiler.stop(timer, TyphonProfiler.PHASE_COMPILE, SourceInfo.UNKNOWN_FILE);
+		}
+		
+		Map<String, Integer> indices = new HashMap<>();
+		List<List<TyphonError>> result = new ArrayList<>();
+		for (int i = 0; i < packages.size(); i++) {
+			Package p = packages.get(i);
+			if (p.source != null) {
+				indices.putIfAbsent(p.source.file, i);
+			}
+			result.add(new ArrayList<>());
+		}
+		
+		List<TyphonError> others = new ArrayList<>();
+		for (TyphonError error : buffer) {
+			Integer i = error.source == null ? null : indices.get(error.source.file);
+			(i == null ? others : result.get(i)).add(error);
+		}
+		result.add(others);
+		
+		return result;
+	}
+	
+	/**
+	 * Runs the phases after linking, working on packages at the same time where the imports allow.
+	 * 
+	 * @param tni
+	 * @param jobs
+	 * @param packages
+	 * @param errors The list to add each phase's errors to, by package.
+	 * @param phases How many of the phases to run.
+	 */
+	private static void runInParallel(TyphonInput tni, int jobs, List<Package> packages, List<List<List<TyphonError>>> errors, int phases) {
+		// find out what packages must be done before what
+		List<Set<Integer>> deps = getDependencies(packages);
+		List<List<Integer>> groups = getGroups(deps);
+		
+		List<Set<Integer>> groupDeps = new ArrayList<>();
+		int[] groupOf = new int[packages.size()];
+		for (int g = 0; g < groups.size(); g++) {
+			for (int i : groups.get(g)) {
+				groupOf[i] = g;
+			}
+		}
+		for (List<Integer> group : groups) {
+			Set<Integer> these = new TreeSet<>();
+			for (int i : group) {
+				for (int dep : deps.get(i)) {
+					if (groupOf[dep] != groupOf[i]) {
+						these.add(groupOf[dep]);
+					}
+				}
+			}
+			groupDeps.add(these);
+		}
+		
+		// schedule the phases
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		CompletableFuture<?>[] lastPhase = new CompletableFuture<?>[groups.size()];
+		
+		ForkJoinPool pool = new ForkJoinPool(jobs);
+		for (int phase = 0; phase < phases; phase++) {
+			String name = PHASE_NAMES.get(phase);
+			Consumer<Package> action = PHASES.get(phase);
+			
+			List<List<TyphonError>> phaseErrors = new ArrayList<>();
+			for (int i = 0; i < packages.size(); i++) {
+				phaseErrors.add(new ArrayList<>());
+			}
+			errors.add(phaseErrors);
+			
+			CompletableFuture<?>[] thisPhase = new CompletableFuture<?>[groups.size()];
+			for (int g = 0; g < groups.size(); g++) {
+				List<CompletableFuture<?>> before = new ArrayList<>();
+				if (lastPhase[g] != null) {
+					before.add(lastPhase[g]);
+				}
+				for (int dep : groupDeps.get(g)) {
+					before.add(thisPhase[dep]);
+				}
+				
+				List<Integer> group = groups.get(g);
+				CompletableFuture<Void> task = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[before.size()])).thenRunAsync(()->{
+					for (int i : group) {
+						runPhase(tni, name, action, packages.get(i), phaseErrors.get(i));
+					}
+				}, pool);
+				
+				thisPhase[g] = task;
+				tasks.add(task);
+			}
+			
+			lastPhase = thisPhase;
+		}
+		
+		// wait for everything to finish
+		RuntimeException failure = null;
+		for (CompletableFuture<Void> task : tasks) {
+			try {
+				task.join();
+			} catch (CompletionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+				}
+			}
+		}
+		pool.shutdown();
+		
+		if (failure != null) {
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Finds what packages import what other packages.
+	 * Only imports of packages in the list count; imports of libraries in the core package, for example, are ignored.
+	 *
+	 * @param packages
+	 * @return For each package, the indices of the packages it imports.
+	 */
+	public static List<Set<Integer>> getDependencies(List<Package> packages) {
+		Map<Package, Integer> indices = new IdentityHashMap<>();
+		for (int i = 0; i < packages.size(); i++) {
+			indices.put(packages.get(i), i);
+		}
+		
+		List<Set<Integer>> result = new ArrayList<>();
+		for (int i = 0; i < packages.size(); i++) {
+			Set<Integer> deps = new TreeSet<>();
+			
+			List<Import> imports = new ArrayList<>();
+			gatherImports(imports, packages.get(i));
+			
+			for (Import imp : imports) {
+				for (Package p : imp.getResolvedTo()) {
+					// find the package that was given to us
+					while (p.getParent() != null && !(p.getParent() instanceof CorePackage)) {
+						p = p.getParent();
+					}
+					
+					Integer dep = indices.get(p);
+					if (dep != null && dep != i) {
+						deps.add(dep);
+					}
+				}
+			}
+			
+			result.add(deps);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Given a package, finds all the imports in the package and all subpackages.
+	 *
+	 * @param imports
+	 * @param p
+	 */
+	private static void gatherImports(List<Import> imports, Package p) {
+		imports.addAll(p.getImports());
+		
+		for (Package pp : p.getSubpackges()) {
+			gatherImports(imports, pp);
+		}
+	}
+	
+	/**
+	 * Splits packages into groups that must be processed together, because they import each other.
+	 *
+	 * @param deps What each package depends on, as given by {@link #getDependencies(List)}.
+	 * @return The groups, each in ascending order. A group comes after all the groups it depends on.
+	 */
+	public static List<List<Integer>> getGroups(List<Set<Integer>> deps) {
+		// this is Tarjan's strongly connected components algorithm
+		List<List<Integer>> result = new ArrayList<>();
+		int[] index = new int[deps.size()];
+		int[] lowLink = new int[deps.size()];
+		boolean[] onStack = new boolean[deps.size()];
+		List<Integer> stack = new ArrayList<>();
+		int[] nextIndex = {1};
+		
+		for (int i = 0; i < deps.size(); i++) {
+			if (index[i] == 0) {
+				getGroups(deps, i, index, lowLink, onStack, stack, nextIndex, result);
+			}
+		}
+		
+		return result;
+	}
+	
+	private static void getGroups(List<Set<Integer>> deps, int i, int[] index, int[] lowLink, boolean[] onStack, List<Integer> stack, int[] nextIndex, List<List<Integer>> result) {
+		index[i] = lowLink[i] = nextIndex[0]++;
+		stack.add(i);
+		onStack[i] = true;
+		
+		for (int dep : deps.get(i)) {
+			if (index[dep] == 0) {
+				getGroups(deps, dep, index, lowLink, onStack, stack, nextIndex, result);
+				lowLink[i] = Math.min(lowLink[i], lowLink[dep]);
+			} else if (onStack[dep]) {
+				lowLink[i] = Math.min(lowLink[i], index[dep]);
+			}
+		}
+		
+		if (lowLink[i] == index[i]) {
+			List<Integer> group = new ArrayList<>();
+			int j;
+			do {
+				j = stack.remove(stack.size()-1);
+				onStack[j] = false;
+				group.add(j);
+			} while (j != i);
+			
+			group.sort(null);
+			result.add(group);
+		}
+	}
+}
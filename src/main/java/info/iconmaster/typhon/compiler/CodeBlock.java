@@ -1,11 +1,15 @@
 package info.iconmaster.typhon.compiler;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.antlr.TyphonParser.ExprContext;
 import info.iconmaster.typhon.model.MemberAccess;
 import info.iconmaster.typhon.model.TyphonModelEntity;
+import info.iconmaster.typhon.types.TypeRef;
 import info.iconmaster.typhon.util.SourceInfo;
 
 /**
@@ -27,6 +31,7 @@ public class CodeBlock extends TyphonModelEntity {
 	
 	/**
 	 * The local variables present in this code block.
+	 * Each variable is at the index given by its <tt>slot</tt>, so this can be used as the block's frame of locals.
 	 */
 	public List<Variable> vars = new ArrayList<>();
 	
@@ -40,6 +45,18 @@ public class CodeBlock extends TyphonModelEntity {
 	 */
 	public List<Label> labels = new ArrayList<>();
 	
+	/**
+	 * The types of the expressions in this block, as found by {@link TyphonCompiler#getExprType}.
+	 * Keyed by the expression rule, then by the types the expression was expected to have.
+	 */
+	Map<ExprContext, Map<List<TypeRef>, List<TypeRef>>> exprTypes = new IdentityHashMap<>();
+	
+	/**
+	 * How many expressions in this block are currently being compiled just to find their types.
+	 * While this is nonzero, any instructions produced are going to be thrown away.
+	 */
+	int typingDepth;
+	
 	/**
 	 * Create a new code block.
 	 * 
@@ -64,6 +81,14 @@ public class CodeBlock extends TyphonModelEntity {
 		this.lookup = lookup;
 	}
 	
+	/**
+	 * @param slot
+	 * @return The local variable in the given slot of this block's frame.
+	 */
+	public Variable getVar(int slot) {
+		return vars.get(slot);
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder("CodeBlock(this = ");
@@ -17,6 +17,11 @@ public class Label {
 	 */
 	String name;
 	
+	/**
+	 * The label with the same name that was added before this one, in this scope or another. May be null.
+	 */
+	Label shadowed;
+	
 	Label(Scope scope, String name) {
 		this.scope = scope;
 		this.name = name;
@@ -1,6 +1,7 @@
 package info.iconmaster.typhon.compiler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +50,23 @@ public class Scope implements MemberAccess {
 	 */
 	public Label beginScopeLabel, endScopeLabel;
 	
+	/**
+	 * The user variables declared in this scope and every scope sharing its root, by name.
+	 * Each maps to the variable declared last; earlier ones with the same name are found through <tt>Variable.shadowed</tt>.
+	 * When a scope is exited, its variables are taken back out, so this only holds the variables of scopes still being compiled.
+	 */
+	private final Map<String, Variable> varNames;
+	
+	/**
+	 * The named labels in this scope and every scope sharing its root, by name. Works like <tt>varNames</tt>.
+	 */
+	private final Map<String, Label> labelNames;
+	
+	/**
+	 * How many parent scopes this scope has.
+	 */
+	private final int depth;
+	
 	/**
 	 * Construct a root scope.
 	 * 
@@ -67,6 +85,16 @@ public class Scope implements MemberAccess {
 	public Scope(CodeBlock codeBlock, Scope parent) {
 		this.codeBlock = codeBlock;
 		this.parent = parent;
+		
+		if (parent == null) {
+			varNames = new HashMap<>();
+			labelNames = new HashMap<>();
+			depth = 0;
+		} else {
+			varNames = parent.varNames;
+			labelNames = parent.labelNames;
+			depth = parent.depth+1;
+		}
 	}
 	
 	/**
@@ -80,6 +108,8 @@ public class Scope implements MemberAccess {
 	public Variable addVar(String name, TypeRef type, SourceInfo declaredAt) {
 		Variable var = new Variable(this, name, type, declaredAt);
 		vars.put(name, var);
+		var.shadowed = varNames.put(name, var);
+		var.slot = codeBlock.vars.size();
 		codeBlock.vars.add(var);
 		return var;
 	}
@@ -93,6 +123,7 @@ public class Scope implements MemberAccess {
 	 */
 	public Variable addTempVar(TypeRef type, SourceInfo declaredAt) {
 		Variable var = new Variable(this, null, type, declaredAt);
+		var.slot = codeBlock.vars.size();
 		codeBlock.vars.add(var);
 		tempVars.add(var);
 		return var;
@@ -101,18 +132,70 @@ public class Scope implements MemberAccess {
 	/**
 	 * Looks up a name and returns a local vairable if possible.
 	 * This function also looks in parent scopes; it returns the variable with the given name in the closest scope.
+	 * <p>
+	 * Scopes are compiled in order, so the last visible variable declared with the name is the one in the closest scope.
+	 * Usually that's the first one in <tt>varNames</tt>; the ones before it are in scopes that weren't exited.
 	 * 
 	 * @param name The name.
 	 * @return The variable in this or any parent scope, or null if no variable with that name is found.
 	 */
 	public Variable getVar(String name) {
-		if (vars.containsKey(name)) {
-			return vars.get(name);
-		} else if (parent != null) {
-			return parent.getVar(name);
-		} else {
-			return null;
+		for (Variable var = varNames.get(name); var != null; var = var.shadowed) {
+			if (canSee(var.scope)) {
+				return var;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Call this when the compiler is done with this scope.
+	 * Its variables and labels can no longer be looked up by name, and the ones they shadowed can be found directly again.
+	 * Scopes inside this one should be exited first.
+	 */
+	public void exit() {
+		for (String name : vars.keySet()) {
+			Variable var = varNames.get(name);
+			while (var != null && var.scope.canSee(this)) {
+				var = var.shadowed;
+			}
+			
+			if (var == null) {
+				varNames.remove(name);
+			} else {
+				varNames.put(name, var);
+			}
+		}
+		
+		for (Label label : labels) {
+			if (label.name == null) {
+				continue;
+			}
+			
+			Label top = labelNames.get(label.name);
+			while (top != null && top.scope.canSee(this)) {
+				top = top.shadowed;
+			}
+			
+			if (top == null) {
+				labelNames.remove(label.name);
+			} else {
+				labelNames.put(label.name, top);
+			}
+		}
+	}
+	
+	/**
+	 * @param other
+	 * @return True if declarations in the other scope are visible here; that is, if it's this scope or one of its parents.
+	 */
+	private boolean canSee(Scope other) {
+		Scope scope = this;
+		while (scope != null && scope.depth > other.depth) {
+			scope = scope.parent;
 		}
+		return scope == other;
 	}
 	
 	/**
@@ -163,26 +246,31 @@ public class Scope implements MemberAccess {
 		return (List) getVars();
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		Variable var = vars.get(name);
+		return var == null ? Collections.emptyList() : Collections.singletonList(var);
+	}
+	
 	public List<Label> getLabels() {
 		return labels;
 	}
 	
 	public Label getLabel(String name) {
-		for (Label label : labels) {
-			if (name.equals(label.name)) {
+		for (Label label = labelNames.get(name); label != null; label = label.shadowed) {
+			if (canSee(label.scope)) {
 				return label;
 			}
 		}
 		
-		if (parent == null) {
-			return null;
-		}
-		
-		return parent.getLabel(name);
+		return null;
 	}
 	
 	public Label addLabel(String name) {
 		Label label = new Label(this, name);
+		if (name != null) {
+			label.shadowed = labelNames.put(name, label);
+		}
 		labels.add(label);
 		getCodeBlock().labels.add(label);
 		return label;
@@ -1,16 +1,23 @@
 package info.iconmaster.typhon.compiler;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.antlr.v4.codegen.model.chunk.RetValueRef;
 import org.antlr.v4.runtime.ParserRuleContext;
 
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonProfiler;
 import info.iconmaster.typhon.antlr.TyphonBaseVisitor;
 import info.iconmaster.typhon.antlr.TyphonParser.AnonFuncParamContext;
 import info.iconmaster.typhon.antlr.TyphonParser.ArrayConstExprContext;
@@ -113,6 +120,8 @@ import info.iconmaster.typhon.util.LookupUtils.LookupElement.AccessType;
 import info.iconmaster.typhon.util.LookupUtils.LookupPath;
 import info.iconmaster.typhon.util.LookupUtils.LookupPath.Subject;
 import info.iconmaster.typhon.util.Option;
+import info.iconmaster.typhon.util.OverloadResolver;
+import info.iconmaster.typhon.util.OverloadResolver.Candidate;
 import info.iconmaster.typhon.util.SourceInfo;
 import info.iconmaster.typhon.util.StringUtils;
 import info.iconmaster.typhon.util.TemplateUtils;
@@ -144,6 +153,151 @@ public class TyphonCompiler {
 		p.getSubpackges().stream().forEach((f)->compile(f));
 	}
 	
+	/**
+	 * Compiles only the code reachable from the entry points of some packages, instead of everything in them.
+	 * <p>
+	 * The entry points are the functions annotated with <tt>@main</tt>, and every field and static init block.
+	 * If no input package has a <tt>@main</tt> function, every function in the input packages is an entry point instead.
+	 * Any other function is compiled once a call to it is compiled.
+	 * 
+	 * @param tni
+	 * @param packages The packages to look for entry points in.
+	 */
+	public static void compileReachable(TyphonInput tni, List<Package> packages) {
+		Deque<Function> queue = new ArrayDeque<>();
+		Set<Function> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		for (Package p : packages) {
+			reachFunctions(p, false, queue, reached);
+		}
+		
+		if (!tni.inputPackages.stream().anyMatch(p->hasMain(p))) {
+			for (Package p : tni.inputPackages) {
+				reachFunctions(p, true, queue, reached);
+			}
+		}
+		
+		for (Package p : packages) {
+			compileInitializers(p, queue, reached);
+		}
+		
+		while (!queue.isEmpty()) {
+			Function f = queue.remove();
+			compile(f);
+			reachCalls(f.getCode(), queue, reached);
+		}
+	}
+	
+	/**
+	 * @param p
+	 * @return True if the package or any of its subpackages has a <tt>@main</tt> function.
+	 */
+	private static boolean hasMain(Package p) {
+		for (Function f : p.getFunctions()) {
+			if (f.hasAnnot(f.tni.corePackage.ANNOT_MAIN)) {
+				return true;
+			}
+		}
+		
+		return p.getSubpackges().stream().anyMatch(pp->hasMain(pp));
+	}
+	
+	/**
+	 * Marks the functions in a package and its subpackages as reached.
+	 * 
+	 * @param p
+	 * @param all If true, every function is reached. If false, only <tt>@main</tt> functions are.
+	 * @param queue The functions that still need compiled.
+	 * @param reached The functions reached so far.
+	 */
+	private static void reachFunctions(Package p, boolean all, Deque<Function> queue, Set<Function> reached) {
+		for (Function f : p.getFunctions()) {
+			if (all || f.hasAnnot(f.tni.corePackage.ANNOT_MAIN)) {
+				reach(p.tni, f, queue, reached);
+			}
+		}
+		
+		for (Package pp : p.getSubpackges()) {
+			reachFunctions(pp, all, queue, reached);
+		}
+	}
+	
+	/**
+	 * Compiles the fields and static init blocks in a package and its subpackages, marking whatever they call as reached.
+	 * 
+	 * @param p
+	 * @param queue The functions that still need compiled.
+	 * @param reached The functions reached so far.
+	 */
+	private static void compileInitializers(Package p, Deque<Function> queue, Set<Function> reached) {
+		for (Field f : p.getFields()) {
+			compile(f);
+			reachCalls(f.getValue(), queue, reached);
+		}
+		
+		for (StaticInitBlock b : p.getStaticInitBlocks()) {
+			compile(b);
+			reachCalls(b.getCode(), queue, reached);
+		}
+		
+		for (Package pp : p.getSubpackges()) {
+			compileInitializers(pp, queue, reached);
+		}
+	}
+	
+	/**
+	 * Marks a function as reached, queueing it to be compiled if it wasn't reached before.
+	 * 
+	 * @param tni The input being compiled.
+	 * @param f
+	 * @param queue The functions that still need compiled.
+	 * @param reached The functions reached so far.
+	 */
+	private static void reach(TyphonInput tni, Function f, Deque<Function> queue, Set<Function> reached) {
+		if (!reached.add(f)) {
+			return;
+		}
+		queue.add(f);
+		
+		// a call to a virtual function may end up in any of its overrides
+		List<Function> overrides = f.getVirtualOverrides(tni);
+		if (overrides != null) {
+			for (Function override : overrides) {
+				reach(tni, override, queue, reached);
+			}
+		}
+	}
+	
+	/**
+	 * Marks every function called in some code as reached.
+	 * 
+	 * @param block May be null.
+	 * @param queue The functions that still need compiled.
+	 * @param reached The functions reached so far.
+	 */
+	private static void reachCalls(CodeBlock block, Deque<Function> queue, Set<Function> reached) {
+		if (block == null) {
+			return;
+		}
+		
+		for (Instruction inst : block.ops) {
+			switch (inst.op) {
+			case CALL:
+				reach(block.tni, inst.arg(2), queue, reached);
+				break;
+			case CALLSTATIC:
+				reach(block.tni, inst.arg(1), queue, reached);
+				break;
+			case LAMBDA:
+				// lambdas are compiled along with the code they're in, but what they call isn't
+				reachCalls(((Function) inst.arg(1)).getCode(), queue, reached);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+	
 	/**
 	 * Compiles a function. Updates the contents of the argument.
 	 * 
@@ -155,6 +309,8 @@ public class TyphonCompiler {
 		}
 		f.needsCompiled(false);
 		
+		TyphonProfiler.Timer timer = f.tni.profiler == null ? null : TyphonProfiler.start();
+		
 		CodeBlock block = new CodeBlock(f.tni, f.source, f);
 		f.setCode(block);
 		Scope scope = new Scope(block);
@@ -206,6 +362,10 @@ public class TyphonCompiler {
 			
 			block.ops.add(new Instruction(f.tni, new SourceInfo((List) f.getRawCode()), OpCode.RET, new Object[] {allVars}));
 		}
+		
+		if (timer != null) {
+			f.tni.profiler.stop(timer, f);
+		}
 	}
 	
 	/**
@@ -371,6 +531,7 @@ public class TyphonCompiler {
 				}
 				
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx.tnBlock), OpCode.LABEL, new Object[] {endLabel}));
+				newScope.exit();
 				return null;
 			}
 			
@@ -409,6 +570,7 @@ public class TyphonCompiler {
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.JUMP, new Object[] {beginLabel}));
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {endLabel}));
 				
+				newScope.exit();
 				return null;
 			}
 			
@@ -445,6 +607,7 @@ public class TyphonCompiler {
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx.tnExpr), OpCode.JUMPFALSE, new Object[] {condVar, beginLabel}));
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {endLabel}));
 				
+				newScope.exit();
 				return null;
 			}
 			
@@ -682,6 +845,7 @@ public class TyphonCompiler {
 					
 					scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.JUMP, new Object[] {newScope.endScopeLabel}));
 					scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {caseScope.beginScopeLabel}));
+					caseScope.exit();
 				}
 				
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {defaultLabel}));
@@ -700,9 +864,11 @@ public class TyphonCompiler {
 					}
 					
 					scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {caseScope.beginScopeLabel}));
+					caseScope.exit();
 				}
 				
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {newScope.endScopeLabel}));
+				newScope.exit();
 				return null;
 			}
 			
@@ -751,6 +917,7 @@ public class TyphonCompiler {
 				}
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {tryScope.endScopeLabel}));
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.ENDTRY, new Object[] {tryId}));
+				tryScope.exit();
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.JUMP, new Object[] {endLabel}));
 				
 				int i = 0;
@@ -767,6 +934,11 @@ public class TyphonCompiler {
 					i++;
 				}
 				
+				// the catch scopes were all made before any were compiled, so exit them last first
+				for (i = scopes.size()-1; i >= 0; i--) {
+					scopes.get(i).exit();
+				}
+				
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {endLabel}));
 				
 				return null;
@@ -808,6 +980,7 @@ public class TyphonCompiler {
 					if (!(iterableVar.type.getType() instanceof ExtendableType)) {
 						// error; iterable argument does not extend Iterator
 						core.tni.errors.add(new TypeError(new SourceInfo(ctx.tnExpr), iterableVar.type, new TypeRef(core.TYPE_ITERABLE)));
+						newScope.exit();
 						return null;
 					}
 					
@@ -815,8 +988,6 @@ public class TyphonCompiler {
 					// TODO: What if we have mutliple iterable handlers?
 					TypeRef retType = TemplateUtils.matchAllTemplateArgs(iterTypes.get(0)).get(core.TYPE_ITERABLE.T);
 					if (loopVar.type.isVar()) {
-						loopVar.type.isVar(false);
-						
 						loopVar.type = retType;
 					} else if (!loopVar.type.canCastTo(retType)) {
 						core.tni.errors.add(new TypeError(loopVar.declaredAt, loopVar.type, retType));
@@ -841,7 +1012,6 @@ public class TyphonCompiler {
 						loopVars.add(loopVar);
 						
 						if (loopVar.type.isVar()) {
-							loopVar.type.isVar(false);
 							loopVar.type = loopHandler.getRetType().get(i);
 						} else if (!loopVar.type.canCastTo(loopHandler.getRetType().get(i))) {
 							core.tni.errors.add(new TypeError(loopVar.declaredAt, loopVar.type, loopHandler.getRetType().get(i)));
@@ -858,6 +1028,7 @@ public class TyphonCompiler {
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.JUMP, new Object[] {newScope.beginScopeLabel}));
 				scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LABEL, new Object[] {newScope.endScopeLabel}));
 				
+				newScope.exit();
 				return null;
 			}
 		};
@@ -875,6 +1046,18 @@ public class TyphonCompiler {
 	 * @return The number of variables that were filled.
 	 */
 	public static int compileExpr(Scope scope, ExprContext rule, List<Variable> insertInto) {
+		return compileExprTypes(scope, rule, insertInto).size();
+	}
+	
+	/**
+	 * Compiles an expression, as in {@link #compileExpr(Scope, ExprContext, List)}.
+	 * 
+	 * @param scope The current scope. Instructions get placed in this scope's code block.
+	 * @param rule The rule representing the expression.
+	 * @param insertInto The variables that the expression will be evaluated into in runtime.
+	 * @return The types of all the values the expression produces, even ones that were not placed into <tt>insertInto</tt>.
+	 */
+	private static List<TypeRef> compileExprTypes(Scope scope, ExprContext rule, List<Variable> insertInto) {
 		CorePackage core = scope.getCodeBlock().tni.corePackage;
 		
 		TyphonBaseVisitor<List<TypeRef>> visitor = new TyphonBaseVisitor<List<TypeRef>>() {
@@ -1019,21 +1202,18 @@ public class TyphonCompiler {
 					compileExpr(scope, expr, Arrays.asList(exprVar));
 				}
 				
-				List<LookupPath> paths = LookupUtils.findPaths(scope, base, names);
-				
-				paths.removeIf(path->{
-					Subject sub = path.returnedSubject();
-					return !(sub.member instanceof Field || sub.member instanceof Variable);
+				LookupPath path = LookupUtils.findFirstPath(scope, base, names, p->{
+					Subject sub = p.returnedSubject();
+					return sub.member instanceof Field || sub.member instanceof Variable;
 				});
 				
-				if (paths.isEmpty()) {
+				if (path == null) {
 					// error, no path found
 					core.tni.errors.add(new UndefinedVariableError(new SourceInfo(ctx), ctx.tnValue.getText()));
 					return Arrays.asList(TypeRef.var(core.tni));
 				}
 				
 				// process the chosen path
-				LookupPath path = paths.get(0);
 				Variable var = LookupUtils.getSubjectOfPath(scope, path);
 				
 				if (!insertInto.isEmpty()) {
@@ -1081,11 +1261,9 @@ public class TyphonCompiler {
 					Variable exprVar = scope.addTempVar(TypeRef.var(core.tni), null);
 					base = exprVar;
 					
-					compileExpr(scope, expr, Arrays.asList(exprVar));
+					compileSubexpr(scope, expr, Arrays.asList(exprVar));
 				}
 				
-				List<LookupPath> paths = LookupUtils.findPaths(scope, base, names);
-				
 				List<LookupArgument> args = new ArrayList<>();
 				List<Variable> vars = new ArrayList<>();
 				
@@ -1099,21 +1277,23 @@ public class TyphonCompiler {
 					argMap.put(var, arg.getRawValue());
 				});
 				
-				paths.removeIf((path)->{
-					MemberAccess member = path.members.get(path.members.size()-1);
-					Map<TemplateType, TypeRef> typeMap = path.lastTypeMap();
+				OverloadResolver resolver = new OverloadResolver(scope, args, argMap);
+				List<Candidate> candidates = new ArrayList<>();
+				List<LookupPath> paths = LookupUtils.findOverloadPaths(scope, base, names, (p)->{
+					MemberAccess member = p.members.get(p.members.size()-1);
+					Map<TemplateType, TypeRef> typeMap = p.lastTypeMap();
 					
 					if (member instanceof Function) {
-						Function f = (Function) member;
-						
-						if (!LookupUtils.areFuncArgsCompatibleWith(scope, f, args, typeMap, argMap)) {
-							return true;
+						Candidate c = resolver.getCandidate((Function) member, typeMap);
+						if (c == null) {
+							return false;
 						}
 						
-						return false;
+						candidates.add(c);
+						return true;
 					} else {
 						// TODO: CALLFPTR
-						return true;
+						return false;
 					}
 				});
 				
@@ -1124,7 +1304,7 @@ public class TyphonCompiler {
 				}
 				
 				// process the chosen path
-				LookupPath path = paths.get(0);
+				LookupPath path = paths.get(candidates.indexOf(resolver.choose(candidates, new SourceInfo(ctx))));
 				Subject sub = path.popSubject();
 				
 				if (sub.member instanceof Function) {
@@ -1728,9 +1908,10 @@ public class TyphonCompiler {
 					argMap.put(var, arg.getRawValue());
 				});
 				
-				List<Function> constructors = type.getType().getTypePackage().getFunctions().stream().filter((f)->f instanceof Constructor && f.getFieldOf() == type.getType()).filter(f->{
-					return LookupUtils.areFuncArgsCompatibleWith(scope, f, args, type.getTemplateMap(new HashMap<>()), argMap);
-				}).collect(Collectors.toList());
+				OverloadResolver resolver = new OverloadResolver(scope, args, argMap);
+				List<Candidate> constructors = type.getType().getTypePackage().getFunctions().stream().filter((f)->f instanceof Constructor && f.getFieldOf() == type.getType()).map(f->{
+					return resolver.getCandidate(f, type.getTemplateMap(new HashMap<>()));
+				}).filter(c->c != null).collect(Collectors.toList());
 				
 				if (constructors.isEmpty()) {
 					// error, no constructor found
@@ -1738,7 +1919,7 @@ public class TyphonCompiler {
 					return Arrays.asList(type);
 				}
 				
-				Constructor f = (Constructor) constructors.get(0);
+				Constructor f = (Constructor) resolver.choose(constructors, new SourceInfo(ctx)).function;
 				
 				Variable out;
 				if (insertInto.isEmpty()) {
@@ -1801,7 +1982,7 @@ public class TyphonCompiler {
 					Variable exprVar = scope.addTempVar(TypeRef.var(core.tni), null);
 					base = exprVar;
 					
-					compileExpr(scope, expr, Arrays.asList(exprVar));
+					compileSubexpr(scope, expr, Arrays.asList(exprVar));
 				}
 				
 				List<LookupPath> paths = LookupUtils.findPaths(scope, base, names);
@@ -1834,11 +2015,12 @@ public class TyphonCompiler {
 					return Arrays.asList(TypeRef.var(core.tni));
 				}
 				
+				OverloadResolver resolver = new OverloadResolver(scope, args, argMap);
 				paths.removeIf((path)->{
 					Subject sub = path.returnedSubject();
 					
 					List<Function> handlers = sub.type.getType().getOperatorHandlers(core.LIB_OPS.ANNOT_INDEX_GET);
-					handlers.removeIf(h->!LookupUtils.areFuncArgsCompatibleWith(scope, h, args, sub.type.getTemplateMap(path.returnedTypeMap()), argMap));
+					handlers.removeIf(h->!resolver.isCompatible(h, sub.type.getTemplateMap(path.returnedTypeMap())));
 					
 					if (handlers.isEmpty()) {
 						return true;
@@ -1857,9 +2039,9 @@ public class TyphonCompiler {
 				LookupPath path = paths.get(0);
 				Subject sub = path.returnedSubject();
 				
-				List<Function> handlers = sub.type.getType().getOperatorHandlers(core.LIB_OPS.ANNOT_INDEX_GET);
-				handlers.removeIf(h->!LookupUtils.areFuncArgsCompatibleWith(scope, h, args, sub.type.getTemplateMap(path.returnedTypeMap()), argMap));
-				Function handler = handlers.get(0);
+				Map<TemplateType, TypeRef> typeMap = sub.type.getTemplateMap(path.returnedTypeMap());
+				List<Candidate> handlers = sub.type.getType().getOperatorHandlers(core.LIB_OPS.ANNOT_INDEX_GET).stream().map(h->resolver.getCandidate(h, typeMap)).filter(c->c != null).collect(Collectors.toList());
+				Function handler = resolver.choose(handlers, new SourceInfo(ctx)).function;
 				
 				Variable instanceVar = LookupUtils.getSubjectOfPath(scope, sub.path);
 				
@@ -1918,6 +2100,7 @@ public class TyphonCompiler {
 					}
 				}
 				
+				newScope.exit();
 				if (!insertInto.isEmpty()) scope.getCodeBlock().ops.add(new Instruction(core.tni, new SourceInfo(ctx), OpCode.LAMBDA, new Object[] {insertInto.get(0), f}));
 				
 				return Arrays.asList(new TypeRef(f.asType()));
@@ -1925,7 +2108,12 @@ public class TyphonCompiler {
 		};
 		
 		List<TypeRef> a = visitor.visit(rule);
-		if (a == null) return 0;
+		if (a == null) return Arrays.asList();
+		
+		if (isCallExpr(rule)) {
+			// remember the type of the call, so getExprType doesn't have to compile it again
+			scope.getCodeBlock().exprTypes.computeIfAbsent(rule, k->new HashMap<>()).putIfAbsent(Arrays.asList(), Collections.unmodifiableList(new ArrayList<>(a)));
+		}
 		
 		int i = 0;
 		for (TypeRef t : a) {
@@ -1939,7 +2127,52 @@ public class TyphonCompiler {
 			i++;
 		}
 		
-		return a.size();
+		return a;
+	}
+	
+	/**
+	 * Compiles a subexpression of a call, such as an argument or the object a method is called on.
+	 * If the call is only being compiled to find its type, the instructions would be thrown away anyway,
+	 * so the subexpression is typed with {@link #getExprType} instead of being compiled again.
+	 * 
+	 * @param scope The current scope.
+	 * @param rule The rule representing the subexpression.
+	 * @param insertInto The variables that the subexpression will be evaluated into in runtime.
+	 */
+	private static void compileSubexpr(Scope scope, ExprContext rule, List<Variable> insertInto) {
+		if (scope.getCodeBlock().typingDepth == 0) {
+			compileExpr(scope, rule, insertInto);
+			return;
+		}
+		
+		List<TypeRef> types = getExprType(scope, rule, insertInto.stream().map(v->v.type).collect(Collectors.toList()));
+		for (int i = 0; i < types.size() && i < insertInto.size(); i++) {
+			if (insertInto.get(i).type.isVar()) {
+				insertInto.get(i).type = types.get(i);
+			}
+		}
+	}
+	
+	/**
+	 * Calls produce the same types no matter what types are expected of them.
+	 * 
+	 * @param rule
+	 * @return If this rule is a function call or an index call.
+	 */
+	private static boolean isCallExpr(ExprContext rule) {
+		return rule instanceof FuncCallExprContext || rule instanceof IndexCallExprContext;
+	}
+	
+	/**
+	 * @param rule
+	 * @return True if the type of this expression can change based on what type is expected, as with number literals.
+	 */
+	public static boolean dependsOnExpectedTypes(ExprContext rule) {
+		if (rule instanceof ParensExprContext) {
+			return dependsOnExpectedTypes(((ParensExprContext) rule).tnExpr);
+		}
+		
+		return rule instanceof NumConstExprContext || rule instanceof ArrayConstExprContext || rule instanceof MapConstExprContext || rule instanceof MatchExprContext;
 	}
 	
 	/**
@@ -1948,11 +2181,18 @@ public class TyphonCompiler {
 	 * @param scope The current scope.
 	 * @param rule The rule representing the expression.
 	 * @param expectedTypes What the compiler expects the type to be. May be empty.
-	 * @return A list of at least one type.
+	 * @return A list of at least one type. It's remembered for the next time the expression is typed, so it can't be modified.
 	 */
 	public static List<TypeRef> getExprType(Scope scope, ExprContext rule, List<TypeRef> expectedTypes) {
 		CorePackage core = scope.getCodeBlock().tni.corePackage;
 		
+		// check if we've typed this expression already
+		Map<List<TypeRef>, List<TypeRef>> memo = scope.getCodeBlock().exprTypes.computeIfAbsent(rule, k->new HashMap<>());
+		List<TypeRef> key = isCallExpr(rule) || !dependsOnExpectedTypes(rule) ? Arrays.asList() : new ArrayList<>(expectedTypes);
+		if (memo.containsKey(key)) {
+			return memo.get(key);
+		}
+		
 		TyphonBaseVisitor<List<TypeRef>> visitor = new TyphonBaseVisitor<List<TypeRef>>() {
 			@Override
 			public List<TypeRef> visitNumConstExpr(NumConstExprContext ctx) {
@@ -2047,20 +2287,17 @@ public class TyphonCompiler {
 					base = getExprType(scope, expr, Arrays.asList()).get(0);
 				}
 				
-				List<LookupPath> paths = LookupUtils.findPaths(scope, base, names);
-				
-				paths.removeIf(path->{
-					Subject sub = path.returnedSubject();
-					return !(sub.member instanceof Field || sub.member instanceof Variable);
+				LookupPath path = LookupUtils.findFirstPath(scope, base, names, p->{
+					Subject sub = p.returnedSubject();
+					return sub.member instanceof Field || sub.member instanceof Variable;
 				});
 				
-				if (paths.isEmpty()) {
+				if (path == null) {
 					// error, no path found
 					return Arrays.asList(TypeRef.var(core.tni));
 				}
 				
 				// process the chosen path
-				LookupPath path = paths.get(0);
 				return Arrays.asList(path.returnedSubject().type);
 			}
 			
@@ -2094,7 +2331,7 @@ public class TyphonCompiler {
 			
 			@Override
 			public List<TypeRef> visitParensExpr(ParensExprContext ctx) {
-				return visit(ctx.tnExpr);
+				return getExprType(scope, ctx.tnExpr, expectedTypes);
 			}
 			
 			@Override
@@ -2310,57 +2547,55 @@ public class TyphonCompiler {
 			
 			@Override
 			public List<TypeRef> visitFuncCallExpr(FuncCallExprContext ctx) {
-				// TODO: This is a HORRIBLE hack. Make this use a method that does not involve compilation of an expression THREE TIMES.
-				
-				// save state
-				List<Instruction> ops = scope.getCodeBlock().ops;
-				scope.getCodeBlock().ops = new ArrayList<>();
-				
-				Scope newScope = new Scope(scope.getCodeBlock(), scope);
-				
-				// first pass: get number of args
-				int n = compileExpr(newScope, rule, Arrays.asList());
-				
-				// second pass: get arg types
-				List<Variable> vars = new ArrayList<>();
-				for (int i = 0; i < n; i++) {
-					vars.add(newScope.addTempVar(TypeRef.var(core.tni), new SourceInfo(rule)));
-				}
-				compileExpr(newScope, rule, vars);
-				
-				// restore state
-				scope.getCodeBlock().ops = ops;
-				return vars.stream().map(v->v.type).collect(Collectors.toList());
+				return getCallType(scope, ctx);
 			}
 			
 			@Override
 			public List<TypeRef> visitIndexCallExpr(IndexCallExprContext ctx) {
-				// TODO: This is a HORRIBLE hack. Make this use a method that does not involve compilation of an expression THREE TIMES.
-				
-				// save state
-				List<Instruction> ops = scope.getCodeBlock().ops;
-				scope.getCodeBlock().ops = new ArrayList<>();
-				
-				Scope newScope = new Scope(scope.getCodeBlock(), scope);
-				
-				// first pass: get number of args
-				int n = compileExpr(newScope, rule, Arrays.asList());
-				
-				// second pass: get arg types
-				List<Variable> vars = new ArrayList<>();
-				for (int i = 0; i < n; i++) {
-					vars.add(newScope.addTempVar(TypeRef.var(core.tni), new SourceInfo(rule)));
-				}
-				compileExpr(newScope, rule, vars);
-				
-				// restore state
-				scope.getCodeBlock().ops = ops;
-				return vars.stream().map(v->v.type).collect(Collectors.toList());
+				return getCallType(scope, ctx);
 			}
 		};
 		
 		List<TypeRef> result = visitor.visit(rule);
-		return result == null ? Arrays.asList(new TypeRef(core.TYPE_ANY)) : result;
+		if (result == null) result = Arrays.asList(new TypeRef(core.TYPE_ANY));
+		
+		result = Collections.unmodifiableList(result);
+		memo.put(key, result);
+		return result;
+	}
+	
+	/**
+	 * Returns the types of a call expression.
+	 * The call is compiled once, with the instructions, errors, variables and labels produced thrown away.
+	 * Its arguments are typed and not compiled, so every subexpression only ever gets typed once.
+	 * 
+	 * @param scope The current scope.
+	 * @param rule The rule representing the call.
+	 * @return The return types of the call. This can't be modified.
+	 */
+	private static List<TypeRef> getCallType(Scope scope, ExprContext rule) {
+		CodeBlock block = scope.getCodeBlock();
+		
+		// save state
+		List<Instruction> ops = block.ops;
+		int nErrors = block.tni.errors.size();
+		int nVars = block.vars.size();
+		int nLabels = block.labels.size();
+		block.ops = new ArrayList<>();
+		block.typingDepth++;
+		
+		Scope typingScope = new Scope(block, scope);
+		List<TypeRef> result = compileExprTypes(typingScope, rule, Arrays.asList());
+		
+		// restore state
+		typingScope.exit();
+		block.typingDepth--;
+		block.ops = ops;
+		block.tni.errors.subList(nErrors, block.tni.errors.size()).clear();
+		block.vars.subList(nVars, block.vars.size()).clear();
+		block.labels.subList(nLabels, block.labels.size()).clear();
+		
+		return Collections.unmodifiableList(result);
 	}
 	
 	/**
@@ -2471,15 +2706,13 @@ public class TyphonCompiler {
 					compileExpr(scope, (ExprContext) lval, Arrays.asList(exprVar));
 				}
 				
-				List<LookupPath> paths = LookupUtils.findPaths(scope, base, names);
-				paths.removeIf((path)->!(path.returnedSubject().member instanceof Field || path.returnedSubject().member instanceof Variable));
+				LookupPath path = LookupUtils.findFirstPath(scope, base, names, (p)->p.returnedSubject().member instanceof Field || p.returnedSubject().member instanceof Variable);
 				
-				if (paths.isEmpty()) {
+				if (path == null) {
 					// error, no path found
 					core.tni.errors.add(new UndefinedVariableError(new SourceInfo(ctx), ctx.tnRhs.getText()));
 					return scope.addTempVar(TypeRef.var(core.tni), new SourceInfo(ctx));
 				}
-				LookupPath path = paths.get(0);
 				
 				// process the chosen path
 				
@@ -2598,11 +2831,12 @@ public class TyphonCompiler {
 					return retVar;
 				}
 				
+				OverloadResolver resolver = new OverloadResolver(scope, args, argMap);
 				paths.removeIf((path)->{
 					Subject sub = path.returnedSubject();
 					
 					List<Function> handlers = sub.type.getType().getOperatorHandlers(core.LIB_OPS.ANNOT_INDEX_SET);
-					handlers.removeIf(h->!LookupUtils.areFuncArgsCompatibleWith(scope, h, args, sub.type.getTemplateMap(path.returnedTypeMap()), argMap));
+					handlers.removeIf(h->!resolver.isCompatible(h, sub.type.getTemplateMap(path.returnedTypeMap())));
 					
 					if (handlers.isEmpty()) {
 						return true;
@@ -2621,9 +2855,9 @@ public class TyphonCompiler {
 				LookupPath path = paths.get(0);
 				Subject sub = path.returnedSubject();
 				
-				List<Function> handlers = sub.type.getType().getOperatorHandlers(core.LIB_OPS.ANNOT_INDEX_SET);
-				handlers.removeIf(h->!LookupUtils.areFuncArgsCompatibleWith(scope, h, args, sub.type.getTemplateMap(path.returnedTypeMap()), argMap));
-				Function handler = handlers.get(0);
+				Map<TemplateType, TypeRef> typeMap = sub.type.getTemplateMap(path.returnedTypeMap());
+				List<Candidate> handlers = sub.type.getType().getOperatorHandlers(core.LIB_OPS.ANNOT_INDEX_SET).stream().map(h->resolver.getCandidate(h, typeMap)).filter(c->c != null).collect(Collectors.toList());
+				Function handler = resolver.choose(handlers, new SourceInfo(ctx)).function;
 				
 				Variable instanceVar = LookupUtils.getSubjectOfPath(scope, path);
 				
@@ -2770,7 +3004,7 @@ public class TyphonCompiler {
 				map.args.get(param).type = argMap.containsKey(map.args.get(param)) ? getExprType(scope, argMap.get(map.args.get(param)), Arrays.asList(param.getType())).get(0) : map.args.get(param).type;
 				
 				if (argMap.containsKey(map.args.get(param)))
-					compileExpr(scope, argMap.get(map.args.get(param)), Arrays.asList(map.args.get(param)));
+					compileSubexpr(scope, argMap.get(map.args.get(param)), Arrays.asList(map.args.get(param)));
 			} else if (map.varargs.containsKey(param)) {
 				Variable listVar = scope.addTempVar(param.getType(), source);
 				inputVars.add(listVar);
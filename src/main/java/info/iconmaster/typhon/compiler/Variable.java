@@ -36,6 +36,16 @@ public class Variable implements MemberAccess {
 	 */
 	public SourceInfo declaredAt;
 	
+	/**
+	 * This variable's index in its code block's <tt>vars</tt> list.
+	 */
+	public int slot;
+	
+	/**
+	 * The user variable with the same name that was declared before this one, in this scope or another. May be null.
+	 */
+	Variable shadowed;
+	
 	/**
 	 * Construct a new variable.
 	 * Do not use this directly; use <tt>Scope.addVar()</tt> instead!
@@ -67,6 +77,11 @@ public class Variable implements MemberAccess {
 		return TemplateUtils.replaceTemplates(type, templateMap).getMembers(templateMap);
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		return TemplateUtils.replaceTemplates(type, templateMap).getMembers(name, templateMap);
+	}
+	
 	@Override
 	public Map<TemplateType, TypeRef> getTemplateMap(Map<TemplateType, TypeRef> templateMap) {
 		return type.getTemplateMap(templateMap);
@@ -0,0 +1,30 @@
+package info.iconmaster.typhon.errors;
+
+import java.util.List;
+
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.util.OverloadResolver;
+import info.iconmaster.typhon.util.SourceInfo;
+
+/**
+ * This is an error for when the {@link OverloadResolver} finds multiple functions a call could go to, and none of them is more specific than the others.
+ *
+ * @author iconmaster
+ *
+ */
+public class AmbiguousCallError extends TyphonError {
+	/**
+	 * The functions the call could go to.
+	 */
+	public List<Function> candidates;
+	
+	public AmbiguousCallError(SourceInfo source, List<Function> candidates) {
+		super(source);
+		this.candidates = candidates;
+	}
+	
+	@Override
+	public String getMessage() {
+		return "Call to " + candidates.get(0).getName() + " is ambiguous; "+candidates.size()+" candidates found";
+	}
+}
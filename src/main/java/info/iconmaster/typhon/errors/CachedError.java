@@ -0,0 +1,26 @@
+package info.iconmaster.typhon.errors;
+
+import info.iconmaster.typhon.util.SourceInfo;
+
+/**
+ * This is an error that was reported by an earlier compilation, and was loaded from a {@link info.iconmaster.typhon.TyphonCache}.
+ * 
+ * @author iconmaster
+ *
+ */
+public class CachedError extends TyphonError {
+	/**
+	 * The message the original error had.
+	 */
+	public String message;
+	
+	public CachedError(SourceInfo source, String message) {
+		super(source);
+		this.message = message;
+	}
+	
+	@Override
+	public String getMessage() {
+		return message;
+	}
+}
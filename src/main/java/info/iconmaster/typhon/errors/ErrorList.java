@@ -0,0 +1,81 @@
+package info.iconmaster.typhon.errors;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The list of errors a {@link info.iconmaster.typhon.TyphonInput} has reported.
+ * <p>
+ * A thread can divert the errors it reports into a list of its own.
+ * This lets different threads work on the same input without their errors getting mixed up;
+ * whoever started the threads is then responsible for adding the diverted errors back into this list.
+ *
+ * @author iconmaster
+ *
+ */
+public class ErrorList extends AbstractList<TyphonError> {
+	/**
+	 * The errors in this list.
+	 */
+	private List<TyphonError> errors = new ArrayList<>();
+	
+	/**
+	 * Where each thread is diverting its errors to, if anywhere.
+	 */
+	private ThreadLocal<List<TyphonError>> diverted = new ThreadLocal<>();
+	
+	/**
+	 * Makes the current thread see and modify <tt>buffer</tt> instead of this list, until {@link #stopDiverting()} is called.
+	 *
+	 * @param buffer
+	 */
+	public void divertTo(List<TyphonError> buffer) {
+		diverted.set(buffer);
+	}
+	
+	/**
+	 * Makes the current thread see and modify this list again.
+	 */
+	public void stopDiverting() {
+		diverted.remove();
+	}
+	
+	/**
+	 * @return The list the current thread is working with.
+	 */
+	private List<TyphonError> target() {
+		List<TyphonError> buffer = diverted.get();
+		return buffer == null ? errors : buffer;
+	}
+	
+	@Override
+	public TyphonError get(int index) {
+		return target().get(index);
+	}
+	
+	@Override
+	public int size() {
+		return target().size();
+	}
+	
+	@Override
+	public TyphonError set(int index, TyphonError element) {
+		return target().set(index, element);
+	}
+	
+	@Override
+	public void add(int index, TyphonError element) {
+		target().add(index, element);
+	}
+	
+	@Override
+	public TyphonError remove(int index) {
+		return target().remove(index);
+	}
+	
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		target().subList(fromIndex, toIndex).clear();
+	}
+}
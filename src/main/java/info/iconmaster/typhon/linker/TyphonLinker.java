@@ -107,8 +107,7 @@ public class TyphonLinker {
 			RawImport i = (RawImport) toResolve;
 			
 			Package resolvedTo = null;
-			for (File file : i.tni.rawImportLookupPaths) {
-				File toCheck = Paths.get(file.toString(), i.getImportData()).toFile();
+			for (File toCheck : getRawImportFiles(i)) {
 				if (toCheck.exists()) {
 					try {
 						resolvedTo = TyphonModelReader.parseFile(i.tni, toCheck);
@@ -138,6 +137,43 @@ public class TyphonLinker {
 		}
 	}
 	
+	/**
+	 * Finds every file a raw import could resolve to, in the order they're tried.
+	 * 
+	 * @param i
+	 * @return The files, whether or not they exist.
+	 */
+	public static List<File> getRawImportFiles(RawImport i) {
+		List<File> result = new ArrayList<>();
+		for (File file : i.tni.rawImportLookupPaths) {
+			result.add(Paths.get(file.toString(), i.getImportData()).toFile());
+		}
+		return result;
+	}
+	
+	/**
+	 * Finds every file the raw imports in a package and all subpackages could resolve to.
+	 * If none of these files change, the package will link the same way again.
+	 * 
+	 * @param p
+	 * @return The files, whether or not they exist.
+	 */
+	public static List<File> getRawImportFiles(Package p) {
+		List<File> result = new ArrayList<>();
+		
+		for (Import i : p.getImports()) {
+			if (i instanceof RawImport) {
+				result.addAll(getRawImportFiles((RawImport) i));
+			}
+		}
+		
+		for (Package pp : p.getSubpackges()) {
+			result.addAll(getRawImportFiles(pp));
+		}
+		
+		return result;
+	}
+	
 	/**
 	 * Given a package, finds all the imports in the package and all subpackages.
 	 * 
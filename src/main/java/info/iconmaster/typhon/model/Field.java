@@ -1,5 +1,6 @@
 package info.iconmaster.typhon.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -180,6 +181,15 @@ public class Field extends TyphonModelEntity implements MemberAccess {
 		
 		return TemplateUtils.replaceTemplates(getType(), templateMap).getMembers(templateMap);
 	}
+	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		if (type == null) {
+			return new ArrayList<>();
+		}
+		
+		return TemplateUtils.replaceTemplates(getType(), templateMap).getMembers(name, templateMap);
+	}
 
 	@Override
 	public MemberAccess getMemberParent() {
@@ -16,6 +16,8 @@ import info.iconmaster.typhon.types.FunctionType;
 import info.iconmaster.typhon.types.TemplateType;
 import info.iconmaster.typhon.types.Type;
 import info.iconmaster.typhon.types.TypeRef;
+import info.iconmaster.typhon.types.VirtualTable;
+import info.iconmaster.typhon.util.OverloadResolver;
 import info.iconmaster.typhon.util.SourceInfo;
 
 /**
@@ -283,20 +285,25 @@ public class Function extends TyphonModelEntity implements MemberAccess {
 	
 	private Package typePackage;
 	
-	public Package getTypePackage() {
-		if (typePackage != null) {
-			typePackage.getParent().removeSubpackage(typePackage);
-		}
+	public synchronized Package getTypePackage() {
+		Package parent = getParent() == null ? tni.corePackage : getParent();
 		
-		typePackage = new Package(source, null, getParent() == null ? tni.corePackage : getParent()) {
-			@Override
-			public MemberAccess getMemberParent() {
-				return Function.this;
-			}
-		};
+		if (typePackage == null) {
+			typePackage = new Package(source, null, parent) {
+				@Override
+				public MemberAccess getMemberParent() {
+					return Function.this;
+				}
+			};
+		} else if (typePackage.getParent() != parent) {
+			// this function has moved since we last saw it
+			typePackage.setParent(parent);
+		}
 		
 		for (TemplateType t : template) {
-			typePackage.addType(t);
+			if (t.getParent() != typePackage) {
+				typePackage.addType(t);
+			}
 		}
 		
 		return typePackage;
@@ -307,6 +314,11 @@ public class Function extends TyphonModelEntity implements MemberAccess {
 		return getTypePackage().getMembers(templateMap);
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		return getTypePackage().getMembers(name, templateMap);
+	}
+	
 	/**
 	 * @return True if this field is static. False if it belongs to an instance of some type.
 	 */
@@ -314,6 +326,28 @@ public class Function extends TyphonModelEntity implements MemberAccess {
 		return getFieldOf() == null;
 	}
 	
+	/**
+	 * The signature of this function, as returned by getSignature. Null if it hasn't been built yet.
+	 */
+	private volatile OverloadResolver.Signature signature;
+	
+	/**
+	 * The signature is only kept once the annotations of this function have been checked,
+	 * as that's what decides which parameters are varargs and varflags.
+	 * 
+	 * @return The arity and parameter names of this function.
+	 */
+	public OverloadResolver.Signature getSignature() {
+		OverloadResolver.Signature result = signature;
+		if (result == null) {
+			result = new OverloadResolver.Signature(this);
+			if (!needsAnnotsChecked()) {
+				signature = result;
+			}
+		}
+		return result;
+	}
+	
 	private List<Function> virtualBases = new ArrayList<>();
 	
 	public List<Function> getVirtualBases() {
@@ -330,8 +364,27 @@ public class Function extends TyphonModelEntity implements MemberAccess {
 		return virtualOverrides;
 	}
 	
+	/**
+	 * @param tni The input to look in.
+	 * @return The overrides of this function, including the ones the given input has made if this function is from the shared core package.
+	 */
+	public List<Function> getVirtualOverrides(TyphonInput tni) {
+		if (isStatic() || tni == this.tni) {
+			return getVirtualOverrides();
+		}
+		
+		List<Function> result = new ArrayList<>(virtualOverrides);
+		result.addAll(tni.corePackage.getOverrides(this));
+		return result;
+	}
+	
 	public static void setOverride(Function virtual, Function override) {
-		virtual.getVirtualOverrides().add(override);
+		if (virtual.tni == override.tni) {
+			virtual.getVirtualOverrides().add(override);
+		} else {
+			// the virtual function is from the shared core package, so the override belongs to the overriding input
+			override.tni.corePackage.addOverride(virtual, override);
+		}
 		override.getVirtualBases().add(virtual);
 		
 		if (!override.hasAnnot(override.tni.corePackage.ANNOT_OVERRIDE)) {
@@ -339,7 +392,19 @@ public class Function extends TyphonModelEntity implements MemberAccess {
 		}
 	}
 	
+	/**
+	 * @param expected The type the function is called on.
+	 * @return The virtual function this function overrides, or this function if it isn't an override.
+	 */
 	public Function getVirtualBase(Type expected) {
+		VirtualTable vtable = expected.getVirtualTable();
+		if (vtable != null) {
+			Function base = vtable.getVirtualBase(this);
+			if (base != null) {
+				return base;
+			}
+		}
+		
 		for (Function f : virtualBases) {
 			if (expected.canCastTo(new TypeRef(expected), new TypeRef(f.getFieldOf()))) {
 				return f;
@@ -349,9 +414,22 @@ public class Function extends TyphonModelEntity implements MemberAccess {
 		return this;
 	}
 	
+	/**
+	 * @param expected The type the function is called on.
+	 * @return The function that calling this function on an instance of the type actually calls.
+	 */
 	public Function getVirtualOverride(Type expected) {
-		for (int i = virtualOverrides.size()-1; i >= 0; i--) {
-			Function f = virtualOverrides.get(i);
+		VirtualTable vtable = expected.getVirtualTable();
+		if (vtable != null) {
+			Function override = vtable.getImplementation(this);
+			if (override != null) {
+				return override;
+			}
+		}
+		
+		List<Function> overrides = getVirtualOverrides(expected.tni);
+		for (int i = overrides.size()-1; i >= 0; i--) {
+			Function f = overrides.get(i);
 			if (expected.canCastTo(new TypeRef(expected), new TypeRef(f.getFieldOf()))) {
 				return f;
 			}
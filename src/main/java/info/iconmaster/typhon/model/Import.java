@@ -128,6 +128,7 @@ public abstract class Import extends TyphonModelEntity {
 	 */
 	public void isResolved(boolean resolved) {
 		this.resolved = resolved;
+		tni.lookupCache.invalidate();
 	}
 	
 	/**
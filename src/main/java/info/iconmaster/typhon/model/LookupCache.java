@@ -0,0 +1,139 @@
+package info.iconmaster.typhon.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class remembers the results of looking up names in packages, so the same name doesn't have to be looked up again.
+ * Each {@link info.iconmaster.typhon.TyphonInput} has one.
+ * <p>
+ * Any change to a package that could change what a lookup finds, like adding a function or resolving an import,
+ * increments a version number. Results remembered under an older version are never used.
+ * <p>
+ * This is safe to use from many threads at once.
+ * 
+ * @author iconmaster
+ *
+ */
+public class LookupCache {
+	/**
+	 * A package and a name looked up in it.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Key {
+		Package owner;
+		String name;
+		
+		public Key(Package owner, String name) {
+			this.owner = owner;
+			this.name = name;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && ((Key) other).owner == owner && ((Key) other).name.equals(name);
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(owner) * 31 + name.hashCode();
+		}
+	}
+	
+	/**
+	 * The result of a lookup, along with the version it was found in.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Entry {
+		long version;
+		List<MemberAccess> members;
+		
+		public Entry(long version, List<MemberAccess> members) {
+			this.version = version;
+			this.members = members;
+		}
+	}
+	
+	/**
+	 * The current version of the packages.
+	 */
+	private AtomicLong version = new AtomicLong();
+	
+	/**
+	 * The lookups we remember.
+	 */
+	private Map<Key, Entry> entries = new ConcurrentHashMap<>();
+	
+	/**
+	 * The number of lookups that were remembered.
+	 */
+	private LongAdder hits = new LongAdder();
+	
+	/**
+	 * The number of lookups that had to be done.
+	 */
+	private LongAdder misses = new LongAdder();
+	
+	/**
+	 * @return The current version of the packages. Get this before doing a lookup, and pass it to {@link #put}.
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+	
+	/**
+	 * Makes every remembered lookup stale. Call this whenever a package changes in a way that could change what a lookup finds.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+	}
+	
+	/**
+	 * @param owner
+	 * @param name
+	 * @return The members remembered for this lookup, or null if the lookup needs to be done. Do not modify this list!
+	 */
+	public List<MemberAccess> get(Package owner, String name) {
+		Entry entry = entries.get(new Key(owner, name));
+		if (entry != null && entry.version == version.get()) {
+			hits.increment();
+			return entry.members;
+		}
+		
+		misses.increment();
+		return null;
+	}
+	
+	/**
+	 * Remembers the result of a lookup.
+	 * 
+	 * @param owner
+	 * @param name
+	 * @param version The version from before the lookup was done.
+	 * @param members The members found. This list must not be modified afterwards.
+	 */
+	public void put(Package owner, String name, long version, List<MemberAccess> members) {
+		entries.put(new Key(owner, name), new Entry(version, members));
+	}
+	
+	/**
+	 * @return The number of lookups that were remembered.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return The number of lookups that had to be done.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
@@ -89,6 +89,27 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		this.name = name;
 		setParent(parent);
 	}
+	
+	/**
+	 * Creates a copy of another package, for use by a different input.
+	 * The tables of members are copied, so adding members to one package doesn't affect the other.
+	 * The members themselves are shared, and keep the original package as their parent.
+	 * 
+	 * @param tni The input the copy belongs to.
+	 * @param other The package to copy.
+	 */
+	protected Package(TyphonInput tni, Package other) {
+		super(tni, other.source);
+		this.name = other.name;
+		
+		other.functions.forEach((k, v)->functions.put(k, new ArrayList<>(v)));
+		other.subpackages.forEach((k, v)->subpackages.put(k, new ArrayList<>(v)));
+		other.definedAnnots.forEach((k, v)->definedAnnots.put(k, new ArrayList<>(v)));
+		fields.putAll(other.fields);
+		types.putAll(other.types);
+		imports.addAll(other.imports);
+		staticInitBlocks.addAll(other.staticInitBlocks);
+	}
 
 	/**
 	 * @return This package's name. If null, cannot be looked up from the parent package.
@@ -136,6 +157,10 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		}
 		
 		a.add(p);
+		
+		if (p.getName() != null) {
+			membersChanged();
+		}
 	}
 
 	/**
@@ -152,6 +177,10 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 				subpackages.remove(p.getName());
 			}
 		}
+		
+		if (p.getName() != null) {
+			membersChanged();
+		}
 	}
 
 	/**
@@ -204,6 +233,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		}
 
 		a.add(f);
+		membersChanged();
 	}
 
 	/**
@@ -224,6 +254,8 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 				functions.remove(f.getName());
 			}
 		}
+		
+		membersChanged();
 	}
 
 	/**
@@ -265,6 +297,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		f.setParent(this);
 		
 		fields.put(f.name, f);
+		membersChanged();
 	}
 
 	/**
@@ -276,6 +309,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		f.setParent(null);
 		
 		fields.remove(f.name, f);
+		membersChanged();
 	}
 
 	/**
@@ -315,6 +349,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		t.setParent(this);
 		
 		types.put(t.getName(), t);
+		membersChanged();
 	}
 
 	/**
@@ -329,6 +364,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		t.setParent(null);
 		
 		types.remove(t.getName(), t);
+		membersChanged();
 	}
 
 	/**
@@ -365,6 +401,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		i.setParent(this);
 		
 		imports.add(i);
+		membersChanged();
 	}
 
 	/**
@@ -375,6 +412,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		i.setParent(null);
 		
 		imports.remove(i);
+		membersChanged();
 	}
 
 	/**
@@ -408,6 +446,7 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		}
 
 		a.add(f);
+		membersChanged();
 	}
 
 	/**
@@ -425,6 +464,8 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 				definedAnnots.remove(f.getName());
 			}
 		}
+		
+		membersChanged();
 	}
 
 	/**
@@ -489,6 +530,13 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		return staticInitBlocks;
 	}
 	
+	/**
+	 * Called whenever this package changes in a way that could change what looking up a name in it finds.
+	 */
+	private void membersChanged() {
+		tni.lookupCache.invalidate();
+	}
+	
 	@Override
 	public void markAsLibrary() {
 		super.markAsLibrary();
@@ -521,6 +569,62 @@ public class Package extends TyphonModelEntity implements MemberAccess {
 		return a;
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		// what a package contains doesn't depend on the template map, so lookups are remembered by name alone
+		LookupCache cache = tni.lookupCache;
+		long version = cache.getVersion();
+		
+		List<MemberAccess> a = cache.get(this, name);
+		if (a == null) {
+			a = findMembers(name, templateMap);
+			cache.put(this, name, version, a);
+		}
+		
+		return new ArrayList<>(a);
+	}
+	
+	/**
+	 * Looks up a name in this package and its imports, without using the lookup cache.
+	 * 
+	 * @param name
+	 * @param templateMap
+	 * @return The members with the given name.
+	 */
+	private List<MemberAccess> findMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		ArrayList<MemberAccess> a = new ArrayList<>();
+		
+		// look the name up in each table, in the same order getMembers(templateMap) lists them
+		a.addAll(getSubpackagesWithName(name));
+		a.addAll(getFunctionsWithName(name));
+		
+		Field field = getField(name);
+		if (field != null) {
+			a.add(field);
+		}
+		
+		Type type = getType(name);
+		if (type != null) {
+			a.add(type);
+		}
+		
+		a.addAll(getAnnotDefsWithName(name));
+		
+		for (StaticInitBlock b : getStaticInitBlocks()) {
+			if (name.equals(b.getName())) {
+				a.add(b);
+			}
+		}
+		
+		for (Import i : getImports()) {
+			for (Package p : i.getResolvedTo()) {
+				a.addAll(p.getMembers(name, templateMap));
+			}
+		}
+		
+		return a;
+	}
+	
 	@Override
 	public MemberAccess getMemberParent() {
 		return getParent();
@@ -0,0 +1,130 @@
+package info.iconmaster.typhon.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import info.iconmaster.typhon.model.TyphonModelReader.ParsedFile;
+import info.iconmaster.typhon.util.FileUtils;
+
+/**
+ * This class remembers the parse trees of source files, so files that haven't changed don't have to be parsed again.
+ * A file is assumed to be unchanged if its contents hash the same as when it was last parsed.
+ * The file still has to be read each time, but that's much cheaper than lexing and parsing it.
+ * <p>
+ * Only so many parse trees are kept; once there are too many, the one used least recently is forgotten.
+ * <p>
+ * Parse trees are never modified once made, so one tree can be read into the packages of many different {@link info.iconmaster.typhon.TyphonInput}s.
+ * 
+ * @author iconmaster
+ *
+ */
+public class ParseCache {
+	/**
+	 * A parse tree, along with the state of the file when it was parsed.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Entry {
+		String hash;
+		ParsedFile parsed;
+		
+		public Entry(String hash, ParsedFile parsed) {
+			this.hash = hash;
+			this.parsed = parsed;
+		}
+	}
+	
+	/**
+	 * The number of parse trees kept if no other limit is given.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 4096;
+	
+	/**
+	 * The parse trees we know about, least recently used first.
+	 */
+	private Map<File, Entry> entries;
+	
+	/**
+	 * The number of times a file didn't need to be parsed again.
+	 */
+	private int hits;
+	
+	/**
+	 * The number of times a file needed to be parsed.
+	 */
+	private int misses;
+	
+	/**
+	 * Makes a cache that keeps up to {@link #DEFAULT_MAX_ENTRIES} parse trees.
+	 */
+	public ParseCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+	
+	/**
+	 * @param maxEntries The most parse trees to keep at once.
+	 */
+	public ParseCache(int maxEntries) {
+		entries = new LinkedHashMap<File, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<File, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+	
+	/**
+	 * Lexes and parses a source file, unless it was parsed before and hasn't changed since.
+	 * This is safe to call from many threads at once.
+	 * 
+	 * @param file
+	 * @return The parse tree, along with any syntax errors.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public ParsedFile parse(File file) throws IOException {
+		byte[] contents = Files.readAllBytes(file.toPath());
+		String hash = FileUtils.hash(contents);
+		
+		synchronized (this) {
+			Entry entry = entries.get(file);
+			if (entry != null && entry.hash.equals(hash)) {
+				hits++;
+				return entry.parsed;
+			}
+		}
+		
+		ParsedFile parsed = TyphonModelReader.parseTree(file, contents);
+		
+		synchronized (this) {
+			misses++;
+			entries.put(file, new Entry(hash, parsed));
+		}
+		
+		return parsed;
+	}
+	
+	/**
+	 * @return The number of times a file didn't need to be parsed again.
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * @return The number of times a file needed to be parsed.
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * @return The number of parse trees being kept.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+}
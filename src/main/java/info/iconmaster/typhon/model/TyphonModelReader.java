@@ -2,13 +2,12 @@ package info.iconmaster.typhon.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.antlr.v4.runtime.ANTLRFileStream;
-import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CommonTokenStream;
@@ -59,6 +58,8 @@ import info.iconmaster.typhon.types.EnumType.EnumChoice;
 import info.iconmaster.typhon.types.TemplateType;
 import info.iconmaster.typhon.types.UserType;
 import info.iconmaster.typhon.util.Box;
+import info.iconmaster.typhon.util.LineIndex;
+import info.iconmaster.typhon.util.LineIndex.IndexedInputStream;
 import info.iconmaster.typhon.util.SourceInfo;
 
 /**
@@ -72,16 +73,64 @@ public class TyphonModelReader {
 	private TyphonModelReader() {}
 	
 	/**
-	 * Reads a source file, and translates it into a Typhon package.
+	 * A source file that has been lexed and parsed, but not yet translated into a Typhon package.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	public static class ParsedFile {
+		/**
+		 * The file that was parsed.
+		 */
+		public File file;
+		
+		/**
+		 * The parse tree of the file. Null if parsing was cancelled.
+		 */
+		public RootContext root;
+		
+		/**
+		 * The syntax errors found in the file.
+		 */
+		public List<SyntaxError> errors = new ArrayList<>();
+		
+		/**
+		 * The line index of the file, made when it was lexed.
+		 */
+		public LineIndex lines;
+		
+		public ParsedFile(File file) {
+			this.file = file;
+		}
+	}
+	
+	/**
+	 * Lexes and parses a source file.
+	 * This doesn't touch any {@link TyphonInput}, so it is safe to parse many files at once on different threads.
 	 * 
-	 * @param tni
 	 * @param file
-	 * @return The package the source file encodes.
+	 * @return The parse tree, along with any syntax errors.
 	 * @throws IOException If the file cannot be read.
 	 */
-	public static Package parseFile(TyphonInput tni, File file) throws IOException {
+	public static ParsedFile parseTree(File file) throws IOException {
+		return parseTree(file, Files.readAllBytes(file.toPath()));
+	}
+	
+	/**
+	 * Lexes and parses the contents of a source file, already read in.
+	 * 
+	 * @param file
+	 * @param contents The contents of the file.
+	 * @return The parse tree, along with any syntax errors.
+	 */
+	public static ParsedFile parseTree(File file, byte[] contents) {
+		ParsedFile result = new ParsedFile(file);
+		
 		try {
-			TyphonLexer lexer = new TyphonLexer(new ANTLRFileStream(file.getPath()));
+			IndexedInputStream input = new IndexedInputStream(new String(contents), file.getPath());
+			result.lines = input.lines;
+			
+			TyphonLexer lexer = new TyphonLexer(input);
 			TyphonParser parser = new TyphonParser(new CommonTokenStream(lexer));
 			
 			parser.removeErrorListeners();
@@ -94,19 +143,53 @@ public class TyphonModelReader {
 						source = new SourceInfo(token);
 					} else {
 						source = new SourceInfo(file.getPath(), -1, -1);
+						source.lines = result.lines;
 					}
 					
-					tni.errors.add(new SyntaxError(source, msg));
+					result.errors.add(new SyntaxError(source, msg));
 				}
 			});
 			
-			RootContext root = parser.root();
-			Package p = new Package(new SourceInfo(root), null, tni.corePackage);
-			p.setRawData();
-			return readPackage(p, root.tnDecls);
+			result.root = parser.root();
 		} catch (ParseCancellationException e) {
-			return new Package(new SourceInfo(file.getPath(), 0, (int) file.length()-1), null, tni.corePackage);
+			result.root = null;
 		}
+		
+		return result;
+	}
+	
+	/**
+	 * Translates a parsed source file into a Typhon package.
+	 * 
+	 * @param tni
+	 * @param parsed
+	 * @return The package the source file encodes.
+	 */
+	public static Package readFile(TyphonInput tni, ParsedFile parsed) {
+		tni.errors.addAll(parsed.errors);
+		
+		if (parsed.root == null) {
+			SourceInfo source = new SourceInfo(parsed.file.getPath(), 0, (int) parsed.file.length()-1);
+			source.lines = parsed.lines;
+			return new Package(source, null, tni.corePackage);
+		}
+		
+		Package p = new Package(new SourceInfo(parsed.root), null, tni.corePackage);
+		p.setRawData();
+		return readPackage(p, parsed.root.tnDecls);
+	}
+	
+	/**
+	 * Reads a source file, and translates it into a Typhon package.
+	 * If the input has a {@link ParseCache}, the file is only parsed if it has changed.
+	 * 
+	 * @param tni
+	 * @param file
+	 * @return The package the source file encodes.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static Package parseFile(TyphonInput tni, File file) throws IOException {
+		return readFile(tni, tni.parseCache == null ? parseTree(file) : tni.parseCache.parse(file));
 	}
 	
 	/**
@@ -117,7 +200,7 @@ public class TyphonModelReader {
 	 * @return The package the input encodes.
 	 */
 	public static Package parseString(TyphonInput tni, String input) {
-		TyphonLexer lexer = new TyphonLexer(new ANTLRInputStream(input));
+		TyphonLexer lexer = new TyphonLexer(new IndexedInputStream(input, null));
 		TyphonParser parser = new TyphonParser(new CommonTokenStream(lexer));
 		
 		parser.setErrorHandler(new BailErrorStrategy());
@@ -1,10 +1,19 @@
 package info.iconmaster.typhon.model.libs;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import info.iconmaster.typhon.TyphonInput;
 import info.iconmaster.typhon.model.AnnotationDefinition;
+import info.iconmaster.typhon.model.Field;
 import info.iconmaster.typhon.model.Function;
 import info.iconmaster.typhon.model.Package;
 import info.iconmaster.typhon.model.Parameter;
@@ -19,6 +28,10 @@ import info.iconmaster.typhon.types.UserType;
  * This package contains data for built-in types and functions.
  * All packages derive from the core package.
  * The core package cannot have a parent.
+ * <p>
+ * Building the core package is expensive, so it's only built once, and then frozen and shared between inputs.
+ * Each input gets its own copy of the shared core package, to hold that input's packages.
+ * The built-in types, functions and annotations belong to the shared core package, and must not be modified.
  * 
  * @author iconmaster
  *
@@ -99,6 +112,16 @@ public class CorePackage extends Package {
 	 */
 	public CoreLibraryReflection LIB_REFLECT;
 	
+	/**
+	 * True if this package is shared between inputs, and can no longer have subpackages added.
+	 */
+	private boolean frozen;
+	
+	/**
+	 * The overrides this input has made of functions in the shared core package, grouped by overridden function.
+	 */
+	private Map<Function, List<Function>> overrides = new HashMap<>();
+	
 	private UserType makeUserType(String name, Type parent) {
 		UserType type = new UserType(name, parent);
 		addType(type);
@@ -212,6 +235,87 @@ public class CorePackage extends Package {
 		TYPE_ERROR_NULL.addMembers();
 	}
 	
+	/**
+	 * Creates a copy of the shared core package, for use by another input.
+	 * 
+	 * @param tni The input the copy belongs to.
+	 * @param shared The frozen core package to copy.
+	 */
+	public CorePackage(TyphonInput tni, CorePackage shared) {
+		super(tni, shared);
+		
+		TYPE_ANY = shared.TYPE_ANY;
+		TYPE_NUMBER = shared.TYPE_NUMBER; TYPE_INTEGER = shared.TYPE_INTEGER; TYPE_REAL = shared.TYPE_REAL;
+		TYPE_LIST = shared.TYPE_LIST;
+		TYPE_MAP = shared.TYPE_MAP;
+		TYPE_ERROR = shared.TYPE_ERROR;
+		TYPE_ERROR_INTERNAL = shared.TYPE_ERROR_INTERNAL; TYPE_ERROR_CAST = shared.TYPE_ERROR_CAST; TYPE_ERROR_ARGUMENT = shared.TYPE_ERROR_ARGUMENT; TYPE_ERROR_NULL = shared.TYPE_ERROR_NULL;
+		TYPE_ITERABLE = shared.TYPE_ITERABLE;
+		TYPE_ITERATOR = shared.TYPE_ITERATOR;
+		TYPE_BYTE = shared.TYPE_BYTE; TYPE_SHORT = shared.TYPE_SHORT; TYPE_INT = shared.TYPE_INT; TYPE_LONG = shared.TYPE_LONG;
+		TYPE_UBYTE = shared.TYPE_UBYTE; TYPE_USHORT = shared.TYPE_USHORT; TYPE_UINT = shared.TYPE_UINT; TYPE_ULONG = shared.TYPE_ULONG;
+		TYPE_FLOAT = shared.TYPE_FLOAT; TYPE_DOUBLE = shared.TYPE_DOUBLE;
+		TYPE_BOOL = shared.TYPE_BOOL; TYPE_STRING = shared.TYPE_STRING; TYPE_CHAR = shared.TYPE_CHAR;
+		
+		ANNOT_MAIN = shared.ANNOT_MAIN; ANNOT_VARARG = shared.ANNOT_VARARG; ANNOT_VARFLAG = shared.ANNOT_VARFLAG; ANNOT_STATIC = shared.ANNOT_STATIC;
+		ANNOT_OVERRIDE = shared.ANNOT_OVERRIDE; ANNOT_GETTER = shared.ANNOT_GETTER; ANNOT_SETTER = shared.ANNOT_SETTER; ANNOT_ABSTRACT = shared.ANNOT_ABSTRACT;
+		
+		FUNC_PRINT = shared.FUNC_PRINT; FUNC_PRINTLN = shared.FUNC_PRINTLN;
+		
+		LIB_MATH = shared.LIB_MATH;
+		LIB_OPS = shared.LIB_OPS;
+		LIB_REFLECT = shared.LIB_REFLECT;
+	}
+	
+	/**
+	 * Prepares this package to be shared between inputs.
+	 * Type packages, getters, and setters are normally made the first time they're needed; this makes them all now,
+	 * so that nothing in the shared core package changes while inputs are compiled in parallel.
+	 */
+	public synchronized void freeze() {
+		Set<Package> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<Package> packages = new ArrayDeque<>();
+		packages.push(this);
+		
+		while (!packages.isEmpty()) {
+			Package p = packages.pop();
+			if (!seen.add(p)) continue;
+			
+			packages.addAll(p == this ? getCoreSubpackages() : p.getSubpackges());
+			for (Type t : p.getTypes()) {
+				packages.push(t.getTypePackage());
+			}
+			for (Function f : p.getFunctions()) {
+				packages.push(f.getTypePackage());
+			}
+			for (Field f : p.getFields()) {
+				f.getGetter();
+				f.getSetter();
+			}
+		}
+		
+		frozen = true;
+	}
+	
+	/**
+	 * Records that a function in this input overrides a function in the shared core package.
+	 * Overrides can't be recorded in the core function itself, as that function is shared between inputs.
+	 * 
+	 * @param virtual The function in the shared core package.
+	 * @param override The function overriding it.
+	 */
+	public synchronized void addOverride(Function virtual, Function override) {
+		overrides.computeIfAbsent(virtual, (k)->new ArrayList<>()).add(override);
+	}
+	
+	/**
+	 * @param virtual A function in the shared core package.
+	 * @return The functions in this input that override it.
+	 */
+	public synchronized List<Function> getOverrides(Function virtual) {
+		return overrides.containsKey(virtual) ? new ArrayList<>(overrides.get(virtual)) : Arrays.asList();
+	}
+	
 	/**
 	 * This always returns null.
 	 * The core package cannot have a parent.
@@ -248,11 +352,41 @@ public class CorePackage extends Package {
 		return Arrays.asList();
 	}
 	
+	/**
+	 * Overriden to be thread-safe.
+	 * Every package without a parent ends up in the core package, so this can be called while compiling anything.
+	 * If this package is frozen, packages made for it since, like those of function types, are not recorded.
+	 */
+	@Override
+	public synchronized void addSubpackage(Package p) {
+		if (frozen) {
+			if (p.getParent() != this) {
+				throw new IllegalStateException("Cannot add subpackages to a frozen core package");
+			}
+			return;
+		}
+		
+		super.addSubpackage(p);
+	}
+	
+	/**
+	 * Overriden to be thread-safe.
+	 * Every package without a parent ends up in the core package, so this can be called while compiling anything.
+	 */
+	@Override
+	public synchronized void removeSubpackage(Package p) {
+		if (frozen && super.getSubpackagesWithName(p.getName()).contains(p)) {
+			throw new IllegalStateException("Cannot remove subpackages from a frozen core package");
+		}
+		
+		super.removeSubpackage(p);
+	}
+	
 	/**
 	 * @return The actual subpackages for this core package.
 	 * This includes libraries that have been imported and user packages.
 	 */
-	public List<Package> getCoreSubpackages() {
+	public synchronized List<Package> getCoreSubpackages() {
 		return super.getSubpackges();
 	}
 	
@@ -260,7 +394,7 @@ public class CorePackage extends Package {
 	 * @return The actual subpackages for this core package.
 	 * This includes libraries that have been imported and user packages.
 	 */
-	public List<Package> getCoreSubpackagesWithName(String s) {
+	public synchronized List<Package> getCoreSubpackagesWithName(String s) {
 		return super.getSubpackagesWithName(s);
 	}
 }
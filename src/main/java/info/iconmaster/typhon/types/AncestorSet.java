@@ -0,0 +1,73 @@
+package info.iconmaster.typhon.types;
+
+import java.util.BitSet;
+
+import info.iconmaster.typhon.TyphonInput;
+
+/**
+ * This is a set of types, stored as bitsets of type IDs, so checking if a type is in it takes constant time.
+ * {@link ExtendableType} uses it to hold a type and all its ancestors.
+ * <p>
+ * Type IDs are only unique within an input. A type can only derive from types of its own input and built-in types,
+ * so the built-in types are kept in a bitset of their own.
+ * 
+ * @author iconmaster
+ *
+ */
+class AncestorSet {
+	/**
+	 * The input whose types are kept in <tt>local</tt>.
+	 */
+	private final TyphonInput input;
+	
+	/**
+	 * The IDs of the types of <tt>input</tt> in this set.
+	 */
+	private final BitSet local = new BitSet();
+	
+	/**
+	 * The IDs of the built-in types in this set.
+	 */
+	private final BitSet core = new BitSet();
+	
+	public AncestorSet(TyphonInput input) {
+		this.input = input;
+	}
+	
+	/**
+	 * @param type
+	 * @return The bitset the ID of this type goes in, or null if this set can't hold it.
+	 */
+	private BitSet bitsFor(Type type) {
+		if (type.tni == input) {
+			return local;
+		} else if (type.tni.ownsSharedCore) {
+			return core;
+		} else {
+			return null;
+		}
+	}
+	
+	/**
+	 * @param type
+	 * @return False if this set can't hold the type.
+	 */
+	public boolean add(Type type) {
+		BitSet bits = bitsFor(type);
+		if (bits == null) {
+			return false;
+		}
+		
+		bits.set(type.getTypeId());
+		return true;
+	}
+	
+	/**
+	 * @param type
+	 * @return True if the type is in this set.
+	 */
+	public boolean contains(Type type) {
+		BitSet bits = bitsFor(type);
+		return bits != null && bits.get(type.getTypeId());
+	}
+}
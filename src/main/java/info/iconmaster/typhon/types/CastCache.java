@@ -0,0 +1,196 @@
+package info.iconmaster.typhon.types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.model.TemplateArgument;
+
+/**
+ * This class remembers the results of {@link TypeRef#canCastTo}, so the same pair of types doesn't have to be checked again.
+ * Each {@link TyphonInput} has one.
+ * <p>
+ * Results are keyed on the identities of the types involved and the template arguments given to them, so two references to
+ * the same instantiation of a type share their results.
+ * A result is kept in the cache of the input that owns the types. Checks that only involve built-in types are kept in the
+ * cache of the shared core package. Checks that involve the types of more than one input aren't remembered at all.
+ * <p>
+ * Like {@link info.iconmaster.typhon.model.LookupCache}, results are tagged with the lookup cache's version,
+ * as resolving types can change their parent types. Results remembered under an older version are never used.
+ * That version belongs to the whole input, so invalidating the lookup cache for any reason throws away every result here.
+ * Don't count on results surviving from one phase of compilation to the next.
+ * <p>
+ * Combo types and function types are made on the fly, and are compared by identity, so checks involving them aren't remembered.
+ * <p>
+ * A cache can be given a most number of results to hold. Once it's full, it forgets everything and starts over.
+ * The shared core package's cache lives as long as the program does, and is used by every input, so it's always bounded.
+ * <p>
+ * This is safe to use from many threads at once.
+ * 
+ * @author iconmaster
+ *
+ */
+public class CastCache {
+	/**
+	 * A pair of types being checked, flattened into a list, along with which input's cache it belongs in.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Key {
+		/**
+		 * The types, template argument counts and labels of both type references, in order.
+		 */
+		List<Object> parts = new ArrayList<>();
+		
+		/**
+		 * The input whose cache this key belongs in.
+		 */
+		TyphonInput owner;
+		
+		/**
+		 * False if this check can't be remembered.
+		 */
+		boolean cacheable = true;
+		
+		public Key(TypeRef a, TypeRef b) {
+			add(a);
+			add(b);
+		}
+		
+		private void add(TypeRef ref) {
+			Type type = ref.getType();
+			
+			// combo and function types are made on the fly, so remembering them would only fill the cache
+			if (type == null || type instanceof ComboType || type instanceof FunctionType) {
+				cacheable = false;
+				return;
+			}
+			
+			if (owner == null || (owner.ownsSharedCore && !type.tni.ownsSharedCore)) {
+				owner = type.tni;
+			} else if (owner != type.tni && !type.tni.ownsSharedCore) {
+				cacheable = false;
+				return;
+			}
+			
+			parts.add(type);
+			parts.add(ref.getTemplateArgs().size());
+			
+			for (TemplateArgument arg : ref.getTemplateArgs()) {
+				if (!cacheable || arg.getValue() == null) {
+					cacheable = false;
+					return;
+				}
+				
+				parts.add(arg.getLabel());
+				add(arg.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * The result of a check, along with the version it was found in.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Entry {
+		long version;
+		boolean result;
+		
+		public Entry(long version, boolean result) {
+			this.version = version;
+			this.result = result;
+		}
+	}
+	
+	/**
+	 * The checks we remember.
+	 */
+	private Map<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+	
+	/**
+	 * The most checks we remember at once.
+	 */
+	private final int maxEntries;
+	
+	/**
+	 * The number of checks that were remembered.
+	 */
+	private LongAdder hits = new LongAdder();
+	
+	/**
+	 * The number of checks that had to be done.
+	 */
+	private LongAdder misses = new LongAdder();
+	
+	/**
+	 * Makes a cache that can hold any number of results.
+	 */
+	public CastCache() {
+		this(Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @param maxEntries The most results to hold. When more are found, everything is forgotten.
+	 */
+	public CastCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+	
+	/**
+	 * Returns true if <tt>a</tt> can be safely converted to <tt>b</tt>, using the cache if possible.
+	 * 
+	 * @param a A type.
+	 * @param b Another type.
+	 * @return True if <tt>a</tt> can be safely converted to <tt>b</tt>.
+	 */
+	public static boolean canCastTo(TypeRef a, TypeRef b) {
+		Key key = new Key(a, b);
+		if (!key.cacheable) {
+			return a.getType().canCastTo(a, b);
+		}
+		
+		CastCache cache = key.owner.castCache;
+		long version = key.owner.lookupCache.getVersion();
+		
+		Entry entry = cache.entries.get(key.parts);
+		if (entry != null && entry.version == version) {
+			cache.hits.increment();
+			return entry.result;
+		}
+		
+		cache.misses.increment();
+		boolean result = a.getType().canCastTo(a, b);
+		if (cache.entries.size() >= cache.maxEntries) {
+			cache.entries.clear();
+		}
+		cache.entries.put(key.parts, new Entry(version, result));
+		return result;
+	}
+	
+	/**
+	 * @return The number of results held.
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * @return The number of checks that were remembered.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return The number of checks that had to be done.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
@@ -54,6 +54,11 @@ public class ComboType extends ExtendableType {
 		return getParentTypes().stream().flatMap(t->t.getMembers(templateMap).stream()).collect(Collectors.toList());
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		return getParentTypes().stream().flatMap(t->t.getMembers(name, templateMap).stream()).collect(Collectors.toList());
+	}
+	
 	@Override
 	public Map<TemplateType, TypeRef> getTemplateMap(Map<TemplateType, TypeRef> templateMap) {
 		return getParentTypes().stream().map(t->t.getTemplateMap(templateMap)).reduce(new HashMap<>(), (a,b)->{
@@ -78,6 +78,11 @@ public class EnumType extends UserType {
 		public List<MemberAccess> getMembers(Map<TemplateType, TypeRef> templateMap) {
 			return parent.getMembers(templateMap);
 		}
+		
+		@Override
+		public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+			return parent.getMembers(name, templateMap);
+		}
 
 		@Override
 		public MemberAccess getMemberParent() {
@@ -119,11 +124,24 @@ public class EnumType extends UserType {
 	}
 	
 	@Override
-	public List<MemberAccess> getMembers(Map<TemplateType, TypeRef> templateMap) {
-		List<MemberAccess> a = super.getMembers(templateMap);
+	public List<MemberAccess> getDeclaredMembers(Map<TemplateType, TypeRef> templateMap) {
+		List<MemberAccess> a = super.getDeclaredMembers(templateMap);
 		
 		a.addAll(getChoices());
 		
 		return a;
 	}
+	
+	@Override
+	public List<MemberAccess> getDeclaredMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		List<MemberAccess> a = super.getDeclaredMembers(name, templateMap);
+		
+		for (EnumChoice choice : getChoices()) {
+			if (name.equals(choice.getName())) {
+				a.add(choice);
+			}
+		}
+		
+		return a;
+	}
 }
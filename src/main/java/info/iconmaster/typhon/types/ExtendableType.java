@@ -2,10 +2,19 @@ package info.iconmaster.typhon.types;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.model.Field;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.MemberAccess;
+import info.iconmaster.typhon.model.StaticInitBlock;
 import info.iconmaster.typhon.util.SourceInfo;
 
 /**
@@ -16,10 +25,60 @@ import info.iconmaster.typhon.util.SourceInfo;
  *
  */
 public abstract class ExtendableType extends Type {
+	/**
+	 * Everything getAllParents builds. It's all published at once, so nobody can see parts of it from different versions.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Ancestry {
+		/**
+		 * The version of the lookup cache this was built at.
+		 * The type resolver invalidates the lookup cache after it sets parent types, which makes this stale too.
+		 */
+		final long version;
+		
+		/**
+		 * The flattened list of ancestors, as returned by getAllParents.
+		 */
+		final List<TypeRef> parents;
+		
+		/**
+		 * The erased types of this type and all its ancestors.
+		 * Null if any ancestor isn't a plain class, as subtyping then depends on more than just the hierarchy.
+		 */
+		final AncestorSet ancestors;
+		
+		/**
+		 * The results of commonTypeErased with this type on the left, keyed by the type on the right.
+		 * Null if <tt>ancestors</tt> is.
+		 */
+		final Map<Type, TypeRef> commonTypes;
+		
+		public Ancestry(long version, List<TypeRef> parents, AncestorSet ancestors) {
+			this.version = version;
+			this.parents = parents;
+			this.ancestors = ancestors;
+			this.commonTypes = ancestors == null ? null : new ConcurrentHashMap<>();
+		}
+	}
+	
 	/**
 	 * The parent type. Cannot be null.
 	 */
 	private List<TypeRef> parentTypes = new ArrayList<>();
+	
+	/**
+	 * The ancestors of this type. Null if they haven't been found yet.
+	 * They're only kept once this type and all its ancestors have had their types resolved.
+	 */
+	private volatile Ancestry ancestry;
+	
+	/**
+	 * The dispatch table of this type, as returned by getVirtualTable. Null if it hasn't been built yet.
+	 * It's stale if its version isn't the lookup cache's.
+	 */
+	private volatile VirtualTable virtualTable;
 
 	public ExtendableType(TyphonInput input, SourceInfo source) {
 		super(input, source);
@@ -56,28 +115,408 @@ public abstract class ExtendableType extends Type {
 		return parentTypes;
 	}
 	
+	/**
+	 * @return Every ancestor of this type, each listed once, nearest ancestors first.
+	 * Ancestors reachable by more than one path (as in diamond inheritance) are only listed the first time they're found.
+	 * Do not modify the list this returns!
+	 */
 	public List<TypeRef> getAllParents() {
+		long version = tni.lookupCache.getVersion();
+		Ancestry cached = ancestry;
+		if (cached != null && cached.version == version) {
+			return cached.parents;
+		}
+		
 		List<TypeRef> result = new ArrayList<>();
-		result.addAll(getParentTypes());
+		boolean resolved = !needsTypesResolved() && !(this instanceof ComboType);
+		
+		// seen has the types of everything in result, so most parents can be checked for without searching result
+		AncestorSet seen = new AncestorSet(tni);
+		boolean erasable = seen.add(this);
+		
+		for (TypeRef parentType : getParentTypes()) {
+			erasable &= addParent(result, seen, parentType);
+		}
+		
+		for (int i = 0; i < result.size(); i++) {
+			Type type = result.get(i).getType();
+			
+			if (type instanceof ExtendableType) {
+				if (type.needsTypesResolved()) {
+					resolved = false;
+				}
+				
+				for (TypeRef parentType : ((ExtendableType)type).getParentTypes()) {
+					erasable &= addParent(result, seen, parentType);
+				}
+			} else if (!(type instanceof AnyType)) {
+				erasable = false;
+			}
+		}
+		
+		if (resolved) {
+			result = Collections.unmodifiableList(result);
+			ancestry = new Ancestry(version, result, erasable ? seen : null);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Adds a parent to a list of ancestors being built, if it's not there already.
+	 * 
+	 * @param result The ancestors found so far.
+	 * @param seen The types of the ancestors found so far.
+	 * @param parentType The parent to add.
+	 * @return False if the parent's type couldn't be put in <tt>seen</tt>.
+	 */
+	private static boolean addParent(List<TypeRef> result, AncestorSet seen, TypeRef parentType) {
+		Type type = parentType.getType();
+		
+		if (type != null && !seen.contains(type)) {
+			result.add(parentType);
+			return seen.add(type);
+		}
+		
+		// this type was seen before, but maybe with different template arguments
+		if (!result.contains(parentType)) {
+			result.add(parentType);
+		}
+		return type != null && seen.contains(type);
+	}
+	
+	/**
+	 * @return The set of this type and its ancestors, or null if it can't be used to check for subtypes.
+	 */
+	AncestorSet getAncestorSet() {
+		Ancestry result = getAncestry();
+		return result == null ? null : result.ancestors;
+	}
+	
+	/**
+	 * @return The ancestors of this type, or null if they can't be kept yet.
+	 */
+	private Ancestry getAncestry() {
+		getAllParents();
+		
+		Ancestry result = ancestry;
+		return result != null && result.version == tni.lookupCache.getVersion() ? result : null;
+	}
+	
+	/**
+	 * Checks if <tt>a</tt> can be cast to <tt>b</tt> by looking only at their types, and not their template arguments.
+	 * This works when <tt>a</tt> is a class whose ancestors are all classes, as <tt>b</tt> must then be one of them.
+	 * 
+	 * @param a A type.
+	 * @param b Another type.
+	 * @return The result of <tt>a.canCastTo(b)</tt>, or null if it can't be found this way.
+	 */
+	static Boolean canCastErased(TypeRef a, TypeRef b) {
+		Type typeA = a.getType();
+		Type typeB = b.getType();
+		
+		if (!(typeA instanceof ExtendableType) || typeA instanceof ComboType) {
+			return null;
+		}
+		
+		if (!(typeB instanceof AnyType) && (!(typeB instanceof ExtendableType) || typeB instanceof ComboType)) {
+			return null;
+		}
+		
+		AncestorSet set = ((ExtendableType)typeA).getAncestorSet();
+		if (set == null) {
+			return null;
+		}
+		
+		if (!set.contains(typeB)) {
+			return false;
+		}
+		
+		// b is an ancestor; if it takes no template arguments, there's nothing else to check
+		return typeB.getMemberTemplate().isEmpty() ? true : null;
+	}
+	
+	/**
+	 * Finds the common type of <tt>a</tt> and <tt>b</tt> from their ancestor sets.
+	 * This works when both are classes whose ancestors are all classes, and no templates are involved.
+	 * <p>
+	 * The common type is the most specific type that is an ancestor of both. If there's more than one, as can happen
+	 * with multiple inheritance, it's a {@link ComboType} of them, in the order they're found in <tt>a</tt>'s ancestors.
+	 * Results are remembered, so the same ComboType is given each time.
+	 * 
+	 * @param a A type.
+	 * @param b Another type.
+	 * @return The result of <tt>a.commonType(b)</tt>, or null if it can't be found this way.
+	 */
+	static TypeRef commonTypeErased(TypeRef a, TypeRef b) {
+		if (!a.getTemplateArgs().isEmpty() || !b.getTemplateArgs().isEmpty()) {
+			return null;
+		}
+		
+		Type typeA = a.getType();
+		Type typeB = b.getType();
+		
+		if (typeA instanceof AnyType && (typeB instanceof AnyType || isPlainClass(typeB))) {
+			return new TypeRef(typeA);
+		} else if (typeB instanceof AnyType && isPlainClass(typeA)) {
+			return new TypeRef(typeB);
+		} else if (!isPlainClass(typeA) || !isPlainClass(typeB)) {
+			return null;
+		}
+		
+		ExtendableType extA = (ExtendableType) typeA;
+		ExtendableType extB = (ExtendableType) typeB;
+		
+		Ancestry ancestryA = extA.getAncestry();
+		AncestorSet setB = extB.getAncestorSet();
+		if (ancestryA == null || ancestryA.ancestors == null || setB == null) {
+			return null;
+		}
+		
+		AncestorSet setA = ancestryA.ancestors;
+		Map<Type, TypeRef> memo = ancestryA.commonTypes;
+		
+		TypeRef result = memo.get(typeB);
+		if (result != null) {
+			return result.copy();
+		}
+		
+		if (!extA.isTemplateFree() || !extB.isTemplateFree()) {
+			return null;
+		}
+		
+		// find the ancestors of a that are also ancestors of b
+		List<Type> commons = new ArrayList<>();
+		if (setB.contains(typeA)) {
+			commons.add(typeA);
+		}
+		for (TypeRef parent : extA.getAllParents()) {
+			if (setB.contains(parent.getType())) {
+				commons.add(parent.getType());
+			}
+		}
+		
+		// keep only the most specific ones, by marking the ancestors of each one
+		// a common type that's already marked has had its ancestors marked too, so it can be skipped
+		AncestorSet covered = new AncestorSet(extA.tni);
+		for (Type common : commons) {
+			if (common instanceof ExtendableType && !covered.contains(common)) {
+				for (TypeRef parent : ((ExtendableType)common).getAllParents()) {
+					covered.add(parent.getType());
+				}
+			}
+		}
+		
+		List<TypeRef> lowest = new ArrayList<>();
+		for (Type common : commons) {
+			if (!covered.contains(common)) {
+				lowest.add(new TypeRef(common));
+			}
+		}
+		
+		if (lowest.isEmpty()) {
+			result = new TypeRef(a.tni.corePackage.TYPE_ANY);
+		} else if (lowest.size() == 1) {
+			result = lowest.get(0);
+		} else {
+			result = new TypeRef(new ComboType(extA.tni, lowest.toArray(new TypeRef[0])));
+		}
+		
+		TypeRef old = memo.putIfAbsent(typeB, result);
+		return (old == null ? result : old).copy();
+	}
+	
+	/**
+	 * @return True if this is a class, and not a ComboType.
+	 */
+	private static boolean isPlainClass(Type type) {
+		return type instanceof ExtendableType && !(type instanceof ComboType);
+	}
+	
+	/**
+	 * @return True if neither this type nor any of its ancestors take template arguments.
+	 */
+	private boolean isTemplateFree() {
+		if (!getMemberTemplate().isEmpty()) {
+			return false;
+		}
 		
-		boolean addedToResult = true;
-		while (addedToResult) {
-			if (addedToResult) {
-				addedToResult = false;
+		for (TypeRef parent : getAllParents()) {
+			if (!parent.getTemplateArgs().isEmpty() || !parent.getType().getMemberTemplate().isEmpty()) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return This type followed by each of its ancestors, in the same order as getAllParents.
+	 * Returns null if an ancestor is a template, as looking up its members depends on what it's bound to.
+	 */
+	private List<Type> getFlattenedTypes() {
+		List<Type> result = new ArrayList<>();
+		result.add(this);
+		
+		for (TypeRef parent : getAllParents()) {
+			if (parent.getType() instanceof TemplateType) {
+				return null;
+			}
+			
+			if (parent.getType() != null && !result.contains(parent.getType())) {
+				result.add(parent.getType());
+			}
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public List<MemberAccess> getMembers(Map<TemplateType, TypeRef> templateMap) {
+		List<Type> types = getFlattenedTypes();
+		if (types == null) {
+			List<MemberAccess> a = super.getMembers(templateMap);
+			
+			for (TypeRef t : getParentTypes()) {
+				a.addAll(t.getMembers(templateMap));
 			}
 			
-			for (TypeRef type : new ArrayList<>(result)) {
-				if (type.getType() instanceof ExtendableType) {
-					for (TypeRef parentType : ((ExtendableType)type.getType()).getParentTypes()) {
-						if (!result.contains(parentType)) {
-							result.add(parentType);
-							addedToResult = true;
-						}
-					}
+			return a;
+		}
+		
+		List<MemberAccess> a = new ArrayList<>();
+		for (Type type : types) {
+			a.addAll(type.getDeclaredMembers(templateMap));
+		}
+		return a;
+	}
+	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		List<Type> types = getFlattenedTypes();
+		if (types == null) {
+			List<MemberAccess> a = super.getMembers(name, templateMap);
+			
+			for (TypeRef t : getParentTypes()) {
+				a.addAll(t.getMembers(name, templateMap));
+			}
+			
+			return a;
+		}
+		
+		List<MemberAccess> a = new ArrayList<>();
+		for (Type type : types) {
+			a.addAll(type.getDeclaredMembers(name, templateMap));
+		}
+		return a;
+	}
+	
+	@Override
+	protected List<Function> getOperatorCandidates() {
+		List<Type> types = getFlattenedTypes();
+		if (types == null) {
+			return super.getOperatorCandidates();
+		}
+		
+		List<Function> result = new ArrayList<>();
+		for (Type type : types) {
+			for (Function f : type.getTypePackage().getFunctions()) {
+				if (!f.isStatic()) {
+					result.add(f);
+				}
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public Set<Field> getAllFields() {
+		List<Type> types = getFlattenedTypes();
+		if (types == null) {
+			return super.getAllFields();
+		}
+		
+		Set<Field> result = new HashSet<>();
+		for (Type type : types) {
+			for (Field f : type.getTypePackage().getFields()) {
+				if (!f.isStatic()) {
+					result.add(f);
+				}
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public VirtualTable getVirtualTable() {
+		long version = tni.lookupCache.getVersion();
+		VirtualTable table = virtualTable;
+		if (table != null && table.version == version) {
+			return table;
+		}
+		
+		// combo types are made on the fly, so they aren't worth a table
+		List<Type> types = getFlattenedTypes();
+		if (types == null || this instanceof ComboType) {
+			return null;
+		}
+		
+		// overrides are only linked once the annotations are checked
+		for (Type type : types) {
+			if (type.needsTypesResolved() || type.needsAnnotsChecked()) {
+				return null;
+			}
+			
+			for (Function f : type.getTypePackage().getFunctions()) {
+				if (f.needsTypesResolved() || f.needsAnnotsChecked()) {
+					return null;
 				}
 			}
 		}
 		
+		VirtualTable primary = null;
+		if (!getParentTypes().isEmpty() && getParentTypes().get(0).getType() instanceof ExtendableType) {
+			primary = getParentTypes().get(0).getType().getVirtualTable();
+		}
+		
+		table = new VirtualTable(this, types, primary, version);
+		virtualTable = table;
+		return table;
+	}
+	
+	@Override
+	public Set<Function> getAllMethods(boolean includeVirtualBases) {
+		List<Type> types = getFlattenedTypes();
+		if (types == null) {
+			return super.getAllMethods(includeVirtualBases);
+		}
+		
+		Set<Function> result = new HashSet<>();
+		for (Type type : types) {
+			for (Function f : type.getTypePackage().getFunctions()) {
+				if (!f.isStatic()) {
+					result.add(includeVirtualBases ? f : f.getVirtualOverride(this));
+				}
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public Set<StaticInitBlock> getAllInstanceInitBlocks() {
+		List<Type> types = getFlattenedTypes();
+		if (types == null) {
+			return super.getAllInstanceInitBlocks();
+		}
+		
+		Set<StaticInitBlock> result = new HashSet<>();
+		for (Type type : types) {
+			for (StaticInitBlock block : type.getTypePackage().getStaticInitBlocks()) {
+				if (!block.isStatic()) {
+					result.add(block);
+				}
+			}
+		}
 		return result;
 	}
 }
@@ -2,7 +2,11 @@ package info.iconmaster.typhon.types;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import info.iconmaster.typhon.TyphonInput;
@@ -17,6 +21,83 @@ public class FunctionType extends Type {
 	private List<TypeRef> argTypes = new ArrayList<>();
 	private List<TypeRef> retTypes = new ArrayList<>();
 	private List<TemplateType> template = new ArrayList<>();
+	
+	/**
+	 * The free templates of a function type, and the results of replacing them, as of one version of the lookup cache.
+	 * Both are published at once, so results are never mixed up with the templates of another version.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class Substitutions {
+		/**
+		 * The version of the lookup cache this was made at.
+		 */
+		final long version;
+		
+		/**
+		 * The templates that occur in the argument and return types.
+		 */
+		final List<TemplateType> freeTemplates;
+		
+		/**
+		 * The results of replaceTemplates, keyed by the replacements made for each of the free templates.
+		 */
+		final Map<SubstitutionKey, FunctionType> results = new ConcurrentHashMap<>();
+		
+		public Substitutions(long version, List<TemplateType> freeTemplates) {
+			this.version = version;
+			this.freeTemplates = freeTemplates;
+		}
+	}
+	
+	/**
+	 * The templates replaced, each followed by the interned reference it was replaced with.
+	 * Interned references can't change, and each one is unique (flags included), so they're compared by identity.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class SubstitutionKey {
+		final Object[] parts;
+		
+		public SubstitutionKey(Object[] parts) {
+			this.parts = parts;
+		}
+		
+		@Override
+		public int hashCode() {
+			int result = 1;
+			for (Object part : parts) {
+				result = 31 * result + System.identityHashCode(part);
+			}
+			return result;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SubstitutionKey)) {
+				return false;
+			}
+			
+			Object[] other = ((SubstitutionKey) obj).parts;
+			if (other.length != parts.length) {
+				return false;
+			}
+			
+			for (int i = 0; i < parts.length; i++) {
+				if (parts[i] != other[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * The free templates of this type and the results of replacing them, or null if they haven't been found yet.
+	 */
+	private volatile Substitutions substitutions;
 
 	public FunctionType(TyphonInput input) {
 		super(input);
@@ -110,8 +191,84 @@ public class FunctionType extends Type {
 		return getTemplate();
 	}
 	
+	/**
+	 * @return The templates that occur in the argument and return types of this function type.
+	 * If this is empty, replacing templates in this type never changes it.
+	 */
+	public List<TemplateType> getFreeTemplates() {
+		return getSubstitutions().freeTemplates;
+	}
+	
+	/**
+	 * @return The free templates of this type and the results of replacing them, as of the current version of the lookup cache.
+	 */
+	private Substitutions getSubstitutions() {
+		long version = tni.lookupCache.getVersion();
+		Substitutions result = substitutions;
+		if (result != null && result.version == version) {
+			return result;
+		}
+		
+		List<TemplateType> found = new ArrayList<>();
+		for (TypeRef argType : argTypes) {
+			TemplateUtils.findTemplates(argType, found);
+		}
+		for (TypeRef retType : retTypes) {
+			TemplateUtils.findTemplates(retType, found);
+		}
+		
+		result = new Substitutions(version, Collections.unmodifiableList(found));
+		substitutions = result;
+		return result;
+	}
+	
+	/**
+	 * Replaces templates in the argument and return types of this function type. See {@link TemplateUtils#replaceTemplates}.
+	 * Results are remembered, so the same replacements give the same function type.
+	 * The replacements are interned first, so a remembered result never changes along with the caller's references.
+	 * 
+	 * @param newTypes A map of templates to their replacements.
+	 * @return The function type with templates replaced. This is <tt>this</tt> if nothing changes.
+	 */
+	public FunctionType replaceTemplates(Map<TemplateType, TypeRef> newTypes) {
+		Substitutions subs = getSubstitutions();
+		
+		List<Object> parts = new ArrayList<>();
+		Map<TemplateType, TypeRef> interned = new HashMap<>();
+		for (TemplateType t : subs.freeTemplates) {
+			TypeRef value = newTypes.get(t);
+			if (value != null) {
+				value = value.intern();
+				parts.add(t);
+				parts.add(value);
+				interned.put(t, value);
+			}
+		}
+		
+		if (parts.isEmpty()) {
+			return this;
+		}
+		
+		SubstitutionKey key = new SubstitutionKey(parts.toArray());
+		FunctionType result = subs.results.get(key);
+		if (result != null) {
+			return result;
+		}
+		
+		result = new FunctionType(tni, source);
+		for (TypeRef argType : argTypes) {
+			result.argTypes.add(TemplateUtils.replaceTemplates(argType, interned));
+		}
+		for (TypeRef retType : retTypes) {
+			result.retTypes.add(TemplateUtils.replaceTemplates(retType, interned));
+		}
+		
+		FunctionType old = subs.results.putIfAbsent(key, result);
+		return old == null ? result : old;
+	}
+	
 	@Override
-	public Package getTypePackage() {
+	public synchronized Package getTypePackage() {
 		if (typePackage == null) {
 			typePackage = new Package(source, null, tni.corePackage) {
 				@Override
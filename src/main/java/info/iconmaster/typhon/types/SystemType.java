@@ -3,11 +3,9 @@ package info.iconmaster.typhon.types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import info.iconmaster.typhon.TyphonInput;
-import info.iconmaster.typhon.model.MemberAccess;
 import info.iconmaster.typhon.util.TemplateUtils;
 
 /**
@@ -52,17 +50,6 @@ public class SystemType extends ExtendableType {
 		return name;
 	}
 	
-	@Override
-	public List<MemberAccess> getMembers(Map<TemplateType, TypeRef> templateMap) {
-		List<MemberAccess> a = super.getMembers(templateMap);
-		
-		for (TypeRef t : getParentTypes()) {
-			a.addAll(t.getMembers(templateMap));
-		}
-		
-		return a;
-	}
-	
 	@Override
 	public boolean canCastTo(TypeRef a, TypeRef b) {
 		for (TypeRef parent : ((SystemType)a.getType()).getParentTypes()) {
@@ -0,0 +1,161 @@
+package info.iconmaster.typhon.types;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import info.iconmaster.typhon.model.TemplateArgument;
+
+/**
+ * This is the binding of a type's template parameters to the arguments of a {@link TypeRef}, with defaults filled in.
+ * It's made by {@link TypeRef#getTemplateArgMap}, and can't be changed.
+ * <p>
+ * Arguments are kept in an array, in the same order as the type's template parameters.
+ * Types rarely have more than a few template parameters, so looking one up is a short scan.
+ * 
+ * @author iconmaster
+ *
+ */
+class TemplateMap extends AbstractMap<TemplateType, TypeRef> {
+	/**
+	 * The template parameters of the type.
+	 */
+	private final TemplateType[] keys;
+	
+	/**
+	 * The arguments for each template parameter.
+	 */
+	private final TypeRef[] values;
+	
+	/**
+	 * The type this map was made for.
+	 */
+	final Type type;
+	
+	/**
+	 * The labels of the reference's template arguments when this map was made.
+	 */
+	private final String[] argLabels;
+	
+	/**
+	 * The values of the reference's template arguments when this map was made.
+	 */
+	private final TypeRef[] argValues;
+	
+	/**
+	 * The version of the type's lookup cache this map was made at, as resolving types can change template defaults.
+	 */
+	final long version;
+	
+	/**
+	 * @param params The template parameters of the type.
+	 * @param map The arguments for each parameter.
+	 * @param type The type this map was made for.
+	 * @param args The template arguments of the reference.
+	 * @param version The version of the type's lookup cache.
+	 */
+	public TemplateMap(List<TemplateType> params, Map<TemplateType, TypeRef> map, Type type, List<TemplateArgument> args, long version) {
+		keys = params.toArray(new TemplateType[0]);
+		values = new TypeRef[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = map.get(keys[i]);
+		}
+		
+		argLabels = new String[args.size()];
+		argValues = new TypeRef[args.size()];
+		for (int i = 0; i < argValues.length; i++) {
+			argLabels[i] = args.get(i).getLabel();
+			argValues[i] = args.get(i).getValue();
+		}
+		
+		this.type = type;
+		this.version = version;
+	}
+	
+	/**
+	 * Template arguments can be replaced or changed after the map is made, so this is checked each time the map is used.
+	 * 
+	 * @param args The template arguments of a reference.
+	 * @return True if the arguments have the same labels and values as the ones this map was made from.
+	 */
+	boolean isMadeFrom(List<TemplateArgument> args) {
+		if (args.size() != argValues.length) {
+			return false;
+		}
+		
+		for (int i = 0; i < argValues.length; i++) {
+			TemplateArgument arg = args.get(i);
+			if (arg.getValue() != argValues[i] || !Objects.equals(arg.getLabel(), argLabels[i])) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return The position of the template parameter, or -1 if it isn't one.
+	 */
+	private int indexOf(Object key) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public TypeRef get(Object key) {
+		int i = indexOf(key);
+		return i == -1 ? null : values[i];
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) != -1;
+	}
+	
+	@Override
+	public int size() {
+		return keys.length;
+	}
+	
+	@Override
+	public Set<Entry<TemplateType, TypeRef>> entrySet() {
+		return new AbstractSet<Entry<TemplateType, TypeRef>>() {
+			@Override
+			public Iterator<Entry<TemplateType, TypeRef>> iterator() {
+				return new Iterator<Entry<TemplateType, TypeRef>>() {
+					int i = 0;
+					
+					@Override
+					public boolean hasNext() {
+						return i < keys.length;
+					}
+					
+					@Override
+					public Entry<TemplateType, TypeRef> next() {
+						if (i >= keys.length) {
+							throw new NoSuchElementException();
+						}
+						
+						Entry<TemplateType, TypeRef> entry = new SimpleImmutableEntry<>(keys[i], values[i]);
+						i++;
+						return entry;
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return keys.length;
+			}
+		};
+	}
+}
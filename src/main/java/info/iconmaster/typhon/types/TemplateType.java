@@ -132,6 +132,14 @@ public class TemplateType extends Type {
 		return TemplateUtils.replaceTemplates(baseType, templateMap).getMembers(templateMap);
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		if (templateMap.containsKey(this)) {
+			return templateMap.get(this).getMembers(name, templateMap);
+		}
+		return TemplateUtils.replaceTemplates(baseType, templateMap).getMembers(name, templateMap);
+	}
+	
 	@Override
 	public Package getTypePackage() {
 		return baseType.getType().getTypePackage();
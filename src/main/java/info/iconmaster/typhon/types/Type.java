@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.Stack;
 
 import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.model.Annotation;
 import info.iconmaster.typhon.model.AnnotationDefinition;
 import info.iconmaster.typhon.model.Field;
 import info.iconmaster.typhon.model.Function;
@@ -54,7 +55,7 @@ public abstract class Type extends TyphonModelEntity implements MemberAccess {
 	/**
 	 * @return The package that contains methods, fields, etc. for this type.
 	 */
-	public Package getTypePackage() {
+	public synchronized Package getTypePackage() {
 		if (typePackage == null) {
 			typePackage = new Package(source, null, parent == null ? tni.corePackage : parent) {
 				@Override
@@ -79,6 +80,60 @@ public abstract class Type extends TyphonModelEntity implements MemberAccess {
 		return parent;
 	}
 	
+	/**
+	 * The operator handlers of a type, along with when they were found.
+	 * Both are published at once, so nobody can see handlers with the version of a different table.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	private static class OperatorTable {
+		/**
+		 * The version of the lookup cache this table was built at.
+		 */
+		final long version;
+		
+		/**
+		 * The operator handlers, keyed by the operator they handle. Never modified once built.
+		 */
+		final Map<AnnotationDefinition, List<Function>> handlers;
+		
+		public OperatorTable(long version, Map<AnnotationDefinition, List<Function>> handlers) {
+			this.version = version;
+			this.handlers = handlers;
+		}
+	}
+	
+	/**
+	 * The operator handlers of this type, as returned by getOperatorHandlers.
+	 * Null if it hasn't been built yet. It's only kept once the annotations of every handler have been checked.
+	 */
+	private volatile OperatorTable operatorHandlers;
+	
+	/**
+	 * The ID of this type, or -1 if it hasn't been given one yet.
+	 */
+	private volatile int typeId = -1;
+	
+	/**
+	 * Type IDs are given out by this type's input the first time they're asked for, so types that are never
+	 * involved in a subtype check don't use one up. Types of different inputs may have the same ID.
+	 * 
+	 * @return The ID of this type, which is unique among the types of its input.
+	 */
+	public int getTypeId() {
+		int id = typeId;
+		if (id == -1) {
+			synchronized (this) {
+				id = typeId;
+				if (id == -1) {
+					typeId = id = tni.newTypeId();
+				}
+			}
+		}
+		return id;
+	}
+	
 	@Override
 	public MemberAccess getMemberParent() {
 		return getParent();
@@ -103,9 +158,31 @@ public abstract class Type extends TyphonModelEntity implements MemberAccess {
 	
 	@Override
 	public List<MemberAccess> getMembers(Map<TemplateType, TypeRef> templateMap) {
+		return getDeclaredMembers(templateMap);
+	}
+	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		return getDeclaredMembers(name, templateMap);
+	}
+	
+	/**
+	 * @param templateMap
+	 * @return The members declared in this type itself, not counting any inherited from parent types.
+	 */
+	public List<MemberAccess> getDeclaredMembers(Map<TemplateType, TypeRef> templateMap) {
 		return getTypePackage().getMembers(templateMap);
 	}
 	
+	/**
+	 * @param name
+	 * @param templateMap
+	 * @return The members with the given name declared in this type itself, not counting any inherited from parent types.
+	 */
+	public List<MemberAccess> getDeclaredMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		return getTypePackage().getMembers(name, templateMap);
+	}
+	
 	/**
 	 * This is called by {@link TypeRef} to check for casting.
 	 * Returns true if <tt>a</tt> can be safely converted to <tt>b</tt>.
@@ -156,19 +233,61 @@ public abstract class Type extends TyphonModelEntity implements MemberAccess {
 	}
 	
 	/**
+	 * The handlers for every operator are found at once, and kept until the type hierarchy changes.
+	 * 
 	 * @param op The operator to look for.
-	 * @return All the instance functions that are annotated as operator handlers for this type.
+	 * @return All the instance functions that are annotated as operator handlers for this type. This is a new list.
 	 */
 	public List<Function> getOperatorHandlers(AnnotationDefinition op) {
+		long version = tni.lookupCache.getVersion();
+		OperatorTable cached = operatorHandlers;
+		Map<AnnotationDefinition, List<Function>> table;
+		
+		if (cached != null && cached.version == version) {
+			table = cached.handlers;
+		} else {
+			table = new HashMap<>();
+			boolean checked = true;
+			
+			for (Function f : getOperatorCandidates()) {
+				if (f.needsAnnotsChecked() || f.needsTypesResolved()) {
+					checked = false;
+				}
+				
+				for (Annotation annot : f.getAnnots()) {
+					if (annot.getDefinition() == null) {
+						continue;
+					}
+					
+					List<Function> handlers = table.computeIfAbsent(annot.getDefinition(), k->new ArrayList<>());
+					if (handlers.isEmpty() || handlers.get(handlers.size()-1) != f) {
+						handlers.add(f);
+					}
+				}
+			}
+			
+			if (checked) {
+				operatorHandlers = new OperatorTable(version, table);
+			}
+		}
+		
+		List<Function> result = table.get(op);
+		return result == null ? new ArrayList<>() : new ArrayList<>(result);
+	}
+	
+	/**
+	 * @return All the instance functions of this type that could be operator handlers, in the order they should be tried.
+	 */
+	protected List<Function> getOperatorCandidates() {
 		List<MemberAccess> members = getMembers(new HashMap<>());
 		List<Function> result = new ArrayList<>();
 		
-		while (!members.isEmpty()) {
-			MemberAccess member = members.remove(0);
+		for (int i = 0; i < members.size(); i++) {
+			MemberAccess member = members.get(i);
 			
 			if (member instanceof Function) {
 				Function f = (Function) member;
-				if (this.canCastTo(new TypeRef(this), new TypeRef(f.getFieldOf())) && f.hasAnnot(op)) {
+				if (this.canCastTo(new TypeRef(this), new TypeRef(f.getFieldOf()))) {
 					result.add(f);
 				}
  			} else if (member instanceof Package || member instanceof TypeRef || member instanceof Type) {
@@ -243,6 +362,14 @@ public abstract class Type extends TyphonModelEntity implements MemberAccess {
 		return result;
 	}
 	
+	/**
+	 * @return The dispatch table of this type, or null if this type doesn't have one,
+	 * or if it can't be built until the annotations of its methods have been checked.
+	 */
+	public VirtualTable getVirtualTable() {
+		return null;
+	}
+	
 	public Set<Function> getAllMethods(boolean includeVirtualBases) {
 		Set<Function> result = new HashSet<>();
 		
@@ -2,6 +2,7 @@ package info.iconmaster.typhon.types;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -40,6 +41,22 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	 * True if this was declared with 'const'.
 	 */
 	private boolean isConst;
+	
+	/**
+	 * The table this reference was interned in, or null if it wasn't interned.
+	 * Interned references can't be changed, and there's only one of each in a table, so they can be compared with <tt>==</tt>.
+	 */
+	private TypeRefTable table;
+	
+	/**
+	 * The hash code of this reference. Only kept for interned references.
+	 */
+	private int hash;
+	
+	/**
+	 * The binding of template parameters to arguments, as returned by getTemplateArgMap. Null if it hasn't been made yet.
+	 */
+	private volatile TemplateMap templateArgMap;
 
 	public TypeRef(TyphonInput tni) {
 		super(tni);
@@ -71,11 +88,14 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	 * @param type The new type definition of this reference.
 	 */
 	public void setType(Type type) {
+		checkNotInterned();
 		this.type = type;
+		this.templateArgMap = null;
 	}
 
 	/**
 	 * @return The templates this type has been instantiated with. Must be empty if this type does not support templates.
+	 * If this reference is interned, this list can't be changed.
 	 */
 	public List<TemplateArgument> getTemplateArgs() {
 		return templateArgs;
@@ -90,6 +110,15 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 		return TemplateUtils.replaceTemplates(this, templateMap).getType().getMembers(templateMap);
 	}
 	
+	@Override
+	public List<MemberAccess> getMembers(String name, Map<TemplateType, TypeRef> templateMap) {
+		if (type == null) {
+			return new ArrayList<>();
+		}
+		
+		return TemplateUtils.replaceTemplates(this, templateMap).getType().getMembers(name, templateMap);
+	}
+	
 	@Override
 	public String getName() {
 		if (type == null) {
@@ -110,6 +139,7 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	 * @param isVar True if this was declared with 'var'.
 	 */
 	public void isVar(boolean isVar) {
+		checkNotInterned();
 		this.isVar = isVar;
 	}
 
@@ -124,16 +154,122 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	 * @param isConst True if this was declared with 'const'.
 	 */
 	public void isConst(boolean isConst) {
+		checkNotInterned();
 		this.isConst = isConst;
 	}
 	
+	/**
+	 * Returns the binding of this type's template parameters to the arguments of this reference, with defaults filled in
+	 * for any parameters not given. This is what {@link TemplateUtils#matchAllTemplateArgs(TypeRef)} returns.
+	 * <p>
+	 * The binding is only made once, and is made again if this reference's type or any of its template arguments change,
+	 * or if the type is resolved further. The returned map can't be changed.
+	 * 
+	 * @return The binding of template parameters to arguments.
+	 */
+	public Map<TemplateType, TypeRef> getTemplateArgMap() {
+		List<TemplateType> params = getMemberTemplate();
+		long version = type.tni.lookupCache.getVersion();
+		
+		TemplateMap result = templateArgMap;
+		if (result != null && result.type == type && result.size() == params.size() && result.version == version && result.isMadeFrom(templateArgs)) {
+			return result;
+		}
+		
+		result = new TemplateMap(params, TemplateUtils.matchAllTemplateArgs(params, templateArgs), type, templateArgs, version);
+		templateArgMap = result;
+		return result;
+	}
+	
+	/**
+	 * @throws IllegalStateException If this reference is interned.
+	 */
+	private void checkNotInterned() {
+		if (table != null) {
+			throw new IllegalStateException("cannot change an interned type reference; copy it first");
+		}
+	}
+	
+	/**
+	 * @return True if this reference is interned, and so can't be changed.
+	 */
+	public boolean isInterned() {
+		return table != null;
+	}
+	
+	/**
+	 * Returns the canonical, unchangeable reference with the same type, template arguments and flags as this one.
+	 * Each input has its own table of interned references. A reference only involving built-in types is interned in the
+	 * table of the input this reference belongs to, or in the bounded table of the shared core package if it belongs there too.
+	 * Tables can be emptied, so interned references are compared with <tt>equals</tt>, like any other.
+	 * The interned reference has no source information.
+	 * 
+	 * @return The interned reference. This is <tt>this</tt> if this reference is interned already.
+	 */
+	public TypeRef intern() {
+		if (table != null) {
+			return this;
+		}
+		
+		TyphonInput owner = type == null ? tni : type.tni;
+		List<TypeRef> values = new ArrayList<>();
+		for (TemplateArgument arg : templateArgs) {
+			TypeRef value = arg.getValue() == null ? null : arg.getValue().intern();
+			values.add(value);
+			
+			if (value != null && owner.ownsSharedCore) {
+				owner = value.table.tni;
+			}
+		}
+		
+		// keep references to built-in types out of the shared core's table where we can, as it outlives every input
+		if (owner.ownsSharedCore && !tni.ownsSharedCore) {
+			owner = tni;
+		}
+		
+		List<Object> key = new ArrayList<>();
+		key.add(type);
+		key.add(isVar);
+		key.add(isConst);
+		
+		List<TemplateArgument> args = new ArrayList<>();
+		for (int i = 0; i < templateArgs.size(); i++) {
+			TemplateArgument arg = templateArgs.get(i);
+			TypeRef value = values.get(i);
+			
+			key.add(arg.getLabel());
+			key.add(value);
+			
+			TemplateArgument newArg = new TemplateArgument(owner);
+			newArg.setLabel(arg.getLabel());
+			newArg.setValue(value);
+			args.add(newArg);
+		}
+		
+		TypeRefTable table = owner.typeRefs;
+		TypeRef result = table.get(key);
+		if (result != null) {
+			return result;
+		}
+		
+		result = new TypeRef(owner);
+		result.type = type;
+		result.isVar = isVar;
+		result.isConst = isConst;
+		result.templateArgs = Collections.unmodifiableList(args);
+		result.hash = result.hashCode();
+		result.table = table;
+		return table.add(key, result);
+	}
+	
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((templateArgs == null) ? 0 : templateArgs.hashCode());
-		result = prime * result + ((type == null) ? 0 : type.hashCode());
-		return result;
+		if (table != null) {
+			return hash;
+		}
+		
+		// template arguments aren't included, as equal references can list them differently
+		return (type == null) ? 0 : type.hashCode();
 	}
 	
 	@Override
@@ -146,18 +282,20 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 			return false;
 		TypeRef other = (TypeRef) obj;
 		
-		Map<TemplateType, TypeRef> map1 = TemplateUtils.matchAllTemplateArgs(this);
-		Map<TemplateType, TypeRef> map2 = TemplateUtils.matchAllTemplateArgs(other);
-		if (!map1.equals(map2)) {
-			return false;
-		}
-		
 		if (type == null) {
 			if (other.type != null)
 				return false;
 		} else if (!type.equals(other.type))
 			return false;
-		return true;
+		
+		// with no arguments given on either side, the templates of both are just the defaults of the same type
+		if (templateArgs.isEmpty() && other.templateArgs.isEmpty()) {
+			return true;
+		}
+		
+		Map<TemplateType, TypeRef> map1 = TemplateUtils.matchAllTemplateArgs(this);
+		Map<TemplateType, TypeRef> map2 = TemplateUtils.matchAllTemplateArgs(other);
+		return map1.equals(map2);
 	}
 
 	/**
@@ -168,7 +306,12 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	 * @return True if this type can be safely converted to the specified type.
 	 */
 	public boolean canCastTo(TypeRef other) {
-		return this.type.canCastTo(this, other);
+		Boolean erased = ExtendableType.canCastErased(this, other);
+		if (erased != null) {
+			return erased;
+		}
+		
+		return CastCache.canCastTo(this, other);
 	}
 	
 	@Override
@@ -209,13 +352,13 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	
 	/**
 	 * @param tni
-	 * @return The typeref universally understood as 'var'.
+	 * @return The typeref universally understood as 'var'. This is interned, so copy it if you need to change it.
 	 */
 	public static TypeRef var(TyphonInput tni) {
 		TypeRef t = new TypeRef(tni);
 		t.setType(tni.corePackage.TYPE_ANY);
 		t.isVar(true);
-		return t;
+		return t.intern();
 	}
 	
 	/**
@@ -239,6 +382,11 @@ public class TypeRef extends TyphonModelEntity implements MemberAccess {
 	}
 	
 	public TypeRef commonType(TypeRef other) {
+		TypeRef erased = ExtendableType.commonTypeErased(this, other);
+		if (erased != null) {
+			return erased;
+		}
+		
 		TypeRef a = getType().commonType(this, other);
 		TypeRef b = other.getType().commonType(other, this);
 		
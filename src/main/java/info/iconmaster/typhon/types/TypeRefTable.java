@@ -0,0 +1,79 @@
+package info.iconmaster.typhon.types;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import info.iconmaster.typhon.TyphonInput;
+
+/**
+ * This holds the interned type references of an input. See {@link TypeRef#intern}.
+ * <p>
+ * A table can be given a most number of references to hold. Once it's full, it forgets everything and starts over;
+ * the references it gave out stay interned, but new ones will be made in their place.
+ * <p>
+ * This is safe to use from many threads at once.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TypeRefTable {
+	/**
+	 * The input this table belongs to.
+	 */
+	final TyphonInput tni;
+	
+	/**
+	 * The interned references, keyed by their type, flags and (interned) template arguments.
+	 */
+	private Map<List<Object>, TypeRef> refs = new ConcurrentHashMap<>();
+	
+	/**
+	 * The most references this table holds at once.
+	 */
+	private final int maxEntries;
+	
+	public TypeRefTable(TyphonInput tni) {
+		this(tni, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @param tni
+	 * @param maxEntries The most references to hold. When more are added, everything is forgotten.
+	 */
+	public TypeRefTable(TyphonInput tni, int maxEntries) {
+		this.tni = tni;
+		this.maxEntries = maxEntries;
+	}
+	
+	/**
+	 * @param key
+	 * @return The interned reference for this key, or null if there isn't one yet.
+	 */
+	TypeRef get(List<Object> key) {
+		return refs.get(key);
+	}
+	
+	/**
+	 * Adds an interned reference, unless another thread added one for the same key first.
+	 * 
+	 * @param key
+	 * @param ref
+	 * @return The interned reference for this key.
+	 */
+	TypeRef add(List<Object> key, TypeRef ref) {
+		if (refs.size() >= maxEntries) {
+			refs.clear();
+		}
+		
+		TypeRef old = refs.putIfAbsent(key, ref);
+		return old == null ? ref : old;
+	}
+	
+	/**
+	 * @return The number of interned references.
+	 */
+	public int size() {
+		return refs.size();
+	}
+}
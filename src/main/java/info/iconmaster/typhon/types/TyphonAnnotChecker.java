@@ -160,7 +160,7 @@ public class TyphonAnnotChecker {
 			if (virtualFunc == null) {
 				// error, virtual func not found
 				f.tni.errors.add(new VirtualBaseNotFoundError(override.source, f));
-			} else if (virtualFunc.getVirtualOverrides().stream().anyMatch(ff->overrideType.equals(ff.getFieldOf()))) {
+			} else if (virtualFunc.getVirtualOverrides(f.tni).stream().anyMatch(ff->overrideType.equals(ff.getFieldOf()))) {
 				// error, override already exists for this function
 				f.tni.errors.add(new DuplicateOverrideError(override.source, virtualFunc, f, overrideType));
 			} else {
@@ -146,6 +146,9 @@ public class TyphonTypeResolver {
 			if (userType.getParentTypes().isEmpty()) {
 				userType.getParentTypes().add(new TypeRef(t.tni.corePackage.TYPE_ANY));
 			}
+			
+			// the inherited members of this type, and of its subtypes, have changed
+			t.tni.lookupCache.invalidate();
 		} else if (t instanceof TemplateType) {
 			TemplateType tempType = (TemplateType) t;
 			tempType.setBaseType(readType(tempType.tni, tempType.getRawBaseType(), t));
@@ -155,6 +158,9 @@ public class TyphonTypeResolver {
 				// error; default value must be a subtype of the base value
 				t.tni.errors.add(new TemplateDefaultTypeError(tempType));
 			}
+			
+			// what can be cast to this template has changed
+			t.tni.lookupCache.invalidate();
 		} else if (t instanceof FunctionType) {
 			FunctionType funcType = (FunctionType) t;
 			
@@ -275,6 +281,7 @@ public class TyphonTypeResolver {
 			return TypeRef.var(tni);
 		} else if (rule instanceof ConstTypeContext) {
 			TypeRef ref = readType(tni, ((ConstTypeContext) rule).tnType, lookup);
+			if (ref.isInterned()) ref = ref.copy();
 			ref.source = new SourceInfo(rule);
 			ref.isConst(true);
 			return ref;
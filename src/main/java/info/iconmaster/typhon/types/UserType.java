@@ -3,7 +3,6 @@ package info.iconmaster.typhon.types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import info.iconmaster.typhon.TyphonInput;
@@ -94,24 +93,13 @@ public class UserType extends ExtendableType {
 		this.rawParentTypes = rawParentTypes;
 	}
 	
-	@Override
-	public List<MemberAccess> getMembers(Map<TemplateType, TypeRef> templateMap) {
-		List<MemberAccess> a = super.getMembers(templateMap);
-		
-		for (TypeRef t : getParentTypes()) {
-			a.addAll(t.getMembers(templateMap));
-		}
-		
-		return a;
-	}
-	
 	@Override
 	public List<TemplateType> getMemberTemplate() {
 		return getTemplates();
 	}
 	
 	@Override
-	public Package getTypePackage() {
+	public synchronized Package getTypePackage() {
 		if (typePackage == null) {
 			typePackage = new Package(source, null, getParent() == null ? tni.corePackage : getParent()) {
 				@Override
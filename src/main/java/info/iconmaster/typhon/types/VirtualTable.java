@@ -0,0 +1,187 @@
+package info.iconmaster.typhon.types;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import info.iconmaster.typhon.model.Constructor;
+import info.iconmaster.typhon.model.Function;
+
+/**
+ * This is the dispatch table of a type. It has a slot for each virtual function the type has,
+ * and each slot holds the function that gets called for instances of that type.
+ * <p>
+ * A type's slots start with the slots of its first parent, in the same order,
+ * so a call through the first parent can use the same slot index for all its subtypes.
+ * Calls through the other parents can use {@link #getInterfaceTable(VirtualTable)} instead.
+ *
+ * @author iconmaster
+ *
+ */
+public class VirtualTable {
+	/**
+	 * The type this is the table of.
+	 */
+	private final Type type;
+	
+	/**
+	 * The virtual function each slot is for.
+	 */
+	private final Function[] slots;
+	
+	/**
+	 * The function each slot calls for instances of <tt>type</tt>.
+	 */
+	private final Function[] implementations;
+	
+	/**
+	 * The slot of every instance method of <tt>type</tt>, including the overrides.
+	 */
+	private final Map<Function, Integer> slotIndices = new HashMap<>();
+	
+	/**
+	 * The version of the type's lookup cache this table was built at. Kept with the table, so the two are always published together.
+	 */
+	final long version;
+	
+	/**
+	 * @param type
+	 * @param types The type and all its ancestors, nearest first.
+	 * @param primary The table of the first parent of the type. May be null.
+	 * @param version The version of the type's lookup cache.
+	 */
+	VirtualTable(Type type, List<Type> types, VirtualTable primary, long version) {
+		this.type = type;
+		this.version = version;
+		
+		Set<Type> ancestry = new HashSet<>(types);
+		Map<Function, Function> bases = new HashMap<>();
+		Map<Function, Function> chosen = new HashMap<>();
+		
+		// find the virtual function each method is an override of; the nearest override is the one that gets called
+		for (Type t : types) {
+			for (Function f : t.getTypePackage().getFunctions()) {
+				if (f.isStatic() || f instanceof Constructor) {
+					continue;
+				}
+				
+				Function base = f;
+				Set<Function> seen = new HashSet<>();
+				while (seen.add(base)) {
+					for (Function b : base.getVirtualBases()) {
+						if (ancestry.contains(b.getFieldOf())) {
+							base = b;
+							break;
+						}
+					}
+				}
+				
+				bases.put(f, base);
+				chosen.putIfAbsent(base, f);
+			}
+		}
+		
+		// lay out the slots, starting with the ones of the first parent
+		List<Function> layout = new ArrayList<>();
+		if (primary != null) {
+			for (Function f : primary.slots) {
+				slotIndices.put(f, layout.size());
+				layout.add(f);
+			}
+		}
+		
+		for (int i = types.size()-1; i >= 0; i--) {
+			for (Function f : types.get(i).getTypePackage().getFunctions()) {
+				if (bases.get(f) == f && !slotIndices.containsKey(f)) {
+					slotIndices.put(f, layout.size());
+					layout.add(f);
+				}
+			}
+		}
+		
+		slots = layout.toArray(new Function[layout.size()]);
+		implementations = new Function[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			implementations[i] = chosen.getOrDefault(slots[i], slots[i]);
+		}
+		
+		for (Map.Entry<Function, Function> entry : bases.entrySet()) {
+			slotIndices.put(entry.getKey(), slotIndices.get(entry.getValue()));
+		}
+	}
+	
+	/**
+	 * @return The type this is the table of.
+	 */
+	public Type getType() {
+		return type;
+	}
+	
+	/**
+	 * @return The number of slots.
+	 */
+	public int size() {
+		return slots.length;
+	}
+	
+	/**
+	 * @param slot
+	 * @return The virtual function the slot is for.
+	 */
+	public Function getSlot(int slot) {
+		return slots[slot];
+	}
+	
+	/**
+	 * @param slot
+	 * @return The function the slot calls for instances of this type.
+	 */
+	public Function getImplementation(int slot) {
+		return implementations[slot];
+	}
+	
+	/**
+	 * @param f A virtual function or an override.
+	 * @return The slot the function is in, or -1 if it isn't an instance method of this type.
+	 */
+	public int getSlotOf(Function f) {
+		Integer slot = slotIndices.get(f);
+		return slot == null ? -1 : slot;
+	}
+	
+	/**
+	 * @param f
+	 * @return The virtual function that the function overrides, the function itself if it isn't an override,
+	 * or null if it isn't an instance method of this type.
+	 */
+	public Function getVirtualBase(Function f) {
+		Integer slot = slotIndices.get(f);
+		return slot == null ? null : slots[slot];
+	}
+	
+	/**
+	 * @param f
+	 * @return The function that calling the function on an instance of this type actually calls,
+	 * or null if it isn't an instance method of this type.
+	 */
+	public Function getImplementation(Function f) {
+		Integer slot = slotIndices.get(f);
+		return slot == null ? null : implementations[slot];
+	}
+	
+	/**
+	 * @param ancestor The table of an ancestor of this type.
+	 * @return The functions this type calls for each slot of the ancestor, in the ancestor's slot order.
+	 */
+	public Function[] getInterfaceTable(VirtualTable ancestor) {
+		Function[] result = new Function[ancestor.slots.length];
+		for (int i = 0; i < result.length; i++) {
+			Function f = getImplementation(ancestor.slots[i]);
+			result[i] = f == null ? ancestor.implementations[i] : f;
+		}
+		return result;
+	}
+}
@@ -126,6 +126,11 @@ public class CommandLineHelper {
 		 * The commands specified.
 		 */
 		public List<Command> commands = new ArrayList<>();
+		
+		/**
+		 * The index of the argument the commands were specified in, or -1 if no commands were specified.
+		 */
+		public int commandsIndex = -1;
 	}
 	
 	/**
@@ -286,7 +291,9 @@ public class CommandLineHelper {
 		Option o = null;
 		boolean ignoreOptions = false;
 		
-		for (String arg : args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			
 			if (ignoreOptions) {
 				if (result.commands.isEmpty()) {
 					String[] commands = arg.split(",");
@@ -313,6 +320,8 @@ public class CommandLineHelper {
 							result.commands.add(found);
 						}
 					}
+					
+					result.commandsIndex = i;
 				} else {
 					result.positionalArguments.add(arg);
 				}
@@ -375,6 +384,8 @@ public class CommandLineHelper {
 								result.commands.add(found);
 							}
 						}
+						
+						result.commandsIndex = i;
 					} else {
 						result.positionalArguments.add(arg);
 					}
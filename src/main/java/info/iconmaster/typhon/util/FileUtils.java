@@ -2,6 +2,10 @@ package info.iconmaster.typhon.util;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,4 +50,40 @@ public class FileUtils {
 			}};
 		}
 	}
+	
+	/**
+	 * @param data
+	 * @return The SHA-256 hash of the data, in hexadecimal.
+	 */
+	public static String hash(byte[] data) {
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(data);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to have SHA-256
+			throw new IllegalStateException(e);
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @param file
+	 * @return The SHA-256 hash of the file's contents, in hexadecimal, or null if the file can't be read.
+	 */
+	public static String hash(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		
+		try {
+			return hash(Files.readAllBytes(file.toPath()));
+		} catch (IOException e) {
+			return null;
+		}
+	}
 }
@@ -0,0 +1,151 @@
+package info.iconmaster.typhon.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * This holds the text of a source file, along with where each line in it begins.
+ * This lets character locations be turned into lines and columns without scanning the file again.
+ * <p>
+ * Lines may end with <tt>\n</tt>, <tt>\r\n</tt>, or <tt>\r</tt>.
+ * Lines and columns are both 1-indexed.
+ * 
+ * @author iconmaster
+ *
+ */
+public class LineIndex {
+	/**
+	 * An ANTLR input stream that remembers the line index of its text.
+	 * Tokens lexed from one of these can have their lines and columns found by <tt>{@link LineIndex#of(Token)}</tt>.
+	 * 
+	 * @author iconmaster
+	 *
+	 */
+	public static class IndexedInputStream extends ANTLRInputStream {
+		/**
+		 * The line index of this stream's text.
+		 */
+		public LineIndex lines;
+		
+		/**
+		 * @param text The text to lex.
+		 * @param name The name of the file the text is from. May be null.
+		 */
+		public IndexedInputStream(String text, String name) {
+			super(text);
+			this.name = name;
+			this.lines = new LineIndex(text);
+		}
+	}
+	
+	/**
+	 * The text this indexes.
+	 */
+	private String text;
+	
+	/**
+	 * The character location each line begins at, in order.
+	 */
+	private int[] lineStarts;
+	
+	/**
+	 * Indexes some text.
+	 * 
+	 * @param text
+	 */
+	public LineIndex(String text) {
+		this.text = text;
+		
+		int[] starts = new int[16];
+		int n = 0;
+		starts[n++] = 0;
+		
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || (c == '\r' && (i+1 == text.length() || text.charAt(i+1) != '\n'))) {
+				if (n == starts.length) {
+					starts = Arrays.copyOf(starts, n*2);
+				}
+				starts[n++] = i+1;
+			}
+		}
+		
+		lineStarts = Arrays.copyOf(starts, n);
+	}
+	
+	/**
+	 * Indexes the contents of a file.
+	 * 
+	 * @param file
+	 * @return The index of the file's text.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static LineIndex read(File file) throws IOException {
+		return new LineIndex(new String(Files.readAllBytes(file.toPath())));
+	}
+	
+	/**
+	 * @param token
+	 * @return The line index of the text the token was lexed from, or null if it is not known.
+	 */
+	public static LineIndex of(Token token) {
+		if (token == null) {
+			return null;
+		}
+		
+		CharStream stream = token.getInputStream();
+		return stream instanceof IndexedInputStream ? ((IndexedInputStream) stream).lines : null;
+	}
+	
+	/**
+	 * @return The number of characters in the text.
+	 */
+	public int getLength() {
+		return text.length();
+	}
+	
+	/**
+	 * @return The number of lines in the text.
+	 */
+	public int getLineCount() {
+		return lineStarts.length;
+	}
+	
+	/**
+	 * @param offset A 0-indexed character location.
+	 * @return The line the character is on.
+	 */
+	public int getLine(int offset) {
+		int i = Arrays.binarySearch(lineStarts, offset);
+		return i >= 0 ? i+1 : -i-1;
+	}
+	
+	/**
+	 * @param offset A 0-indexed character location.
+	 * @return The column the character is in.
+	 */
+	public int getColumn(int offset) {
+		return offset - lineStarts[getLine(offset)-1] + 1;
+	}
+	
+	/**
+	 * @param line
+	 * @return The text of the line, without its line ending.
+	 */
+	public String getLineText(int line) {
+		int begin = lineStarts[line-1];
+		int end = line == lineStarts.length ? text.length() : lineStarts[line];
+		
+		while (end > begin && (text.charAt(end-1) == '\n' || text.charAt(end-1) == '\r')) {
+			end--;
+		}
+		
+		return text.substring(begin, end);
+	}
+}
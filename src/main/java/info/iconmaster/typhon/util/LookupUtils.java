@@ -6,7 +6,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import info.iconmaster.typhon.antlr.TyphonParser.ExprContext;
@@ -14,7 +14,6 @@ import info.iconmaster.typhon.compiler.Instruction;
 import info.iconmaster.typhon.compiler.Instruction.OpCode;
 import info.iconmaster.typhon.compiler.Label;
 import info.iconmaster.typhon.compiler.Scope;
-import info.iconmaster.typhon.compiler.TyphonCompiler;
 import info.iconmaster.typhon.compiler.Variable;
 import info.iconmaster.typhon.errors.WriteOnlyError;
 import info.iconmaster.typhon.model.Field;
@@ -22,7 +21,6 @@ import info.iconmaster.typhon.model.Function;
 import info.iconmaster.typhon.model.MemberAccess;
 import info.iconmaster.typhon.model.Parameter;
 import info.iconmaster.typhon.model.TemplateArgument;
-import info.iconmaster.typhon.model.libs.CorePackage;
 import info.iconmaster.typhon.types.TemplateType;
 import info.iconmaster.typhon.types.Type;
 import info.iconmaster.typhon.types.TypeRef;
@@ -324,43 +322,91 @@ public class LookupUtils {
 		}
 		
 		/**
-		 * @return true if this path does not violate any access rules.
+		 * Removes the last member of this list, undoing the last call to add.
+		 */
+		private void removeLast() {
+			int i = members.size()-1;
+			
+			if (!subjects.isEmpty() && subjects.get(subjects.size()-1).loc == i) {
+				subjects.remove(subjects.size()-1);
+			}
+			
+			members.remove(i);
+			typeMaps.remove(i);
+		}
+		
+		/**
+		 * @return true if the last member added does not violate any access rules.
+		 */
+		private boolean isLastMemberValid() {
+			Subject sub = lastSubject();
+			return sub == null || sub.loc != members.size()-1 || isValidSubject(sub);
+		}
+		
+		/**
+		 * @return true if this path is complete, and does not violate any access rules.
 		 */
 		public boolean isValidPath() {
 			if (subjects.isEmpty() || subjects.get(subjects.size()-1).loc != names.size()-1) return false;
 			
 			for (Subject sub : subjects) {
-				TypeRef type = sub.previous == null ? null : sub.previous.type;
-				Map<TemplateType, TypeRef> typeMap = sub.previous == null ? new HashMap<>() : sub.previous.typeMap;
-				
-				if (sub.member instanceof Field) {
-					Field f = (Field) sub.member;
-					Type fieldOf = f.getFieldOf();
-					
-					if (fieldOf == null && type != null) {
-						return false;
-					}
-					
-					if (fieldOf != null && (type == null || !type.canCastTo(TemplateUtils.replaceTemplates(new TypeRef(null, fieldOf), typeMap)))) {
-						return false;
-					}
-				} else if (sub.member instanceof Function) {
-					Function f = (Function) sub.member;
-					Type fieldOf = f.getFieldOf();
-					
-					if (fieldOf == null && type != null) {
-						return false;
-					}
-					
-					if (fieldOf != null && (type == null || !type.canCastTo(TemplateUtils.replaceTemplates(new TypeRef(null, fieldOf), typeMap)))) {
-						return false;
-					}
+				if (!isValidSubject(sub)) {
+					return false;
 				}
 			}
 			
 			return true;
 		}
 		
+		/**
+		 * @return true if accessing this subject from the one before it does not violate any access rules.
+		 */
+		private static boolean isValidSubject(Subject sub) {
+			TypeRef type = sub.previous == null ? null : sub.previous.type;
+			Type fieldOf;
+			
+			if (sub.member instanceof Field) {
+				fieldOf = ((Field) sub.member).getFieldOf();
+			} else if (sub.member instanceof Function) {
+				fieldOf = ((Function) sub.member).getFieldOf();
+			} else {
+				return true;
+			}
+			
+			if (fieldOf == null) {
+				return type == null;
+			}
+			
+			Map<TemplateType, TypeRef> typeMap = sub.previous == null ? new HashMap<>() : sub.previous.typeMap;
+			return type != null && type.canCastTo(TemplateUtils.replaceTemplates(new TypeRef(null, fieldOf), typeMap));
+		}
+		
+		/**
+		 * Copies a path that findPaths has finished building.
+		 * Subjects still pointing at the path being built are pointed at the copy, or at a copy ending in that subject.
+		 * 
+		 * @return The copy.
+		 */
+		private LookupPath copyFound() {
+			LookupPath result = new LookupPath(this);
+			
+			for (Subject sub : result.subjects) {
+				if (sub.path == this) {
+					if (sub.loc == members.size()-1) {
+						sub.path = result;
+					} else {
+						LookupPath prefix = new LookupPath(this);
+						prefix.members.subList(sub.loc+1, prefix.members.size()).clear();
+						prefix.typeMaps.subList(sub.loc+1, prefix.typeMaps.size()).clear();
+						prefix.subjects.subList(prefix.subjects.indexOf(sub)+1, prefix.subjects.size()).clear();
+						sub.path = prefix;
+					}
+				}
+			}
+			
+			return result;
+		}
+		
 		/**
 		 * Given a list of members, returns the list of paths that are created by appending each member to the end of the existing path.
 		 * 
@@ -485,28 +531,139 @@ public class LookupUtils {
 	public static List<LookupPath> findPaths(Scope scope, MemberAccess base, List<LookupElement> names) {
 		List<LookupPath> result = new ArrayList<>();
 		
-		// populate the list of possible paths (based on name alone)
+		searchPaths(base, names, (path)->{
+			result.add(path.copyFound());
+			return false;
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Look up the first path of a list of names that passes a filter.
+	 * This is the same as the first path of <tt>findPaths</tt> that passes the filter, but stops searching once it's found.
+	 * 
+	 * @param base The scope.
+	 * @param names The list of successive names.
+	 * @param filter Returns true for paths the caller can use.
+	 * @return The first usable path, or null if there isn't one.
+	 */
+	public static LookupPath findFirstPath(Scope scope, MemberAccess base, List<LookupElement> names, Predicate<LookupPath> filter) {
+		List<LookupPath> result = new ArrayList<>(1);
+		
+		searchPaths(base, names, (path)->{
+			if (filter.test(path)) {
+				result.add(path.copyFound());
+				return true;
+			}
+			
+			return false;
+		});
+		
+		return result.isEmpty() ? null : result.get(0);
+	}
+	
+	/**
+	 * Look up the paths of a list of names that pass a filter, for the caller to pick the best one of.
+	 * Only the paths that differ from the first usable path in their last member are returned,
+	 * so members of nearer scopes still hide the ones of farther scopes.
+	 * 
+	 * @param base The scope.
+	 * @param names The list of successive names.
+	 * @param filter Returns true for paths the caller can use. Called once for each path, in the order they're returned.
+	 * @return The usable paths. Empty if there aren't any.
+	 */
+	public static List<LookupPath> findOverloadPaths(Scope scope, MemberAccess base, List<LookupElement> names, Predicate<LookupPath> filter) {
+		List<LookupPath> result = new ArrayList<>(1);
+		
+		searchPaths(base, names, (path)->{
+			if (!result.isEmpty() && !hasSamePrefix(path, result.get(0))) {
+				return true;
+			}
+			
+			if (filter.test(path)) {
+				result.add(path.copyFound());
+			}
+			
+			return false;
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * @return True if the paths have the same members, except for maybe the last one.
+	 */
+	private static boolean hasSamePrefix(LookupPath a, LookupPath b) {
+		if (a.members.size() != b.members.size()) {
+			return false;
+		}
+		
+		for (int i = 0; i < a.members.size()-1; i++) {
+			if (a.members.get(i) != b.members.get(i)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Finds the possible paths of a list of names, in the order findPaths returns them.
+	 * Paths are built depth-first in a single LookupPath, so candidates share their common prefix instead of each being a copy.
+	 * Paths that violate access rules are dropped as soon as the offending member is added.
+	 * 
+	 * @param base The scope.
+	 * @param names The list of successive names.
+	 * @param found Called with each valid path. The path is only valid during the call; copy it to keep it. Returns true to stop searching.
+	 */
+	private static void searchPaths(MemberAccess base, List<LookupElement> names, Predicate<LookupPath> found) {
+		LookupPath path = new LookupPath(names);
+		
 		while (base != null) {
-			List<LookupPath> options = new ArrayList<>();
-			options.add(new LookupPath(names).add(base));
+			// a scope can only start a path if it declares the first name, so skip the rest without building anything
+			if (base instanceof Scope && !names.isEmpty() && !((Scope) base).inThisScope(names.get(0).name)) {
+				base = base.getMemberParent();
+				continue;
+			}
 			
-			for (LookupElement name : names) {
-				if (options.isEmpty()) break;
-				
-				options = options.stream()
-						.map((path)->path.branch(path.getLookup().getMembers(name.name, path.returnedTypeMap())))
-						.reduce(new ArrayList<>(), (a,b)->{a.addAll(b); return a;});
+			path.add(base);
+			boolean stop = path.isLastMemberValid() && expandPath(path, found);
+			path.removeLast();
+			
+			if (stop) {
+				return;
 			}
 			
-			result.addAll(options);
 			base = base.getMemberParent();
 		}
+	}
+	
+	/**
+	 * Extends a path by each member the next name can refer to, then recurses.
+	 * 
+	 * @return true if <tt>found</tt> asked to stop searching.
+	 */
+	private static boolean expandPath(LookupPath path, Predicate<LookupPath> found) {
+		if (path.members.size() == path.names.size()) {
+			// every subject was checked as it was added; the path just has to end in one
+			Subject sub = path.lastSubject();
+			return sub != null && sub.loc == path.names.size()-1 && found.test(path);
+		}
 		
-		// remove incorrect accesses to instance fields
-		result.removeIf((path)->!path.isValidPath());
+		LookupElement name = path.names.get(path.members.size());
 		
-		// return the result
-		return result;
+		for (MemberAccess member : path.getLookup().getMembers(name.name, path.returnedTypeMap())) {
+			path.add(member);
+			boolean stop = path.isLastMemberValid() && expandPath(path, found);
+			path.removeLast();
+			
+			if (stop) {
+				return true;
+			}
+		}
+		
+		return false;
 	}
 	
 	/**
@@ -713,66 +870,18 @@ public class LookupUtils {
 		return result;
 	}
 	
+	/**
+	 * Checks if some arguments can be passed to a function.
+	 * To check the same arguments against many functions, use an <tt>{@link OverloadResolver}</tt> instead.
+	 * 
+	 * @param scope
+	 * @param f
+	 * @param args The arguments supplied, in the order they were supplied.
+	 * @param typeMap The template arguments of the type the function was found in.
+	 * @param argMap The expressions the arguments come from. May be null.
+	 * @return True if the function can be called with the arguments.
+	 */
 	public static boolean areFuncArgsCompatibleWith(Scope scope, Function f, List<LookupArgument> args, Map<TemplateType, TypeRef> typeMap, Map<Variable, ExprContext> argMap) {
-		CorePackage core = f.tni.corePackage;
-		if (argMap == null) argMap = new HashMap<>();
-		
-		// check if the argumnet's number/labels all match up to the signature
-		FuncArgMap map = LookupUtils.getFuncArgMap(f, args);
-		if (map == null) {
-			return false;
-		}
-		
-		// calculate the function's template map
-		// TODO: add vararg stuff to these lists
-		List<TypeRef> params = f.getParams().stream().filter(p->map.args.containsKey(p)).map(p->p.getType()).collect(Collectors.toList());
-		List<TypeRef> args2 = f.getParams().stream().filter(p->map.args.containsKey(p)).map(p->map.args.get(p).type).collect(Collectors.toList());
-
-		Map<TemplateType, TypeRef> funcTempMap = TemplateUtils.inferTemplatesFromArguments(core.tni, params, args2, f.getFuncTemplateMap(typeMap));
-		
-		// check if the types match up to the signature
-		for (Entry<Parameter, Variable> entry : map.args.entrySet()) {
-			TypeRef a = argMap.containsKey(entry.getValue()) ? TyphonCompiler.getExprType(scope, argMap.get(entry.getValue()), Arrays.asList(entry.getKey().getType())).get(0) : entry.getValue().type;
-			TypeRef b = entry.getKey().getType();
-			
-			a = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(a, funcTempMap), typeMap);
-			b = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(b, funcTempMap), typeMap);
-			
-			if (!a.canCastTo(b)) {
-				return false;
-			}
-		}
-		
-		for (Entry<Parameter, List<Variable>> entry : map.varargs.entrySet()) {
-			Parameter p = entry.getKey();
-			TypeRef elemType = TemplateUtils.matchAllTemplateArgs(p.getType()).get(core.TYPE_LIST.getTemplates().get(0));
-			elemType = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(elemType, funcTempMap), typeMap);
-			
-			for (Variable var : entry.getValue()) {
-				TypeRef vtype = argMap.containsKey(var) ? TyphonCompiler.getExprType(scope, argMap.get(var), Arrays.asList(entry.getKey().getType())).get(0) : var.type;
-				vtype = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(vtype, funcTempMap), typeMap);
-				
-				if (!vtype.canCastTo(elemType)) {
-					return false;
-				}
-			}
-		}
-		
-		for (Entry<Parameter, Map<String, Variable>> entry : map.varflags.entrySet()) {
-			Parameter p = entry.getKey();
-			TypeRef elemType = TemplateUtils.matchAllTemplateArgs(p.getType()).get(core.TYPE_MAP.getTemplates().get(1));
-			elemType = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(elemType, funcTempMap), typeMap);
-			
-			for (Variable var : entry.getValue().values()) {
-				TypeRef vtype = argMap.containsKey(var) ? TyphonCompiler.getExprType(scope, argMap.get(var), Arrays.asList(entry.getKey().getType())).get(0) : var.type;
-				vtype = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(vtype, funcTempMap), typeMap);
-				
-				if (!vtype.canCastTo(elemType)) {
-					return false;
-				}
-			}
-		}
-		
-		return true;
+		return new OverloadResolver(scope, args, argMap).isCompatible(f, typeMap);
 	}
 }
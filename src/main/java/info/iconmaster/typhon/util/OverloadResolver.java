@@ -0,0 +1,389 @@
+package info.iconmaster.typhon.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import info.iconmaster.typhon.antlr.TyphonParser.ExprContext;
+import info.iconmaster.typhon.compiler.Scope;
+import info.iconmaster.typhon.compiler.TyphonCompiler;
+import info.iconmaster.typhon.compiler.Variable;
+import info.iconmaster.typhon.errors.AmbiguousCallError;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.Parameter;
+import info.iconmaster.typhon.model.libs.CorePackage;
+import info.iconmaster.typhon.types.TemplateType;
+import info.iconmaster.typhon.types.TypeRef;
+import info.iconmaster.typhon.util.LookupUtils.FuncArgMap;
+import info.iconmaster.typhon.util.LookupUtils.LookupArgument;
+
+/**
+ * This picks which function a call with some arguments goes to.
+ * One is made for each call, so the arguments only get typed once, no matter how many functions they're checked against.
+ * <p>
+ * Functions whose arity or parameter names can't fit the arguments are thrown out by their {@link Signature} before anything gets typed.
+ * Of the functions that are left, the most specific one is chosen. If none is more specific than all the others, the call is ambiguous.
+ *
+ * @author iconmaster
+ *
+ */
+public class OverloadResolver {
+	/**
+	 * The number of parameters a function takes, and their names. Used to quickly rule functions out.
+	 *
+	 * @author iconmaster
+	 *
+	 */
+	public static class Signature {
+		/**
+		 * The number of parameters that must be given.
+		 */
+		private int required;
+		
+		/**
+		 * The number of parameters that can be given positionally, not counting the vararg.
+		 */
+		private int positional;
+		
+		/**
+		 * True if the function has a vararg parameter.
+		 */
+		private boolean vararg;
+		
+		/**
+		 * True if the function has a varflag parameter.
+		 */
+		private boolean varflag;
+		
+		/**
+		 * The names of all the parameters.
+		 */
+		private Set<String> names = new HashSet<>();
+		
+		public Signature(Function f) {
+			for (Parameter param : f.getParams()) {
+				names.add(param.getName());
+				
+				if (param.hasAnnot(f.tni.corePackage.ANNOT_VARARG)) {
+					vararg = true;
+				} else if (param.hasAnnot(f.tni.corePackage.ANNOT_VARFLAG)) {
+					varflag = true;
+				} else {
+					positional++;
+					if (!param.isOptional()) {
+						required++;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * This is only a quick check; <tt>{@link LookupUtils}.getFuncArgMap</tt> may still reject the arguments.
+		 *
+		 * @param positionals The number of unlabeled arguments.
+		 * @param labels The labels of the labeled arguments.
+		 * @return False if the arguments can't possibly be passed to the function.
+		 */
+		public boolean accepts(int positionals, List<String> labels) {
+			if (positionals > positional && !vararg) {
+				return false;
+			}
+			
+			int given = positionals;
+			for (String label : labels) {
+				if (names.contains(label)) {
+					given++;
+				} else if (!varflag) {
+					return false;
+				}
+			}
+			
+			return given >= required;
+		}
+	}
+	
+	/**
+	 * A function the arguments can be passed to, along with the types of the parameters they go to.
+	 * The same function found in two different types is two different candidates.
+	 *
+	 * @author iconmaster
+	 *
+	 */
+	public static class Candidate {
+		/**
+		 * The function.
+		 */
+		public final Function function;
+		
+		/**
+		 * The template arguments of the type the function was found in.
+		 */
+		public final Map<TemplateType, TypeRef> typeMap;
+		
+		/**
+		 * The type of the parameter each argument goes to, with the templates filled in.
+		 */
+		private final TypeRef[] paramTypes;
+		
+		private Candidate(Function function, Map<TemplateType, TypeRef> typeMap, TypeRef[] paramTypes) {
+			this.function = function;
+			this.typeMap = typeMap;
+			this.paramTypes = paramTypes;
+		}
+	}
+	
+	/**
+	 * The scope the call is in.
+	 */
+	private Scope scope;
+	
+	/**
+	 * The arguments of the call.
+	 */
+	private List<LookupArgument> args;
+	
+	/**
+	 * The expressions the arguments come from. Arguments not in this map are already typed.
+	 */
+	private Map<Variable, ExprContext> argMap;
+	
+	/**
+	 * The position of each argument.
+	 */
+	private Map<Variable, Integer> argIndices = new HashMap<>();
+	
+	/**
+	 * The types of the arguments that don't depend on what type is expected. Null for arguments not typed yet.
+	 */
+	private TypeRef[] argTypes;
+	
+	/**
+	 * The number of unlabeled arguments.
+	 */
+	private int positionals;
+	
+	/**
+	 * The labels of the labeled arguments.
+	 */
+	private List<String> labels = new ArrayList<>();
+	
+	/**
+	 * @param scope The scope the call is in.
+	 * @param args The arguments, in the order they were supplied.
+	 * @param argMap The expressions the arguments come from. May be null.
+	 */
+	public OverloadResolver(Scope scope, List<LookupArgument> args, Map<Variable, ExprContext> argMap) {
+		this.scope = scope;
+		this.args = args;
+		this.argMap = argMap == null ? new HashMap<>() : argMap;
+		this.argTypes = new TypeRef[args.size()];
+		
+		for (int i = 0; i < args.size(); i++) {
+			LookupArgument arg = args.get(i);
+			argIndices.put(arg.var, i);
+			
+			if (arg.label == null) {
+				positionals++;
+			} else {
+				labels.add(arg.label);
+			}
+		}
+	}
+	
+	/**
+	 * @param var An argument.
+	 * @param expected The type of the parameter it's passed to.
+	 * @return The type of the argument.
+	 */
+	private TypeRef getArgType(Variable var, TypeRef expected) {
+		ExprContext rule = argMap.get(var);
+		if (rule == null) {
+			return var.type;
+		}
+		
+		if (TyphonCompiler.dependsOnExpectedTypes(rule)) {
+			return TyphonCompiler.getExprType(scope, rule, Arrays.asList(expected)).get(0);
+		}
+		
+		int i = argIndices.get(var);
+		if (argTypes[i] == null) {
+			argTypes[i] = TyphonCompiler.getExprType(scope, rule, Arrays.asList()).get(0);
+		}
+		return argTypes[i];
+	}
+	
+	/**
+	 * Checks if the arguments can be passed to a function.
+	 *
+	 * @param f
+	 * @param typeMap The template arguments of the type the function was found in.
+	 * @return True if the function can be called with the arguments.
+	 */
+	public boolean isCompatible(Function f, Map<TemplateType, TypeRef> typeMap) {
+		return getCandidate(f, typeMap) != null;
+	}
+	
+	/**
+	 * Checks if the arguments can be passed to a function.
+	 *
+	 * @param f
+	 * @param typeMap The template arguments of the type the function was found in.
+	 * @return The function as a candidate to pass to <tt>choose</tt>, or null if it can't be called with the arguments.
+	 */
+	public Candidate getCandidate(Function f, Map<TemplateType, TypeRef> typeMap) {
+		CorePackage core = f.tni.corePackage;
+		
+		// check if the argument's number/labels all match up to the signature
+		if (!f.getSignature().accepts(positionals, labels)) {
+			return null;
+		}
+		
+		FuncArgMap map = LookupUtils.getFuncArgMap(f, args);
+		if (map == null) {
+			return null;
+		}
+		
+		// calculate the function's template map
+		// TODO: add vararg stuff to these lists
+		List<TypeRef> params = new ArrayList<>();
+		List<TypeRef> args2 = new ArrayList<>();
+		for (Parameter p : f.getParams()) {
+			if (map.args.containsKey(p)) {
+				params.add(p.getType());
+				args2.add(map.args.get(p).type);
+			}
+		}
+		
+		Map<TemplateType, TypeRef> funcTempMap = TemplateUtils.inferTemplatesFromArguments(core.tni, params, args2, f.getFuncTemplateMap(typeMap));
+		TypeRef[] types = new TypeRef[args.size()];
+		
+		// check if the types match up to the signature
+		for (Entry<Parameter, Variable> entry : map.args.entrySet()) {
+			TypeRef a = getArgType(entry.getValue(), entry.getKey().getType());
+			TypeRef b = entry.getKey().getType();
+			
+			a = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(a, funcTempMap), typeMap);
+			b = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(b, funcTempMap), typeMap);
+			
+			if (!a.canCastTo(b)) {
+				return null;
+			}
+			
+			types[argIndices.get(entry.getValue())] = b;
+		}
+		
+		for (Entry<Parameter, List<Variable>> entry : map.varargs.entrySet()) {
+			Parameter p = entry.getKey();
+			TypeRef elemType = TemplateUtils.matchAllTemplateArgs(p.getType()).get(core.TYPE_LIST.getTemplates().get(0));
+			elemType = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(elemType, funcTempMap), typeMap);
+			
+			for (Variable var : entry.getValue()) {
+				TypeRef vtype = getArgType(var, p.getType());
+				vtype = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(vtype, funcTempMap), typeMap);
+				
+				if (!vtype.canCastTo(elemType)) {
+					return null;
+				}
+				
+				types[argIndices.get(var)] = elemType;
+			}
+		}
+		
+		for (Entry<Parameter, Map<String, Variable>> entry : map.varflags.entrySet()) {
+			Parameter p = entry.getKey();
+			TypeRef elemType = TemplateUtils.matchAllTemplateArgs(p.getType()).get(core.TYPE_MAP.getTemplates().get(1));
+			elemType = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(elemType, funcTempMap), typeMap);
+			
+			for (Variable var : entry.getValue().values()) {
+				TypeRef vtype = getArgType(var, p.getType());
+				vtype = TemplateUtils.replaceTemplates(TemplateUtils.replaceTemplates(vtype, funcTempMap), typeMap);
+				
+				if (!vtype.canCastTo(elemType)) {
+					return null;
+				}
+				
+				types[argIndices.get(var)] = elemType;
+			}
+		}
+		
+		return new Candidate(f, typeMap, types);
+	}
+	
+	/**
+	 * @param a
+	 * @param b
+	 * @return True if every argument goes to a parameter of <tt>a</tt> that's at least as specific as the one it goes to in <tt>b</tt>,
+	 * and some argument goes to one that's more specific.
+	 */
+	public boolean isMoreSpecific(Candidate a, Candidate b) {
+		boolean strictly = false;
+		for (int i = 0; i < a.paramTypes.length; i++) {
+			if (!a.paramTypes[i].canCastTo(b.paramTypes[i])) {
+				return false;
+			}
+			
+			if (!b.paramTypes[i].canCastTo(a.paramTypes[i])) {
+				strictly = true;
+			}
+		}
+		
+		return strictly;
+	}
+	
+	/**
+	 * If no candidate is more specific than all the others, an <tt>{@link AmbiguousCallError}</tt> is reported to the input the call is in.
+	 *
+	 * @param candidates Candidates from <tt>getCandidate</tt>. Must not be empty.
+	 * @param source Where the call is.
+	 * @return The most specific of the candidates. If the call is ambiguous, the first of the most specific ones is returned.
+	 */
+	public Candidate choose(List<Candidate> candidates, SourceInfo source) {
+		Candidate best = candidates.get(0);
+		for (Candidate c : candidates) {
+			if (isMoreSpecific(c, best)) {
+				best = c;
+			}
+		}
+		
+		// the best one may only be the last one found that beat the ones before it; check it against the rest
+		// an override and the function it overrides are the same call, so they can't be ambiguous
+		List<Function> tied = new ArrayList<>();
+		for (Candidate c : candidates) {
+			if (c.function != best.function && !overrides(c.function, best.function) && !overrides(best.function, c.function) && !isMoreSpecific(best, c)) {
+				tied.add(c.function);
+			}
+		}
+		
+		if (!tied.isEmpty()) {
+			tied.add(0, best.function);
+			scope.getCodeBlock().tni.errors.add(new AmbiguousCallError(source, tied));
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * @return True if <tt>f</tt> overrides <tt>base</tt>, directly or through other overrides.
+	 */
+	private static boolean overrides(Function f, Function base) {
+		Set<Function> seen = new HashSet<>();
+		List<Function> todo = new ArrayList<>(f.getVirtualBases());
+		while (!todo.isEmpty()) {
+			Function b = todo.remove(todo.size()-1);
+			if (b == base) {
+				return true;
+			}
+			
+			if (seen.add(b)) {
+				todo.addAll(b.getVirtualBases());
+			}
+		}
+		
+		return false;
+	}
+}
@@ -33,6 +33,11 @@ public class SourceInfo {
 	 */
 	public int end;
 	
+	/**
+	 * The line index of the file this originates from. May be null if the file's text isn't known.
+	 */
+	public LineIndex lines;
+	
 	/**
 	 * Directly constructs a SourceInfo.
 	 * 
@@ -63,6 +68,7 @@ public class SourceInfo {
 	 */
 	public SourceInfo(Token token) {
 		this.file = token.getTokenSource().getSourceName();
+		this.lines = LineIndex.of(token);
 		int begin = token.getStartIndex();
 		int end = token.getStopIndex();
 		
@@ -78,6 +84,7 @@ public class SourceInfo {
 	 */
 	public SourceInfo(Token beginToken, Token endToken) {
 		this.file = beginToken.getTokenSource().getSourceName();
+		this.lines = LineIndex.of(beginToken);
 		int begin = beginToken.getStartIndex();
 		int end = endToken.getStopIndex();
 		
@@ -92,6 +99,7 @@ public class SourceInfo {
 	 */
 	public SourceInfo(ParserRuleContext rule) {
 		this.file = rule.getStart() == null? UNKNOWN_FILE : rule.getStart().getTokenSource().getSourceName();
+		this.lines = LineIndex.of(rule.getStart());
 		int begin = rule.getStart() == null? 0 : rule.getStart().getStartIndex();
 		int end = rule.getStop() == null? 0 : rule.getStop().getStopIndex();
 		
@@ -107,6 +115,7 @@ public class SourceInfo {
 	 */
 	public SourceInfo(ParserRuleContext beginRule, ParserRuleContext endRule) {
 		this.file = beginRule.getStart() == null? UNKNOWN_FILE : beginRule.getStart().getTokenSource().getSourceName();
+		this.lines = LineIndex.of(beginRule.getStart());
 		int begin = beginRule.getStart() == null? 0 : beginRule.getStart().getStartIndex();
 		int end = endRule.getStart() == null? 0 : endRule.getStop().getStopIndex();
 		
@@ -123,6 +132,7 @@ public class SourceInfo {
 		if (rules.isEmpty()) return;
 		
 		this.file = rules.get(0).getStart() == null? UNKNOWN_FILE : rules.get(0).getStart().getTokenSource().getSourceName();
+		this.lines = LineIndex.of(rules.get(0).getStart());
 		int begin = rules.get(0).getStart() == null? 0 : rules.get(0).getStart().getStartIndex();
 		int end = rules.get(rules.size()-1).getStop() == null? 0 : rules.get(rules.size()-1).getStop().getStopIndex();
 		
@@ -130,6 +140,20 @@ public class SourceInfo {
 		this.end = Math.max(begin, end);
 	}
 	
+	/**
+	 * @return The 1-indexed line this begins on, or -1 if it isn't known.
+	 */
+	public int getLine() {
+		return lines == null || begin < 0 ? -1 : lines.getLine(begin);
+	}
+	
+	/**
+	 * @return The 1-indexed column this begins on, or -1 if it isn't known.
+	 */
+	public int getColumn() {
+		return lines == null || begin < 0 ? -1 : lines.getColumn(begin);
+	}
+	
 	@Override
 	public String toString() {
 		return file+": "+begin+"-"+end;
@@ -13,6 +13,7 @@ import info.iconmaster.typhon.model.TemplateArgument;
 import info.iconmaster.typhon.model.TyphonModelEntity;
 import info.iconmaster.typhon.types.FunctionType;
 import info.iconmaster.typhon.types.TemplateType;
+import info.iconmaster.typhon.types.Type;
 import info.iconmaster.typhon.types.TypeRef;
 import info.iconmaster.typhon.types.UserType;
 
@@ -27,41 +28,98 @@ public class TemplateUtils {
 	
 	/**
 	 * Given a mapping of template parameters to arguments, finds the instance of a type with templates replaced.
+	 * <p>
+	 * If no template in the map occurs in the type, <tt>typeToReplace</tt> itself is returned.
+	 * Otherwise, only the parts of the type that change are rebuilt; a rebuilt reference keeps the flags and source of the old one.
+	 * A template is replaced with the reference in <tt>newTypes</tt> itself.
+	 * <p>
+	 * So the result may be, or may share parts with, <tt>typeToReplace</tt> or the references in <tt>newTypes</tt>.
+	 * Callers that modify the result, or keep it while the originals might be modified, must copy it first.
 	 * 
 	 * @param typeToReplace The template to do replacements on.
 	 * @param newTypes A map of templates to thier replacements.
 	 * @return typeToReplace, with templates replaced.
 	 */
 	public static TypeRef replaceTemplates(TypeRef typeToReplace, Map<TemplateType, TypeRef> newTypes) {
+		if (newTypes.isEmpty()) {
+			return typeToReplace;
+		}
+		
 		if (typeToReplace.getType() instanceof TemplateType) {
 			if (newTypes.containsKey(typeToReplace.getType())) {
 				return newTypes.get(typeToReplace.getType());
 			}
 			return typeToReplace;
 		} else if (typeToReplace.getType() instanceof UserType) {
-			TypeRef newRef = new TypeRef(typeToReplace.getType());
-			for (TemplateArgument tempType : typeToReplace.getTemplateArgs()) {
-				newRef.getTemplateArgs().add(new TemplateArgument(replaceTemplates(tempType.getValue(), newTypes)));
-			}
-			return newRef;
-		} else if (typeToReplace.getType() instanceof FunctionType) {
-			FunctionType funcType = new FunctionType(typeToReplace.tni, typeToReplace.source);
-			
-			for (TypeRef argType : ((FunctionType)typeToReplace.getType()).getArgTypes()) {
-				funcType.getArgTypes().add(replaceTemplates(argType, newTypes));
+			if (typeToReplace.getTemplateArgs().isEmpty()) {
+				return typeToReplace;
 			}
 			
-			for (TypeRef retType : ((FunctionType)typeToReplace.getType()).getRetTypes()) {
-				funcType.getRetTypes().add(replaceTemplates(retType, newTypes));
+			// the new reference is only made once an argument changes
+			TypeRef newRef = null;
+			int i = 0;
+			for (TemplateArgument tempType : typeToReplace.getTemplateArgs()) {
+				TypeRef value = tempType.getValue() == null ? null : replaceTemplates(tempType.getValue(), newTypes);
+				
+				if (newRef == null && value != tempType.getValue()) {
+					newRef = rebuild(typeToReplace, typeToReplace.getType());
+					for (TemplateArgument oldArg : typeToReplace.getTemplateArgs().subList(0, i)) {
+						newRef.getTemplateArgs().add(new TemplateArgument(oldArg.getLabel(), oldArg.getValue()));
+					}
+				}
+				
+				if (newRef != null) {
+					newRef.getTemplateArgs().add(new TemplateArgument(tempType.getLabel(), value));
+				}
+				i++;
 			}
-			
-			TypeRef newRef = new TypeRef(funcType);
-			return newRef;
+			return newRef == null ? typeToReplace : newRef;
+		} else if (typeToReplace.getType() instanceof FunctionType) {
+			FunctionType funcType = ((FunctionType)typeToReplace.getType()).replaceTemplates(newTypes);
+			return funcType == typeToReplace.getType() ? typeToReplace : rebuild(typeToReplace, funcType);
 		} else {
 			return typeToReplace;
 		}
 	}
 	
+	/**
+	 * @param old A reference being rebuilt by replaceTemplates.
+	 * @param type The type of the new reference.
+	 * @return A reference to the type, with no template arguments, and the flags and source of the old reference.
+	 */
+	private static TypeRef rebuild(TypeRef old, Type type) {
+		TypeRef result = new TypeRef(old.source, type);
+		result.isVar(old.isVar());
+		result.isConst(old.isConst());
+		return result;
+	}
+	
+	/**
+	 * Finds the templates that occur in a type; that is, the ones that {@link #replaceTemplates} could replace.
+	 * 
+	 * @param type The type to look in.
+	 * @param result Templates that are found are added to this list, if they're not in it already.
+	 */
+	public static void findTemplates(TypeRef type, List<TemplateType> result) {
+		if (type == null) {
+			return;
+		} else if (type.getType() instanceof TemplateType) {
+			if (!result.contains(type.getType())) {
+				result.add((TemplateType) type.getType());
+			}
+		} else if (type.getType() instanceof UserType) {
+			for (TemplateArgument arg : type.getTemplateArgs()) {
+				findTemplates(arg.getValue(), result);
+			}
+		} else if (type.getType() instanceof FunctionType) {
+			for (TemplateType t : ((FunctionType)type.getType()).getFreeTemplates()) {
+				if (!result.contains(t)) {
+					result.add(t);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Checks to ensure a template instantiation is valid. Adds errors if it isn't.
 	 * 
@@ -83,11 +141,12 @@ public class TemplateUtils {
 	
 	/**
 	 * Generates a mapping of template parameters to arguments for a type, with suitable defaults placed in if not present.
+	 * The mapping is remembered by the type; see {@link TypeRef#getTemplateArgMap}. Don't modify it!
 	 * 
 	 * @param typeToMap The type you're working on.
 	 */
 	public static Map<TemplateType, TypeRef> matchAllTemplateArgs(TypeRef typeToMap) {
-		return matchAllTemplateArgs(typeToMap.getMemberTemplate(), typeToMap.getTemplateArgs());
+		return typeToMap.getTemplateArgMap();
 	}
 	
 	/**
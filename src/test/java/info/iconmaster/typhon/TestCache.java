@@ -0,0 +1,165 @@
+package info.iconmaster.typhon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+/**
+ * Tests <tt>{@link TyphonCache}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestCache extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((dir)->{
+			write(dir, "a.tn", "void f() {int x = y;}");
+			write(dir, "b.tn", "void f() {}");
+			
+			String[] first = check(dir, "a.tn", "b.tn");
+			Assert.assertTrue(first[0].contains("cache: 0 hits, 2 misses"));
+			Assert.assertTrue(first[0].contains("2 compilation errors found."));
+			
+			String[] second = check(dir, "a.tn", "b.tn");
+			Assert.assertTrue(second[0].contains("cache: 2 hits, 0 misses"));
+			Assert.assertEquals(first[1], second[1]);
+		}),new TestCase((dir)->{
+			write(dir, "a.tn", "void f() {int x = y;}");
+			write(dir, "b.tn", "void f() {}");
+			check(dir, "a.tn", "b.tn");
+			
+			write(dir, "a.tn", "void f() {int x = 1;}");
+			String[] result = check(dir, "a.tn", "b.tn");
+			Assert.assertTrue(result[0].contains("cache: 1 hits, 1 misses"));
+			Assert.assertTrue(result[0].contains("0 compilation errors found."));
+		}),new TestCase((dir)->{
+			write(dir, "a.tn", "import \"b.tn\"; void f() {}");
+			Assert.assertTrue(check(dir, "a.tn")[0].contains("1 compilation errors found."));
+			
+			write(dir, "b.tn", "void g() {}");
+			String[] result = check(dir, "a.tn");
+			Assert.assertTrue(result[0].contains("cache: 0 hits, 1 misses"));
+			Assert.assertTrue(result[0].contains("0 compilation errors found."));
+		}),new TestCase((dir)->{
+			write(dir, "a.tn", "void f() {int x = y;}");
+			String[] first = check(dir, "a.tn");
+			
+			for (File entry : new File(dir, "cache").listFiles()) {
+				Files.write(entry.toPath(), new byte[] {0, 0, 0, 1, 0});
+			}
+			
+			String[] second = check(dir, "a.tn");
+			Assert.assertTrue(second[0].contains("cache: 0 hits, 1 misses"));
+			Assert.assertEquals(first[1], second[1]);
+			Assert.assertTrue(check(dir, "a.tn")[0].contains("cache: 1 hits, 0 misses"));
+		}),new TestCase((dir)->{
+			write(dir, "a.tn", "void f() {int x = y;}");
+			write(dir, "lib.tn", "void g() {}");
+			check(dir, "a.tn", "-i", "lib.tn");
+			Assert.assertTrue(check(dir, "a.tn", "-i", "lib.tn")[0].contains("cache: 1 hits, 0 misses"));
+			
+			write(dir, "lib.tn", "void h() {}");
+			Assert.assertTrue(check(dir, "a.tn", "-i", "lib.tn")[0].contains("cache: 0 hits, 1 misses"));
+		}),new TestCase((dir)->{
+			write(dir, "a.tn", "void f() {int x = true;} void g() {int x = y;}");
+			write(dir, "b.tn", "void f() {int x = true;}");
+			
+			String uncached = check(dir, "a.tn", "b.tn")[1];
+			write(dir, "b.tn", "void f() {int q = true;}");
+			String partlyCached = check(dir, "a.tn", "b.tn")[1];
+			
+			Assert.assertEquals(uncached, partlyCached.replace("int q", "int x"));
+		}),new TestCase((dir)->{
+			// whether b's functions get compiled depends on a having a @main function, even when a is unchanged
+			write(dir, "a.tn", "@main void main() {}");
+			write(dir, "b.tn", "void bad() {int x = true;}");
+			Assert.assertTrue(check(dir, "a.tn", "b.tn", "--reachable")[0].contains("0 compilation errors found."));
+			Assert.assertTrue(check(dir, "a.tn", "b.tn", "--reachable")[0].contains("0 compilation errors found."));
+			
+			write(dir, "b.tn", "void bad() {int y = true;}");
+			String[] result = check(dir, "a.tn", "b.tn", "--reachable");
+			Assert.assertTrue(result[0].contains("cache: 0 hits"));
+			Assert.assertTrue(result[0].contains("0 compilation errors found."));
+		}));
+	}
+	
+	private static interface CacheTest {
+		public void test(File dir) throws IOException;
+	}
+	
+	private static class TestCase implements Runnable {
+		CacheTest test;
+		
+		public TestCase(CacheTest test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				File dir = Files.createTempDirectory("typhon").toFile();
+				
+				try {
+					test.test(dir);
+				} finally {
+					delete(dir);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Writes a file into the test directory.
+	 */
+	private static File write(File dir, String name, String contents) throws IOException {
+		File file = new File(dir, name);
+		Files.write(file.toPath(), contents.getBytes());
+		return file;
+	}
+	
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File subFile : file.listFiles()) {
+				delete(subFile);
+			}
+		}
+		file.delete();
+	}
+	
+	/**
+	 * Checks some files, using the cache in the test directory.
+	 * 
+	 * @return What was printed to standard output and standard error.
+	 */
+	private static String[] check(File dir, String... args) {
+		String[] fullArgs = new String[args.length+3];
+		fullArgs[0] = "check";
+		fullArgs[1] = "--cache";
+		fullArgs[2] = "cache";
+		System.arraycopy(args, 0, fullArgs, 3, args.length);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		PrintStream oldOut = System.out, oldErr = System.err;
+		System.setOut(new PrintStream(out, true));
+		System.setErr(new PrintStream(err, true));
+		
+		try {
+			Typhon.run(fullArgs, dir, null);
+		} finally {
+			System.setOut(oldOut);
+			System.setErr(oldErr);
+		}
+		
+		return new String[] {out.toString(), err.toString()};
+	}
+}
@@ -0,0 +1,174 @@
+package info.iconmaster.typhon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.model.ParseCache;
+
+/**
+ * Tests <tt>{@link TyphonDaemon}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestDaemon extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((daemon, dir)->{
+			write(dir, "a.tn", "void f() {int x = y;}");
+			
+			String[] first = request(daemon, dir, "check", ".");
+			Assert.assertTrue(first[0].contains("2 compilation errors found."));
+			Assert.assertTrue(first[1].contains("undefined variable y"));
+			Assert.assertEquals(1, daemon.getMisses());
+			
+			String[] second = request(daemon, dir, "check", ".");
+			Assert.assertArrayEquals(first, second);
+			Assert.assertEquals(1, daemon.getHits());
+		}),new TestCase((daemon, dir)->{
+			File a = write(dir, "a.tn", "void f() {int x = y;}");
+			request(daemon, dir, "check", ".");
+			
+			write(dir, "a.tn", "void f() {int x = 1;}");
+			a.setLastModified(a.lastModified()+2000);
+			Assert.assertTrue(request(daemon, dir, "check", ".")[0].contains("0 compilation errors found."));
+			Assert.assertEquals(0, daemon.getHits());
+			Assert.assertEquals(2, daemon.getMisses());
+		}),new TestCase((daemon, dir)->{
+			// same size, same modification time, different contents
+			File a = write(dir, "a.tn", "void f() {int x = y;}");
+			long lastModified = a.lastModified();
+			Assert.assertTrue(request(daemon, dir, "check", ".")[0].contains("2 compilation errors found."));
+			
+			write(dir, "a.tn", "void f() {int x = 1;}");
+			a.setLastModified(lastModified);
+			Assert.assertTrue(request(daemon, dir, "check", ".")[0].contains("0 compilation errors found."));
+			Assert.assertEquals(0, daemon.getHits());
+			Assert.assertEquals(2, daemon.getParseCache().getMisses());
+		}),new TestCase((daemon, dir)->{
+			write(dir, "a.tn", "void f() {}");
+			Assert.assertTrue(request(daemon, dir, "check", ".")[0].contains("0 compilation errors found."));
+			
+			write(dir, "b.tn", "void f() {int x = y;}");
+			Assert.assertTrue(request(daemon, dir, "check", ".")[0].contains("2 compilation errors found."));
+			Assert.assertEquals(0, daemon.getHits());
+		}),new TestCase((daemon, dir)->{
+			write(dir, "a.tn", "void f() {int x = y;}");
+			write(dir, "b.tn", "void f() {}");
+			
+			request(daemon, dir, "check", "a.tn");
+			request(daemon, dir, "check", "b.tn");
+			Assert.assertEquals(2, daemon.getParseCache().getMisses());
+			
+			Assert.assertTrue(request(daemon, dir, "check", "a.tn", "b.tn")[0].contains("2 compilation errors found."));
+			Assert.assertEquals(2, daemon.getParseCache().getHits());
+			Assert.assertEquals(2, daemon.getParseCache().getMisses());
+		}),new TestCase((daemon, dir)->{
+			write(dir, "a.tn", "import \"b.tn\"; void f() {}");
+			Assert.assertTrue(request(daemon, dir, "check", "a.tn")[0].contains("1 compilation errors found."));
+			
+			write(dir, "b.tn", "void g() {}");
+			Assert.assertTrue(request(daemon, dir, "check", "a.tn")[0].contains("0 compilation errors found."));
+			Assert.assertEquals(0, daemon.getHits());
+		}),new TestCase((daemon, dir)->{
+			Assert.assertTrue(request(daemon, dir, "check", "--bogus", ".")[1].contains("unknown option --bogus"));
+			Assert.assertTrue(request(daemon, dir, "check", "missing.tn")[1].contains("does not exist"));
+			Assert.assertTrue(request(daemon, dir, "daemon")[1].contains("cannot be sent to a daemon"));
+			Assert.assertEquals(0, daemon.getHits());
+		}),new TestCase((daemon, dir)->{
+			write(dir, "a.tn", "void f() {}");
+			File forged = write(dir, "forged.token", "not the token");
+			
+			try {
+				TyphonDaemon.runClient(daemon.getPort(), forged, dir, new String[] {"check", "."}, new ByteArrayOutputStream(), new ByteArrayOutputStream());
+				Assert.fail("the daemon answered a client without its token");
+			} catch (EOFException e) {
+				// the daemon hung up, as it should
+			}
+			Assert.assertEquals(0, daemon.getMisses());
+			
+			Assert.assertTrue(request(daemon, dir, "check", ".")[0].contains("0 compilation errors found."));
+			if (dir.toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+				Assert.assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(daemon.getTokenFile().toPath()));
+			}
+		}),new TestCase((daemon, dir)->{
+			File a = write(dir, "a.tn", "void f() {}");
+			File b = write(dir, "b.tn", "void g() {}");
+			ParseCache cache = new ParseCache(1);
+			
+			cache.parse(a);
+			cache.parse(b);
+			cache.parse(a);
+			Assert.assertEquals(1, cache.size());
+			Assert.assertEquals(3, cache.getMisses());
+			
+			cache.parse(a);
+			Assert.assertEquals(1, cache.getHits());
+		}));
+	}
+	
+	private static interface DaemonTest {
+		public void test(TyphonDaemon daemon, File dir) throws IOException;
+	}
+	
+	private static class TestCase implements Runnable {
+		DaemonTest test;
+		
+		public TestCase(DaemonTest test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				File dir = Files.createTempDirectory("typhon").toFile();
+				TyphonDaemon daemon = new TyphonDaemon(0, dir);
+				Thread thread = new Thread(daemon::serve);
+				thread.start();
+				
+				try {
+					test.test(daemon, dir);
+				} finally {
+					daemon.close();
+					thread.join();
+					
+					for (File file : dir.listFiles()) {
+						file.delete();
+					}
+					dir.delete();
+				}
+			} catch (IOException | InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Writes a file into the test directory.
+	 */
+	private static File write(File dir, String name, String contents) throws IOException {
+		File file = new File(dir, name);
+		Files.write(file.toPath(), contents.getBytes());
+		return file;
+	}
+	
+	/**
+	 * Sends a request to the daemon.
+	 * 
+	 * @return What was printed to standard output and standard error.
+	 */
+	private static String[] request(TyphonDaemon daemon, File dir, String... args) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		TyphonDaemon.runClient(daemon.getPort(), daemon.getTokenFile(), dir, args, out, err);
+		return new String[] {out.toString(), err.toString()};
+	}
+}
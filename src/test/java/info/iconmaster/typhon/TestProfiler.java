@@ -0,0 +1,82 @@
+package info.iconmaster.typhon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Tests <tt>{@link TyphonProfiler}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestProfiler extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase(new String[] {"void f() {}"}, (profiler)->{
+			Assert.assertEquals(Arrays.asList("link", "resolve", "check", "compile"), profiler.getPhases().stream().map((m)->m.phase).collect(Collectors.toList()));
+			Assert.assertEquals(4, profiler.getFiles().size());
+			Assert.assertEquals(1, profiler.getFunctions().size());
+			Assert.assertEquals("f()", profiler.getFunctions().get(0).name);
+			Assert.assertEquals(0, profiler.getFunctions().get(0).source.begin);
+		}),new TestCase(new String[] {"void f() {} int g(int x) => x", "void h() {}"}, (profiler)->{
+			Assert.assertEquals(8, profiler.getFiles().size());
+			Assert.assertEquals(3, profiler.getFunctions().size());
+			Assert.assertTrue(profiler.getFunctions().stream().anyMatch((m)->m.name.equals("g(int)")));
+			
+			for (TyphonProfiler.Measurement m : profiler.getFiles()) {
+				Assert.assertTrue(m.wallTime >= 0);
+			}
+			for (int i = 1; i < profiler.getFunctions().size(); i++) {
+				Assert.assertTrue(profiler.getFunctions().get(i-1).wallTime >= profiler.getFunctions().get(i).wallTime);
+			}
+		}),new TestCase(new String[] {"class A {} void f() {}"}, (profiler)->{
+			try {
+				File file = File.createTempFile("profile", ".json");
+				try {
+					profiler.writeJson(file);
+					String json = new String(Files.readAllBytes(file.toPath()));
+					
+					Assert.assertTrue(json.contains("\"phases\": ["));
+					Assert.assertTrue(json.contains("\"functions\": ["));
+					Assert.assertTrue(json.contains("\"phase\": \"compile\", \"name\": \"f()\""));
+				} finally {
+					file.delete();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		String[] inputs;
+		Consumer<TyphonProfiler> test;
+		
+		public TestCase(String[] inputs, Consumer<TyphonProfiler> test) {
+			this.inputs = inputs;
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput tni = new TyphonInput();
+			tni.profiler = new TyphonProfiler();
+			for (String input : inputs) {
+				tni.inputPackages.add(TyphonModelReader.parseString(tni, input));
+			}
+			TyphonScheduler.run(tni, 1);
+			
+			test.accept(tni.profiler);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package info.iconmaster.typhon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Tests <tt>{@link TyphonScheduler}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestScheduler extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase(new String[] {"void f() {}"}, (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+		}),new TestCase(new String[] {"void f() {}", "void g() {}", "int h() => 1"}, (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+		}),new TestCase(new String[] {"void f() {int x = true;}", "void g() {}", "void h() {int x = y; int z = w;}"}, (tni)->{
+			Assert.assertEquals(5, tni.errors.size());
+		}),new TestCase(new String[] {"class a {} void f() {a x = 1;}", "void f() {int x = true;}", "import q;", "void g() {int x = w;}", "@bad void h() {}"}, (tni)->{
+			Assert.assertNotEquals(0, tni.errors.size());
+		}),new GroupsCase(new int[][] {{}, {}, {}}, new int[][] {{0}, {1}, {2}}),
+		new GroupsCase(new int[][] {{1}, {2}, {}}, new int[][] {{2}, {1}, {0}}),
+		new GroupsCase(new int[][] {{1}, {0}, {}}, new int[][] {{0, 1}, {2}}),
+		new GroupsCase(new int[][] {{}, {2}, {3}, {1}, {3}}, new int[][] {{0}, {1, 2, 3}, {4}}),
+		new GroupsCase(new int[][] {{1, 2}, {3}, {3}, {}}, new int[][] {{3}, {1}, {2}, {0}}));
+	}
+	
+	/**
+	 * Runs the scheduler over some packages, with and without multiple jobs, and makes sure the results are the same.
+	 */
+	private static class TestCase implements Runnable {
+		String[] inputs;
+		Consumer<TyphonInput> test;
+		
+		public TestCase(String[] inputs, Consumer<TyphonInput> test) {
+			this.inputs = inputs;
+			this.test = test;
+		}
+		
+		private TyphonInput schedule(int jobs) {
+			TyphonInput tni = new TyphonInput();
+			for (String input : inputs) {
+				tni.inputPackages.add(TyphonModelReader.parseString(tni, input));
+			}
+			TyphonScheduler.run(tni, jobs);
+			return tni;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput sequential = schedule(1);
+			TyphonInput parallel = schedule(4);
+			
+			List<String> expected = sequential.errors.stream().map(Object::toString).collect(Collectors.toList());
+			List<String> actual = parallel.errors.stream().map(Object::toString).collect(Collectors.toList());
+			Assert.assertEquals(expected, actual);
+			
+			test.accept(parallel);
+		}
+	}
+	
+	/**
+	 * Makes sure packages get grouped into the correct order, given what they depend on.
+	 */
+	private static class GroupsCase implements Runnable {
+		int[][] deps;
+		int[][] groups;
+		
+		public GroupsCase(int[][] deps, int[][] groups) {
+			this.deps = deps;
+			this.groups = groups;
+		}
+		
+		@Override
+		public void run() {
+			List<Set<Integer>> depSets = new ArrayList<>();
+			for (int[] dep : deps) {
+				depSets.add(new TreeSet<>(Arrays.stream(dep).boxed().collect(Collectors.toList())));
+			}
+			
+			List<List<Integer>> expected = new ArrayList<>();
+			for (int[] group : groups) {
+				expected.add(Arrays.stream(group).boxed().collect(Collectors.toList()));
+			}
+			
+			Assert.assertEquals(expected, TyphonScheduler.getGroups(depSets));
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package info.iconmaster.typhon.compiler;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.junit.Assert;
@@ -969,6 +971,36 @@ public class TestCompiler extends TyphonTest {
 			Assert.assertEquals(0, code.tni.errors.size());
 		}),new TestCase("class A {int x;} class B : A {int getX() => x} void f() {}", (code)->{
 			Assert.assertEquals(0, code.tni.errors.size());
+		}),new TestCase("int g(int x) => x int g(float x) => 1 int g(string x) => 1 void f() {int y = g(g(g(g(g(g(g(g(g(g(g(g(1))))))))))));}", (code)->{
+			Assert.assertEquals(0, code.tni.errors.size());
+			
+			int nCalls = 0;
+			for (Instruction inst : code.ops) {
+				if (inst.op == Instruction.OpCode.CALLSTATIC) {
+					nCalls++;
+				}
+			}
+			
+			Assert.assertEquals(12, nCalls);
+		}),new TestCase("int g(var x) => 1 void f() {int y = g(g(g(h())));}", (code)->{
+			Assert.assertEquals(1, code.tni.errors.size());
+		}),new TestCase("int g(int x) => x int g(float x) => 1 void f() {int y = g(g(g(1)));}", (code)->{
+			Assert.assertEquals(0, code.tni.errors.size());
+			
+			// typing the calls shouldn't leave behind any variables the instructions don't use
+			Set<Object> used = new HashSet<>();
+			for (Instruction inst : code.ops) {
+				for (Object arg : inst.args) {
+					used.add(arg);
+					if (arg instanceof List) {
+						used.addAll((List<?>) arg);
+					}
+				}
+			}
+			
+			for (Variable var : code.vars) {
+				Assert.assertTrue(var.toString(), used.contains(var));
+			}
 		}));
 	}
     
@@ -0,0 +1,103 @@
+package info.iconmaster.typhon.compiler;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonScheduler;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Tests <tt>{@link TyphonCompiler}.compileReachable</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestReachable extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase("@main void main() {f();} void f() {g();} void g() {} void h() {}", "", (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+			Assert.assertTrue(isCompiled(tni, "main"));
+			Assert.assertTrue(isCompiled(tni, "f"));
+			Assert.assertTrue(isCompiled(tni, "g"));
+			Assert.assertFalse(isCompiled(tni, "h"));
+		}),new TestCase("@main void main() {} void bad() {int x = true;}", "", (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+			Assert.assertFalse(isCompiled(tni, "bad"));
+		}),new TestCase("void f() {} void bad() {int x = true;}", "", (tni)->{
+			Assert.assertEquals(1, tni.errors.size());
+			Assert.assertTrue(isCompiled(tni, "f"));
+			Assert.assertTrue(isCompiled(tni, "bad"));
+		}),new TestCase("@main void main() {}", "void f() {int x = true;} int g() => 1", (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+			Assert.assertFalse(isCompiled(tni, "f"));
+			Assert.assertFalse(isCompiled(tni, "g"));
+		}),new TestCase("@main void main() {}", "int x = f(); int f() => g() int g() => 1 int h() => 1", (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+			Assert.assertTrue(isCompiled(tni, "f"));
+			Assert.assertTrue(isCompiled(tni, "g"));
+			Assert.assertFalse(isCompiled(tni, "h"));
+		}),new TestCase("class A {void f() {}} class B : A {@override void f() {int x = true;}} @main void main() {var a = new A(); a.f();}", "", (tni)->{
+			Assert.assertEquals(1, tni.errors.size());
+		}),new TestCase("@main void main() {var l = () => f();} int f() => 1 int g() => 1", "", (tni)->{
+			Assert.assertEquals(0, tni.errors.size());
+			Assert.assertTrue(isCompiled(tni, "f"));
+			Assert.assertFalse(isCompiled(tni, "g"));
+		}),new TestCase("void f() {} void bad() {int x = true;}", "@main void main() {}", (tni)->{
+			// a library's @main doesn't stop the input from being compiled in full
+			Assert.assertEquals(1, tni.errors.size());
+			Assert.assertTrue(isCompiled(tni, "f"));
+			Assert.assertTrue(isCompiled(tni, "bad"));
+		}));
+	}
+	
+	/**
+	 * @return True if a top-level function with the given name, in any input or library package, has been compiled.
+	 */
+	private static boolean isCompiled(TyphonInput tni, String name) {
+		for (List<Package> packages : Arrays.asList(tni.inputPackages, tni.libraryPackages)) {
+			for (Package p : packages) {
+				for (Function f : p.getFunctionsWithName(name)) {
+					if (f.getCode() != null) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Compiles an input and a library, only compiling what's reachable.
+	 */
+	private static class TestCase implements Runnable {
+		String input, library;
+		Consumer<TyphonInput> test;
+		
+		public TestCase(String input, String library, Consumer<TyphonInput> test) {
+			this.input = input;
+			this.library = library;
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput tni = new TyphonInput();
+			tni.compileReachableOnly = true;
+			tni.inputPackages.add(TyphonModelReader.parseString(tni, input));
+			tni.libraryPackages.add(TyphonModelReader.parseString(tni, library));
+			
+			TyphonScheduler.run(tni, 1);
+			test.accept(tni);
+		}
+	}
+}
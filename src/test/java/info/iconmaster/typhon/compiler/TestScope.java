@@ -0,0 +1,107 @@
+package info.iconmaster.typhon.compiler;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.types.TypeRef;
+
+/**
+ * Tests <tt>{@link Scope}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestScope extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((root)->{
+			TypeRef type = new TypeRef(root.getCodeBlock().tni.corePackage.TYPE_INT);
+			Variable outer = root.addVar("x", type, null);
+			Scope child = new Scope(root.getCodeBlock(), root);
+			Scope sibling = new Scope(root.getCodeBlock(), root);
+			Variable inner = child.addVar("x", type, null);
+			
+			Assert.assertSame(inner, child.getVar("x"));
+			Assert.assertSame(inner, new Scope(root.getCodeBlock(), child).getVar("x"));
+			Assert.assertSame(outer, root.getVar("x"));
+			Assert.assertSame(outer, sibling.getVar("x"));
+			Assert.assertNull(child.getVar("y"));
+		}),new TestCase((root)->{
+			TypeRef type = new TypeRef(root.getCodeBlock().tni.corePackage.TYPE_INT);
+			Scope child = new Scope(root.getCodeBlock(), root);
+			Variable inner = child.addVar("x", type, null);
+			Variable later = root.addVar("y", type, null);
+			
+			Assert.assertSame(inner, child.getVar("x"));
+			Assert.assertSame(later, child.getVar("y"));
+			Assert.assertNull(root.getVar("x"));
+			
+			child.exit();
+			Variable outer = root.addVar("x", type, null);
+			Assert.assertSame(outer, root.getVar("x"));
+			Assert.assertSame(outer, new Scope(root.getCodeBlock(), root).getVar("x"));
+			Assert.assertNull(outer.shadowed);
+		}),new TestCase((root)->{
+			TypeRef type = new TypeRef(root.getCodeBlock().tni.corePackage.TYPE_INT);
+			Scope child = new Scope(root.getCodeBlock(), root);
+			root.addVar("x", type, null);
+			child.addTempVar(type, null);
+			child.addVar("y", type, null);
+			
+			for (int i = 0; i < root.getCodeBlock().vars.size(); i++) {
+				Assert.assertEquals(i, root.getCodeBlock().vars.get(i).slot);
+				Assert.assertSame(root.getCodeBlock().vars.get(i), root.getCodeBlock().getVar(i));
+			}
+			
+			Label label = root.addLabel("l");
+			Scope sibling = new Scope(root.getCodeBlock(), root);
+			sibling.addLabel("m");
+			Assert.assertSame(label, child.getLabel("l"));
+			Assert.assertNull(child.getLabel("m"));
+		}),new TestCase((root)->{
+			TypeRef type = new TypeRef(root.getCodeBlock().tni.corePackage.TYPE_INT);
+			Variable outer = root.addVar("x", type, null);
+			Label outerLabel = root.addLabel("l");
+			
+			for (int i = 0; i < 1000; i++) {
+				Scope block = new Scope(root.getCodeBlock(), root);
+				Variable inner = block.addVar("x", type, null);
+				Label innerLabel = block.addLabel("l");
+				
+				Assert.assertSame(inner, block.getVar("x"));
+				Assert.assertSame(inner, new Scope(root.getCodeBlock(), block).getVar("x"));
+				Assert.assertSame(innerLabel, block.getLabel("l"));
+				
+				// exited siblings don't pile up in front of the outer declarations
+				Assert.assertSame(outer, inner.shadowed);
+				Assert.assertSame(outerLabel, innerLabel.shadowed);
+				block.exit();
+			}
+			
+			Assert.assertSame(outer, root.getVar("x"));
+			Assert.assertSame(outer, new Scope(root.getCodeBlock(), root).getVar("x"));
+			Assert.assertSame(outerLabel, root.getLabel("l"));
+			Assert.assertEquals(1001, root.getCodeBlock().vars.size());
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		Consumer<Scope> test;
+		
+		public TestCase(Consumer<Scope> test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput tni = new TyphonInput();
+			test.accept(new Scope(new CodeBlock(tni, new Package(tni, "p"))));
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package info.iconmaster.typhon.model;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonScheduler;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.libs.CorePackage;
+
+/**
+ * Tests that the <tt>{@link CorePackage}</tt> is shared between inputs correctly.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestCorePackage extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase("", (a, b)->{
+			Assert.assertNotSame(a.corePackage, b.corePackage);
+			Assert.assertSame(a.corePackage.TYPE_INT, b.corePackage.TYPE_INT);
+			Assert.assertSame(a.corePackage.LIB_OPS, b.corePackage.LIB_OPS);
+			Assert.assertSame(a.corePackage.TYPE_INT, a.corePackage.getType("int"));
+		}),new TestCase("void f() {}", (a, b)->{
+			Assert.assertEquals(0, a.errors.size());
+			Assert.assertTrue(a.corePackage.getCoreSubpackages().contains(a.inputPackages.get(0)));
+			Assert.assertFalse(b.corePackage.getCoreSubpackages().contains(a.inputPackages.get(0)));
+		}),new TestCase("import operator; class a : Iterable<int> {@override Iterator<int> iterator() {}}", (a, b)->{
+			Assert.assertEquals(0, a.errors.size());
+			
+			Function virtual = a.corePackage.TYPE_ITERABLE.FUNC_ITERATOR;
+			Function override = a.inputPackages.get(0).getType("a").getTypePackage().getFunctionsWithName("iterator").get(0);
+			Assert.assertTrue(virtual.getVirtualOverrides(a).contains(override));
+			Assert.assertFalse(virtual.getVirtualOverrides(b).contains(override));
+			Assert.assertFalse(virtual.getVirtualOverrides().contains(override));
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		String input;
+		BiConsumer<TyphonInput, TyphonInput> test;
+		
+		public TestCase(String input, BiConsumer<TyphonInput, TyphonInput> test) {
+			this.input = input;
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput a = new TyphonInput();
+			a.inputPackages.add(TyphonModelReader.parseString(a, input));
+			TyphonScheduler.run(a, 1);
+			
+			test.accept(a, new TyphonInput());
+		}
+	}
+}
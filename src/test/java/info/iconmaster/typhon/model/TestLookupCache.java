@@ -0,0 +1,64 @@
+package info.iconmaster.typhon.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.linker.TyphonLinker;
+
+/**
+ * Tests <tt>{@link LookupCache}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestLookupCache extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((tni)->{
+			Package p = new Package(tni, "p");
+			Assert.assertTrue(p.getMembers("f", new HashMap<>()).isEmpty());
+			
+			p.addFunction(new Function(tni, "f"));
+			Assert.assertEquals(1, p.getMembers("f", new HashMap<>()).size());
+			
+			p.removeFunction(p.getFunctionsWithName("f").get(0));
+			Assert.assertTrue(p.getMembers("f", new HashMap<>()).isEmpty());
+		}),new TestCase((tni)->{
+			Package p = new Package(tni, "p");
+			p.addFunction(new Function(tni, "f"));
+			
+			p.getMembers("f", new HashMap<>());
+			long hits = tni.lookupCache.getHits();
+			p.getMembers("f", new HashMap<>()).clear();
+			p.getMembers("f", new HashMap<>());
+			Assert.assertEquals(hits+2, tni.lookupCache.getHits());
+			Assert.assertEquals(1, p.getMembers("f", new HashMap<>()).size());
+		}),new TestCase((tni)->{
+			Package p = TyphonModelReader.parseString(tni, "package q {void f() {}} package r {import q;}");
+			Package r = p.getSubpackagesWithName("r").get(0);
+			Assert.assertTrue(r.getMembers("f", new HashMap<>()).isEmpty());
+			
+			TyphonLinker.link(p);
+			Assert.assertEquals(1, r.getMembers("f", new HashMap<>()).size());
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		Consumer<TyphonInput> test;
+		
+		public TestCase(Consumer<TyphonInput> test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			test.accept(new TyphonInput());
+		}
+	}
+}
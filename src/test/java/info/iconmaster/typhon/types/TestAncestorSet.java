@@ -0,0 +1,99 @@
+package info.iconmaster.typhon.types;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.TemplateArgument;
+
+/**
+ * Tests <tt>{@link AncestorSet}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestAncestorSet extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			UserType b = new UserType(tni, "b");
+			b.getParentTypes().add(new TypeRef(a));
+			UserType c = new UserType(tni, "c");
+			c.getParentTypes().add(new TypeRef(a));
+			
+			AncestorSet set = b.getAncestorSet();
+			Assert.assertNotNull(set);
+			Assert.assertTrue(set.contains(b));
+			Assert.assertTrue(set.contains(a));
+			Assert.assertTrue(set.contains(tni.corePackage.TYPE_ANY));
+			Assert.assertFalse(set.contains(c));
+			
+			Assert.assertEquals(Boolean.TRUE, ExtendableType.canCastErased(new TypeRef(b), new TypeRef(a)));
+			Assert.assertEquals(Boolean.TRUE, ExtendableType.canCastErased(new TypeRef(b), new TypeRef(tni.corePackage.TYPE_ANY)));
+			Assert.assertEquals(Boolean.FALSE, ExtendableType.canCastErased(new TypeRef(b), new TypeRef(c)));
+			Assert.assertEquals(0, tni.castCache.getHits()+tni.castCache.getMisses());
+		}),new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_INT)));
+			
+			Assert.assertNull(ExtendableType.canCastErased(new TypeRef(a), new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_INT))));
+			Assert.assertTrue(new TypeRef(a).canCastTo(new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_INT))));
+			Assert.assertFalse(new TypeRef(a).canCastTo(new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_STRING))));
+			Assert.assertEquals(Boolean.FALSE, ExtendableType.canCastErased(new TypeRef(a), new TypeRef(tni.corePackage.TYPE_STRING)));
+		}),new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			TemplateType t = new TemplateType(tni, "T");
+			a.getTemplates().add(t);
+			a.getParentTypes().add(new TypeRef(t));
+			
+			Assert.assertNull(a.getAncestorSet());
+			Assert.assertNull(ExtendableType.canCastErased(new TypeRef(a), new TypeRef(tni.corePackage.TYPE_STRING)));
+		}),new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			UserType b = new UserType(tni, "b");
+			b.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			UserType c = new UserType(tni, "c");
+			c.getParentTypes().add(new TypeRef(a));
+			c.getParentTypes().add(new TypeRef(b));
+			UserType d = new UserType(tni, "d");
+			d.getParentTypes().add(new TypeRef(b));
+			d.getParentTypes().add(new TypeRef(a));
+			
+			TypeRef first = ExtendableType.commonTypeErased(new TypeRef(c), new TypeRef(d));
+			Assert.assertEquals(new TypeRef(new ComboType(tni, a, b)), first);
+			Assert.assertSame(first.getType(), new TypeRef(c).commonType(new TypeRef(d)).getType());
+		}),new TestCase((tni)->{
+			UserType root = new UserType(tni, "root");
+			root.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			
+			TypeRef common = null;
+			for (int i = 0; i < 1000; i++) {
+				UserType leaf = new UserType(tni, "leaf"+i);
+				leaf.getParentTypes().add(new TypeRef(root));
+				common = common == null ? new TypeRef(leaf) : common.commonType(new TypeRef(leaf));
+			}
+			
+			Assert.assertEquals(new TypeRef(root), common);
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		Consumer<TyphonInput> test;
+		
+		public TestCase(Consumer<TyphonInput> test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			test.accept(new TyphonInput());
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package info.iconmaster.typhon.types;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.junit.Assert;
@@ -9,6 +10,7 @@ import org.junit.runners.Parameterized;
 import info.iconmaster.typhon.TyphonInput;
 import info.iconmaster.typhon.TyphonTest;
 import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Function;
 import info.iconmaster.typhon.model.Package;
 import info.iconmaster.typhon.model.TyphonModelReader;
 
@@ -165,6 +167,18 @@ public class TestAnnotChecker extends TyphonTest {
 			Assert.assertEquals(1, p.tni.errors.size());
 		}),new TestCase("@abstract class a {@abstract void f();} class b : a {@override void f() {}}", (p)->{
 			Assert.assertEquals(0, p.tni.errors.size());
+		}),new TestCase("import operator; class a {@add a f(a other) {}} class b : a {@add @sub b g(b other) {}}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			Type b = p.getType("b");
+			List<Function> adds = b.getOperatorHandlers(p.tni.corePackage.LIB_OPS.ANNOT_ADD);
+			Assert.assertEquals(2, adds.size());
+			Assert.assertEquals(1, b.getOperatorHandlers(p.tni.corePackage.LIB_OPS.ANNOT_SUB).size());
+			Assert.assertEquals(0, b.getOperatorHandlers(p.tni.corePackage.LIB_OPS.ANNOT_MUL).size());
+			Assert.assertEquals(1, p.getType("a").getOperatorHandlers(p.tni.corePackage.LIB_OPS.ANNOT_ADD).size());
+			
+			adds.clear();
+			Assert.assertEquals(2, b.getOperatorHandlers(p.tni.corePackage.LIB_OPS.ANNOT_ADD).size());
 		}));
 	}
     
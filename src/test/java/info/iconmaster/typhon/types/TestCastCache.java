@@ -0,0 +1,94 @@
+package info.iconmaster.typhon.types;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.TemplateArgument;
+
+/**
+ * Tests <tt>{@link CastCache}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestCastCache extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((tni)->{
+			// a bounded cache starts over when it's full, but still gives the right answers
+			tni.castCache = new CastCache(4);
+			TypeRef any = new TypeRef(tni.corePackage.TYPE_ANY);
+			for (int i = 0; i < 10; i++) {
+				UserType a = new UserType(tni, "a"+i);
+				a.getParentTypes().add(any);
+				Assert.assertTrue(new TypeRef(a).canCastTo(any));
+				Assert.assertFalse(any.canCastTo(new TypeRef(a)));
+				Assert.assertTrue(tni.castCache.size() <= 4);
+			}
+		}),new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			UserType b = new UserType(tni, "b");
+			b.getParentTypes().add(new TypeRef(a));
+			
+			TypeRef listA = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(a));
+			TypeRef listB = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(b));
+			
+			Assert.assertTrue(listB.canCastTo(listA));
+			long hits = tni.castCache.getHits();
+			Assert.assertTrue(listB.canCastTo(listA));
+			Assert.assertEquals(hits+1, tni.castCache.getHits());
+			Assert.assertFalse(listA.canCastTo(listB));
+		}),new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			UserType b = new UserType(tni, "b");
+			b.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			Assert.assertFalse(new TypeRef(b).canCastTo(new TypeRef(a)));
+			
+			b.getParentTypes().add(new TypeRef(a));
+			tni.lookupCache.invalidate();
+			Assert.assertTrue(new TypeRef(b).canCastTo(new TypeRef(a)));
+		}),new TestCase((tni)->{
+			TypeRef intList = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_INT));
+			TypeRef stringList = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_STRING));
+			
+			Assert.assertTrue(intList.canCastTo(intList.copy()));
+			Assert.assertFalse(intList.canCastTo(stringList));
+			Assert.assertFalse(intList.canCastTo(stringList));
+			Assert.assertEquals(0, tni.castCache.getHits()+tni.castCache.getMisses());
+			
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			Assert.assertFalse(new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(a)).canCastTo(intList));
+			Assert.assertTrue(tni.castCache.getMisses() > 0);
+		}),new TestCase((tni)->{
+			// function types are made fresh each time, so remembering checks on them would only fill the cache
+			for (int i = 0; i < 10; i++) {
+				FunctionType f = new FunctionType(tni, new Type[] {tni.corePackage.TYPE_INT}, new Type[] {tni.corePackage.TYPE_INT});
+				FunctionType g = new FunctionType(tni, new Type[] {tni.corePackage.TYPE_INT}, new Type[] {tni.corePackage.TYPE_INT});
+				Assert.assertTrue(new TypeRef(f).canCastTo(new TypeRef(g)));
+			}
+			
+			Assert.assertEquals(0, tni.castCache.getHits()+tni.castCache.getMisses());
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		Consumer<TyphonInput> test;
+		
+		public TestCase(Consumer<TyphonInput> test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			test.accept(new TyphonInput());
+		}
+	}
+}
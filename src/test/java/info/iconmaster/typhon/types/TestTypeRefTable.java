@@ -0,0 +1,92 @@
+package info.iconmaster.typhon.types;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.TemplateArgument;
+
+/**
+ * Tests <tt>{@link TypeRefTable}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestTypeRefTable extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((tni)->{
+			TypeRef intList = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_INT));
+			TypeRef interned = intList.intern();
+			
+			Assert.assertTrue(interned.isInterned());
+			Assert.assertFalse(intList.isInterned());
+			Assert.assertSame(interned, intList.copy().intern());
+			Assert.assertSame(interned, interned.intern());
+			Assert.assertEquals(intList, interned);
+			Assert.assertEquals(intList.hashCode(), interned.hashCode());
+			Assert.assertNotSame(interned, new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_STRING)).intern());
+		}),new TestCase((tni)->{
+			TypeRef var = TypeRef.var(tni);
+			Assert.assertSame(var, TypeRef.var(tni));
+			
+			// references to built-in types made for an input are interned there, not in the shared core's table
+			TypeRef otherVar = TypeRef.var(new TyphonInput());
+			Assert.assertNotSame(var, otherVar);
+			Assert.assertEquals(var, otherVar);
+			Assert.assertSame(tni, var.tni);
+			
+			try {
+				var.isConst(true);
+				Assert.fail("interned reference was changed");
+			} catch (IllegalStateException e) {}
+			
+			TypeRef constVar = var.copy();
+			constVar.isConst(true);
+			Assert.assertTrue(constVar.isVar());
+			Assert.assertNotSame(var, constVar.intern());
+		}),new TestCase((tni)->{
+			UserType a = new UserType(tni, "a");
+			a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+			
+			TypeRef aList = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(a)).intern();
+			Assert.assertTrue(tni.typeRefs.size() > 0);
+			Assert.assertSame(aList, new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(a)).intern());
+			
+			TyphonInput other = new TyphonInput();
+			Assert.assertEquals(0, other.typeRefs.size());
+		}),new TestCase((tni)->{
+			// a bounded table starts over when it's full; what it gave out before stays interned
+			tni.typeRefs = new TypeRefTable(tni, 4);
+			List<TypeRef> interned = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				UserType a = new UserType(tni, "a"+i);
+				a.getParentTypes().add(new TypeRef(tni.corePackage.TYPE_ANY));
+				interned.add(new TypeRef(a).intern());
+				Assert.assertTrue(tni.typeRefs.size() <= 4);
+			}
+			
+			Assert.assertTrue(interned.get(0).isInterned());
+			Assert.assertEquals(interned.get(0), new TypeRef(interned.get(0).getType()).intern());
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		Consumer<TyphonInput> test;
+		
+		public TestCase(Consumer<TyphonInput> test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			test.accept(new TyphonInput());
+		}
+	}
+}
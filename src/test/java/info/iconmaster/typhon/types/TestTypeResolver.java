@@ -1,6 +1,7 @@
 package info.iconmaster.typhon.types;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.function.Consumer;
 
 import org.junit.Assert;
@@ -9,6 +10,7 @@ import org.junit.runners.Parameterized;
 import info.iconmaster.typhon.TyphonInput;
 import info.iconmaster.typhon.TyphonTest;
 import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Function;
 import info.iconmaster.typhon.model.Package;
 import info.iconmaster.typhon.model.TyphonModelReader;
 
@@ -151,6 +153,19 @@ public class TestTypeResolver extends TyphonTest {
 			Assert.assertEquals(0, p.tni.errors.size());
 		}),new TestCase("(int && float && Any) x;", (p)->{
 			Assert.assertEquals(0, p.tni.errors.size());
+		}),new TestCase("class a {void f() {}} class b : a {} class c : a {} class d : b, c {void f() {}}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			UserType d = (UserType) p.getType("d");
+			Assert.assertEquals(4, d.getAllParents().size());
+			Assert.assertEquals(p.getType("b"), d.getAllParents().get(0).getType());
+			Assert.assertEquals(p.getType("c"), d.getAllParents().get(1).getType());
+			Assert.assertEquals(p.getType("a"), d.getAllParents().get(2).getType());
+			Assert.assertEquals(p.tni.corePackage.TYPE_ANY, d.getAllParents().get(3).getType());
+			Assert.assertSame(d.getAllParents(), d.getAllParents());
+			
+			Assert.assertEquals(2, d.getMembers("f", new HashMap<>()).size());
+			Assert.assertEquals(d.getTypePackage(), ((Function)d.getMembers("f", new HashMap<>()).get(0)).getParent());
 		}));
 	}
     
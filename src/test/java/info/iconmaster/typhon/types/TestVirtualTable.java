@@ -0,0 +1,100 @@
+package info.iconmaster.typhon.types;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Tests <tt>{@link VirtualTable}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestVirtualTable extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase("class a {void f() {} void g() {}} class b : a {@override void f() {}} class c : b {@override void f() {} void h() {}}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			Function af = method(p, "a", "f"), ag = method(p, "a", "g"), bf = method(p, "b", "f"), cf = method(p, "c", "f");
+			VirtualTable a = p.getType("a").getVirtualTable(), b = p.getType("b").getVirtualTable(), c = p.getType("c").getVirtualTable();
+			
+			Assert.assertNotEquals(a.getSlotOf(af), a.getSlotOf(ag));
+			Assert.assertEquals(a.size(), b.size());
+			Assert.assertEquals(a.size()+1, c.size());
+			
+			// the slots of a parent come first, in the same order
+			for (int i = 0; i < a.size(); i++) {
+				Assert.assertSame(a.getSlot(i), b.getSlot(i));
+				Assert.assertSame(a.getSlot(i), c.getSlot(i));
+			}
+			
+			Assert.assertSame(af, a.getImplementation(af));
+			Assert.assertSame(bf, b.getImplementation(af));
+			Assert.assertSame(cf, c.getImplementation(af));
+			Assert.assertSame(cf, c.getImplementation(bf));
+			Assert.assertSame(ag, c.getImplementation(ag));
+			Assert.assertEquals(c.getSlotOf(af), c.getSlotOf(cf));
+			Assert.assertEquals(-1, a.getSlotOf(cf));
+			
+			Assert.assertSame(af, cf.getVirtualBase(p.getType("c")));
+			Assert.assertSame(cf, af.getVirtualOverride(p.getType("c")));
+			Assert.assertSame(bf, af.getVirtualOverride(p.getType("b")));
+		}),new TestCase("class c : b {@override void f() {}} class b : a {@override void f() {}} class a {void f() {}}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			// the nearest override is called, no matter what order the overrides were found in
+			Assert.assertSame(method(p, "c", "f"), method(p, "a", "f").getVirtualOverride(p.getType("c")));
+			Assert.assertSame(method(p, "b", "f"), method(p, "a", "f").getVirtualOverride(p.getType("b")));
+		}),new TestCase("class a {void f() {}} class x {void g() {} void h() {}} class d : a, x {@override void h() {}}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			VirtualTable a = p.getType("a").getVirtualTable(), x = p.getType("x").getVirtualTable(), d = p.getType("d").getVirtualTable();
+			Assert.assertEquals(a.getSlotOf(method(p, "a", "f")), d.getSlotOf(method(p, "a", "f")));
+			
+			Function[] itable = d.getInterfaceTable(x);
+			Assert.assertEquals(x.size(), itable.length);
+			Assert.assertSame(method(p, "x", "g"), itable[x.getSlotOf(method(p, "x", "g"))]);
+			Assert.assertSame(method(p, "d", "h"), itable[x.getSlotOf(method(p, "x", "h"))]);
+		}),new TestCase("class a {void f() {}} class b : a {@override void f() {}}", (p)->{
+			VirtualTable b = p.getType("b").getVirtualTable();
+			Assert.assertSame(b, p.getType("b").getVirtualTable());
+			
+			p.tni.lookupCache.invalidate();
+			Assert.assertNotSame(b, p.getType("b").getVirtualTable());
+		}));
+	}
+	
+	private static Function method(Package p, String type, String name) {
+		return p.getType(type).getTypePackage().getFunctionsWithName(name).get(0);
+	}
+	
+	private static class TestCase implements Runnable {
+		String input;
+		Consumer<Package> test;
+		
+		public TestCase(String input, Consumer<Package> test) {
+			this.input = input;
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput tni = new TyphonInput();
+			Package p = TyphonModelReader.parseString(tni, input);
+			TyphonLinker.link(p);
+			TyphonTypeResolver.resolve(p);
+			TyphonAnnotChecker.check(p);
+			test.accept(p);
+		}
+	}
+}
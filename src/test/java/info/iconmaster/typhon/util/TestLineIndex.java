@@ -0,0 +1,70 @@
+package info.iconmaster.typhon.util;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+
+/**
+ * Tests <tt>{@link LineIndex}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestLineIndex extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase("", (lines)->{
+			Assert.assertEquals(1, lines.getLineCount());
+			Assert.assertEquals(1, lines.getLine(0));
+			Assert.assertEquals(1, lines.getColumn(0));
+			Assert.assertEquals("", lines.getLineText(1));
+		}),new TestCase("ab\ncd\n", (lines)->{
+			Assert.assertEquals(3, lines.getLineCount());
+			Assert.assertEquals(1, lines.getLine(1));
+			Assert.assertEquals(1, lines.getLine(2));
+			Assert.assertEquals(2, lines.getLine(3));
+			Assert.assertEquals(2, lines.getColumn(4));
+			Assert.assertEquals("cd", lines.getLineText(2));
+			Assert.assertEquals("", lines.getLineText(3));
+		}),new TestCase("ab\r\ncd\refg", (lines)->{
+			Assert.assertEquals(3, lines.getLineCount());
+			Assert.assertEquals(1, lines.getLine(3));
+			Assert.assertEquals(2, lines.getLine(4));
+			Assert.assertEquals(3, lines.getLine(7));
+			Assert.assertEquals(3, lines.getColumn(9));
+			Assert.assertEquals("ab", lines.getLineText(1));
+			Assert.assertEquals("cd", lines.getLineText(2));
+			Assert.assertEquals("efg", lines.getLineText(3));
+		}),new TestCase("void f() {}\n\nvoid g() {}", (lines)->{
+			TyphonInput tni = new TyphonInput();
+			Package p = TyphonModelReader.parseString(tni, "void f() {}\n\n  void g() {}");
+			
+			SourceInfo source = p.getFunctionsWithName("g").get(0).source;
+			Assert.assertNotNull(source.lines);
+			Assert.assertEquals(3, source.getLine());
+			Assert.assertEquals(3, source.getColumn());
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		String text;
+		Consumer<LineIndex> test;
+		
+		public TestCase(String text, Consumer<LineIndex> test) {
+			this.text = text;
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			test.accept(new LineIndex(text));
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package info.iconmaster.typhon.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.compiler.CodeBlock;
+import info.iconmaster.typhon.compiler.Instruction;
+import info.iconmaster.typhon.compiler.Instruction.OpCode;
+import info.iconmaster.typhon.compiler.Scope;
+import info.iconmaster.typhon.compiler.TyphonCompiler;
+import info.iconmaster.typhon.compiler.Variable;
+import info.iconmaster.typhon.errors.AmbiguousCallError;
+import info.iconmaster.typhon.linker.TyphonLinker;
+import info.iconmaster.typhon.model.Function;
+import info.iconmaster.typhon.model.Package;
+import info.iconmaster.typhon.model.TyphonModelReader;
+import info.iconmaster.typhon.types.TemplateType;
+import info.iconmaster.typhon.types.TypeRef;
+import info.iconmaster.typhon.types.TyphonAnnotChecker;
+import info.iconmaster.typhon.types.TyphonTypeResolver;
+import info.iconmaster.typhon.types.UserType;
+import info.iconmaster.typhon.util.LookupUtils.LookupArgument;
+
+/**
+ * Tests <tt>{@link OverloadResolver}</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestOverloadResolver extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase("void g(Any a) {} void g(int a) {} void f() {g(1);}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getFunctionsWithName("g").get(1), calledIn(p));
+		}),new TestCase("void g(int a) {} void g(Any a) {} void f() {g(1);}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getFunctionsWithName("g").get(0), calledIn(p));
+		}),new TestCase("void g(Any a) {} void g(int a) {} void f() {g(\"x\");}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getFunctionsWithName("g").get(0), calledIn(p));
+		}),new TestCase("void g(int a) {} void g(int a, int b) {} void f() {g(1, 2);}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getFunctionsWithName("g").get(1), calledIn(p));
+		}),new TestCase("void g(int a) {} void g(int b) {} void f() {g(b: 1);}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getFunctionsWithName("g").get(1), calledIn(p));
+		}),new TestCase("void g(int a, int b = 1, [int] @vararg c) {} void h(int a, {string:int} @varflag d) {}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			OverloadResolver.Signature g = p.getFunctionsWithName("g").get(0).getSignature();
+			Assert.assertTrue(g.accepts(1, Arrays.asList()));
+			Assert.assertTrue(g.accepts(5, Arrays.asList()));
+			Assert.assertTrue(g.accepts(0, Arrays.asList("a")));
+			Assert.assertFalse(g.accepts(0, Arrays.asList()));
+			Assert.assertFalse(g.accepts(1, Arrays.asList("x")));
+			
+			OverloadResolver.Signature h = p.getFunctionsWithName("h").get(0).getSignature();
+			Assert.assertTrue(h.accepts(1, Arrays.asList("x")));
+			Assert.assertFalse(h.accepts(2, Arrays.asList()));
+			Assert.assertSame(h, p.getFunctionsWithName("h").get(0).getSignature());
+		}),new TestCase("class a {new(Any x) {} new(int x) {}} void f() {a b = new a(1);}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getType("a").getTypePackage().getFunctions().get(1), calledIn(p));
+		}),new TestCase("void g(int a, Any b) {} void g(Any a, int b) {} void f() {g(1, 1);}", (p)->{
+			Assert.assertEquals(1, p.tni.errors.size());
+			Assert.assertTrue(p.tni.errors.get(0) instanceof AmbiguousCallError);
+			Assert.assertEquals(2, ((AmbiguousCallError) p.tni.errors.get(0)).candidates.size());
+		}),new TestCase("class a {new(int x, Any y) {} new(Any x, int y) {}} void f() {a b = new a(1, 1);}", (p)->{
+			Assert.assertEquals(1, p.tni.errors.size());
+			Assert.assertTrue(p.tni.errors.get(0) instanceof AmbiguousCallError);
+		}),new TestCase("class a<T> {void g(T x) {}}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			
+			// the same function with different template arguments is two different candidates
+			UserType a = (UserType) p.getType("a");
+			Function g = a.getTypePackage().getFunctionsWithName("g").get(0);
+			Scope scope = new Scope(new CodeBlock(p.tni, p));
+			Variable x = scope.addTempVar(new TypeRef(p.tni.corePackage.TYPE_INT), null);
+			OverloadResolver resolver = new OverloadResolver(scope, Arrays.asList(new LookupArgument(x, null)), null);
+			
+			Map<TemplateType, TypeRef> intMap = new HashMap<>(), numberMap = new HashMap<>(), stringMap = new HashMap<>();
+			intMap.put(a.getTemplates().get(0), new TypeRef(p.tni.corePackage.TYPE_INT));
+			numberMap.put(a.getTemplates().get(0), new TypeRef(p.tni.corePackage.TYPE_NUMBER));
+			stringMap.put(a.getTemplates().get(0), new TypeRef(p.tni.corePackage.TYPE_STRING));
+			
+			OverloadResolver.Candidate intCandidate = resolver.getCandidate(g, intMap);
+			OverloadResolver.Candidate numberCandidate = resolver.getCandidate(g, numberMap);
+			Assert.assertNull(resolver.getCandidate(g, stringMap));
+			Assert.assertNotSame(intCandidate, numberCandidate);
+			Assert.assertSame(intMap, intCandidate.typeMap);
+			Assert.assertSame(numberMap, numberCandidate.typeMap);
+			
+			// a function can't be ambiguous with itself
+			Assert.assertSame(numberCandidate, resolver.choose(Arrays.asList(numberCandidate, intCandidate), null));
+			Assert.assertEquals(0, p.tni.errors.size());
+		}),new TestCase("", (p)->{
+			// the tied functions belong to the shared core, but the error belongs to the input with the call in it
+			Function listGet = p.tni.corePackage.TYPE_LIST.FUNC_GET, mapGet = p.tni.corePackage.TYPE_MAP.FUNC_GET;
+			int coreErrors = listGet.tni.errors.size();
+			
+			Scope scope = new Scope(new CodeBlock(p.tni, p));
+			Variable x = scope.addTempVar(new TypeRef(p.tni.corePackage.TYPE_INT), null);
+			OverloadResolver resolver = new OverloadResolver(scope, Arrays.asList(new LookupArgument(x, null)), null);
+			
+			Map<TemplateType, TypeRef> listMap = new HashMap<>(), mapMap = new HashMap<>();
+			listMap.put(p.tni.corePackage.TYPE_LIST.getTemplates().get(0), new TypeRef(p.tni.corePackage.TYPE_INT));
+			mapMap.put(p.tni.corePackage.TYPE_MAP.getTemplates().get(0), new TypeRef(p.tni.corePackage.TYPE_INT));
+			mapMap.put(p.tni.corePackage.TYPE_MAP.getTemplates().get(1), new TypeRef(p.tni.corePackage.TYPE_INT));
+			
+			resolver.choose(Arrays.asList(resolver.getCandidate(listGet, listMap), resolver.getCandidate(mapGet, mapMap)), null);
+			Assert.assertEquals(1, p.tni.errors.size());
+			Assert.assertTrue(p.tni.errors.get(0) instanceof AmbiguousCallError);
+			Assert.assertEquals(coreErrors, listGet.tni.errors.size());
+		}),new TestCase("class a {void g() {}} class b : a {@override void g() {}} void f() {b x; x.g();}", (p)->{
+			Assert.assertEquals(0, p.tni.errors.size());
+			Assert.assertSame(p.getType("a").getTypePackage().getFunctionsWithName("g").get(0), calledIn(p));
+		}));
+	}
+	
+	/**
+	 * @return The function that the function <tt>f</tt> calls.
+	 */
+	private static Function calledIn(Package p) {
+		for (Instruction inst : p.getFunctionsWithName("f").get(0).getCode().ops) {
+			if (inst.op == OpCode.CALLSTATIC) {
+				return inst.arg(1);
+			} else if (inst.op == OpCode.CALL) {
+				return inst.arg(2);
+			}
+		}
+		
+		Assert.fail("no call found");
+		return null;
+	}
+	
+	private static class TestCase implements Runnable {
+		String input;
+		Consumer<Package> test;
+		
+		public TestCase(String input, Consumer<Package> test) {
+			this.input = input;
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			TyphonInput tni = new TyphonInput();
+			Package p = TyphonModelReader.parseString(tni, input);
+			TyphonLinker.link(p);
+			TyphonTypeResolver.resolve(p);
+			TyphonAnnotChecker.check(p);
+			TyphonCompiler.compile(p);
+			test.accept(p);
+		}
+	}
+}
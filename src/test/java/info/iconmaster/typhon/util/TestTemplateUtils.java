@@ -0,0 +1,162 @@
+package info.iconmaster.typhon.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.runners.Parameterized;
+
+import info.iconmaster.typhon.TyphonInput;
+import info.iconmaster.typhon.TyphonTest;
+import info.iconmaster.typhon.model.TemplateArgument;
+import info.iconmaster.typhon.types.FunctionType;
+import info.iconmaster.typhon.types.TemplateType;
+import info.iconmaster.typhon.types.TypeRef;
+
+/**
+ * Tests <tt>{@link TemplateUtils}.replaceTemplates</tt> and <tt>{@link TemplateUtils}.matchAllTemplateArgs</tt>.
+ * 
+ * @author iconmaster
+ *
+ */
+public class TestTemplateUtils extends TyphonTest {
+	@Parameterized.Parameters
+	public static Collection<Object[]> data() {
+		return TyphonTest.makeData(new TestCase((tni)->{
+			TemplateType t = new TemplateType("T", tni.corePackage.TYPE_ANY, null);
+			Map<TemplateType, TypeRef> map = new HashMap<>();
+			map.put(t, new TypeRef(tni.corePackage.TYPE_INT));
+			
+			TypeRef ground = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(tni.corePackage.TYPE_STRING))));
+			Assert.assertSame(ground, TemplateUtils.replaceTemplates(ground, map));
+			Assert.assertSame(ground, TemplateUtils.replaceTemplates(ground, new HashMap<>()));
+		}),new TestCase((tni)->{
+			TemplateType t = new TemplateType("T", tni.corePackage.TYPE_ANY, null);
+			Map<TemplateType, TypeRef> map = new HashMap<>();
+			map.put(t, new TypeRef(tni.corePackage.TYPE_INT));
+			
+			TypeRef key = new TypeRef(tni.corePackage.TYPE_STRING);
+			TypeRef ref = new TypeRef(tni.corePackage.TYPE_MAP, new TemplateArgument("K", key), new TemplateArgument("V", new TypeRef(t)));
+			TypeRef replaced = TemplateUtils.replaceTemplates(ref, map);
+			
+			Assert.assertNotSame(ref, replaced);
+			Assert.assertSame(key, replaced.getTemplateArgs().get(0).getValue());
+			Assert.assertEquals("K", replaced.getTemplateArgs().get(0).getLabel());
+			Assert.assertEquals("V", replaced.getTemplateArgs().get(1).getLabel());
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_INT), replaced.getTemplateArgs().get(1).getValue());
+		}),new TestCase((tni)->{
+			TemplateType t = new TemplateType("T", tni.corePackage.TYPE_ANY, null);
+			Map<TemplateType, TypeRef> map = new HashMap<>();
+			map.put(t, new TypeRef(tni.corePackage.TYPE_INT));
+			
+			FunctionType func = new FunctionType(tni);
+			func.getArgTypes().add(new TypeRef(t));
+			func.getRetTypes().add(new TypeRef(tni.corePackage.TYPE_BOOL));
+			
+			TypeRef replaced = TemplateUtils.replaceTemplates(new TypeRef(func), map);
+			Assert.assertNotSame(func, replaced.getType());
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_INT), ((FunctionType)replaced.getType()).getArgTypes().get(0));
+			Assert.assertSame(replaced.getType(), TemplateUtils.replaceTemplates(new TypeRef(func), map).getType());
+			
+			FunctionType ground = new FunctionType(tni);
+			ground.getArgTypes().add(new TypeRef(tni.corePackage.TYPE_INT));
+			Assert.assertTrue(ground.getFreeTemplates().isEmpty());
+			TypeRef groundRef = new TypeRef(ground);
+			Assert.assertSame(groundRef, TemplateUtils.replaceTemplates(groundRef, map));
+		}),new TestCase((tni)->{
+			TemplateType t = new TemplateType("T", tni.corePackage.TYPE_ANY, null);
+			Map<TemplateType, TypeRef> map = new HashMap<>();
+			map.put(t, new TypeRef(tni.corePackage.TYPE_INT));
+			
+			// rebuilt references keep their flags, like unchanged ones do
+			TypeRef ref = new TypeRef(tni.corePackage.TYPE_LIST, new TemplateArgument(new TypeRef(t)));
+			ref.isConst(true);
+			Assert.assertTrue(TemplateUtils.replaceTemplates(ref, map).isConst());
+			
+			FunctionType func = new FunctionType(tni);
+			func.getArgTypes().add(new TypeRef(t));
+			TypeRef funcRef = new TypeRef(func);
+			funcRef.isConst(true);
+			Assert.assertTrue(TemplateUtils.replaceTemplates(funcRef, map).isConst());
+		}),new TestCase((tni)->{
+			TemplateType t = new TemplateType("T", tni.corePackage.TYPE_ANY, null);
+			FunctionType func = new FunctionType(tni);
+			func.getArgTypes().add(new TypeRef(t));
+			
+			// remembered function types don't change along with the references they were made from
+			TypeRef value = new TypeRef(tni.corePackage.TYPE_INT);
+			Map<TemplateType, TypeRef> map = new HashMap<>();
+			map.put(t, value);
+			FunctionType replaced = (FunctionType) TemplateUtils.replaceTemplates(new TypeRef(func), map).getType();
+			
+			value.setType(tni.corePackage.TYPE_STRING);
+			Assert.assertSame(tni.corePackage.TYPE_INT, replaced.getArgTypes().get(0).getType());
+			
+			map.put(t, new TypeRef(tni.corePackage.TYPE_INT));
+			Assert.assertSame(replaced, TemplateUtils.replaceTemplates(new TypeRef(func), map).getType());
+			
+			// replacements that differ only in their flags give different function types
+			TypeRef constInt = new TypeRef(tni.corePackage.TYPE_INT);
+			constInt.isConst(true);
+			map.put(t, constInt);
+			FunctionType replacedConst = (FunctionType) TemplateUtils.replaceTemplates(new TypeRef(func), map).getType();
+			Assert.assertNotSame(replaced, replacedConst);
+			Assert.assertTrue(replacedConst.getArgTypes().get(0).isConst());
+		}),new TestCase((tni)->{
+			TemplateType k = tni.corePackage.TYPE_MAP.getTemplates().get(0);
+			TemplateType v = tni.corePackage.TYPE_MAP.getTemplates().get(1);
+			
+			TypeRef ref = new TypeRef(tni.corePackage.TYPE_MAP, new TemplateArgument("V", tni.corePackage.TYPE_INT));
+			Map<TemplateType, TypeRef> args = TemplateUtils.matchAllTemplateArgs(ref);
+			Assert.assertSame(args, TemplateUtils.matchAllTemplateArgs(ref));
+			Assert.assertEquals(new HashMap<>(args), args);
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_INT), args.get(v));
+			Assert.assertEquals(2, args.size());
+			
+			try {
+				args.put(k, new TypeRef(tni.corePackage.TYPE_INT));
+				Assert.fail("template map was changed");
+			} catch (UnsupportedOperationException e) {}
+			
+			ref.getTemplateArgs().add(new TemplateArgument(tni.corePackage.TYPE_STRING));
+			Map<TemplateType, TypeRef> newArgs = TemplateUtils.matchAllTemplateArgs(ref);
+			Assert.assertNotSame(args, newArgs);
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_STRING), newArgs.get(k));
+			Assert.assertEquals(TemplateUtils.matchAllTemplateArgs(ref.getMemberTemplate(), ref.getTemplateArgs()), newArgs);
+		}),new TestCase((tni)->{
+			TemplateType k = tni.corePackage.TYPE_MAP.getTemplates().get(0);
+			TemplateType v = tni.corePackage.TYPE_MAP.getTemplates().get(1);
+			
+			// changing an argument after the binding is made makes it again
+			TypeRef ref = new TypeRef(tni.corePackage.TYPE_MAP, new TemplateArgument(tni.corePackage.TYPE_INT), new TemplateArgument(tni.corePackage.TYPE_INT));
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_INT), TemplateUtils.matchAllTemplateArgs(ref).get(k));
+			
+			ref.getTemplateArgs().get(0).setValue(new TypeRef(tni.corePackage.TYPE_STRING));
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_STRING), TemplateUtils.matchAllTemplateArgs(ref).get(k));
+			
+			ref.getTemplateArgs().set(0, new TemplateArgument(tni.corePackage.TYPE_FLOAT));
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_FLOAT), TemplateUtils.matchAllTemplateArgs(ref).get(k));
+			
+			ref.getTemplateArgs().get(0).setLabel("V");
+			ref.getTemplateArgs().get(1).setLabel("K");
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_FLOAT), TemplateUtils.matchAllTemplateArgs(ref).get(v));
+			Assert.assertEquals(new TypeRef(tni.corePackage.TYPE_INT), TemplateUtils.matchAllTemplateArgs(ref).get(k));
+			Assert.assertEquals(TemplateUtils.matchAllTemplateArgs(ref.getMemberTemplate(), ref.getTemplateArgs()), TemplateUtils.matchAllTemplateArgs(ref));
+		}));
+	}
+	
+	private static class TestCase implements Runnable {
+		Consumer<TyphonInput> test;
+		
+		public TestCase(Consumer<TyphonInput> test) {
+			this.test = test;
+		}
+		
+		@Override
+		public void run() {
+			test.accept(new TyphonInput());
+		}
+	}
+}